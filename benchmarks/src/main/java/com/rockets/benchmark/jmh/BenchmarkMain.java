@@ -0,0 +1,35 @@
+package com.rockets.benchmark.jmh;
+
+import com.rockets.application.engine.ThreadPoolEngine;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Clase de utilidad que lanza los benchmarks JMH del modulo con las opciones de linea de comandos
+ * de JMH, siempre con el profiler gc (-prof gc), que publica junto a ops/s la memoria reservada
+ * por operacion (gc.alloc.rate.norm) y por segundo (gc.alloc.rate)
+ *
+ * Si no se indica el parametro backend (-p backend=...), RaceBenchmark mide todos los modos de
+ * ejecucion disponibles en la JVM: los hilos virtuales solo a partir de Java 21
+ *
+ * Uso: java -jar benchmarks/target/benchmarks.jar [opciones de JMH], por ejemplo
+ * java -jar benchmarks/target/benchmarks.jar RocketBenchmark -p boosters=10000
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cli).addProfiler(GCProfiler.class);
+        if (!cli.getParameter("backend").hasValue()) {
+            options.param("backend", ThreadPoolEngine.isVirtualThreadsAvailable()
+                    ? new String[]{"tick", "threads", "virtual", "fleet", "fleet-fork-join"}
+                    : new String[]{"tick", "threads", "fleet", "fleet-fork-join"});
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,46 @@
+package com.rockets.benchmark.jmh;
+
+import com.rockets.application.factory.RocketFactory;
+import com.rockets.domain.Booster;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clase de utilidad con la medida JMH de Booster.powerUp/powerDown sobre un mismo propulsor
+ * compartido por 1, 2 y 4 hilos, para medir el coste del compareAndSet con contencion
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoosterBenchmark {
+    private Booster booster;
+
+    @Setup
+    public void setUp() {
+        booster = new RocketFactory().create("B", 1).getBoosters().get(0);
+        booster.setMaxPower(Integer.MAX_VALUE);
+        booster.setCurrentPower(1 << 20);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int powerUpDown1Thread() {
+        return booster.powerUp() + booster.powerDown();
+    }
+
+    @Benchmark
+    @Threads(2)
+    public int powerUpDown2Threads() {
+        return booster.powerUp() + booster.powerDown();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int powerUpDown4Threads() {
+        return booster.powerUp() + booster.powerDown();
+    }
+}
@@ -0,0 +1,144 @@
+package com.rockets.benchmark.jmh;
+
+import com.rockets.application.engine.RaceEngine;
+import com.rockets.application.engine.ThreadPoolEngine;
+import com.rockets.application.engine.TickEngine;
+import com.rockets.application.factory.FactoryMethod;
+import com.rockets.application.factory.RocketFactory;
+import com.rockets.domain.Booster;
+import com.rockets.domain.Fleet;
+import com.rockets.domain.Race;
+import com.rockets.domain.RaceClock;
+import com.rockets.domain.Rocket;
+import com.rockets.domain.StateRace;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clase de utilidad con la medida JMH de una carrera completa (acelerar y frenar) con reloj
+ * virtual, para cada modo de ejecucion y tamaño de flota (cohetes de 10 propulsores):
+ *
+ * - tick: TickEngine con un hilo
+ * - threads: ThreadPoolEngine con hilos de plataforma
+ * - virtual: ThreadPoolEngine con hilos virtuales, a partir de Java 21 (ver BenchmarkMain)
+ * - fleet: Fleet secuencial
+ * - fleet-fork-join: Fleet repartiendo cada tick en el ForkJoinPool comun
+ *
+ * Cada operacion crea la carrera y la corre entera. La salida por consola de la carrera se
+ * descarta durante la medida
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RaceBenchmark {
+    private static final int BOOSTERS_PER_ROCKET = 10;
+    private static final int MAX_POWER = 10;
+    private static final int FORWARD_GOAL = 50;
+    private static final int BACK_GOAL = 20;
+    private static final long PHASE_TIMEOUT_SECONDS = 30;
+
+    @Param({"10", "100"})
+    public int rockets;
+
+    @Param({"tick", "threads", "virtual", "fleet", "fleet-fork-join"})
+    public String backend;
+
+    private final FactoryMethod factory = new RocketFactory();
+    private PrintStream console;
+
+    @Setup
+    public void setUp() {
+        if (backend.equals("virtual") && !ThreadPoolEngine.isVirtualThreadsAvailable()) {
+            throw new UnsupportedOperationException("Hilos virtuales no disponibles en Java "
+                    + Runtime.version().feature());
+        }
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(console);
+    }
+
+    @Benchmark
+    public long race() throws InterruptedException {
+        switch (backend) {
+            case "tick":
+                return race(new TickEngine(RaceClock.virtual(), 1));
+            case "threads":
+                return race(ThreadPoolEngine.cachedThreadPool());
+            case "virtual":
+                return race(ThreadPoolEngine.virtualThreads());
+            case "fleet":
+                return fleet(null);
+            case "fleet-fork-join":
+                return fleet(ForkJoinPool.commonPool());
+            default:
+                throw new IllegalArgumentException("Modo de ejecucion no valido: " + backend);
+        }
+    }
+
+    /**
+     * @return potencia acumulada total al terminar
+     */
+    private long race(RaceEngine engine) throws InterruptedException {
+        Race race = new Race();
+        RaceClock clock = RaceClock.virtual();
+        for (int i = 0; i < rockets; i++) {
+            Rocket rocket = factory.create("R" + i, BOOSTERS_PER_ROCKET);
+            for (Booster booster : rocket.getBoosters()) {
+                booster.setMaxPower(MAX_POWER);
+            }
+            rocket.setClock(clock);
+            race.addRocket(rocket);
+        }
+        try {
+            race.forward(FORWARD_GOAL);
+            engine.start(race.getRockets());
+            await(race);
+            race.back(BACK_GOAL);
+            engine.phaseChanged(race.getRockets());
+            await(race);
+        } finally {
+            engine.shutdown();
+        }
+        long total = 0;
+        for (Rocket rocket : race.getRockets()) {
+            total += rocket.getAcumPower();
+        }
+        return total;
+    }
+
+    private static void await(Race race) throws InterruptedException {
+        if (!race.await(PHASE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("La fase no ha terminado en " + PHASE_TIMEOUT_SECONDS + " s");
+        }
+    }
+
+    /**
+     * @return numero de ticks de la carrera
+     */
+    private long fleet(ForkJoinPool pool) {
+        Fleet fleet = new Fleet(rockets, rockets * BOOSTERS_PER_ROCKET);
+        int[] maxPower = new int[BOOSTERS_PER_ROCKET];
+        Arrays.fill(maxPower, MAX_POWER);
+        for (int i = 0; i < rockets; i++) {
+            fleet.addRocket("R" + i, maxPower);
+        }
+        if (pool == null) {
+            return fleet.runPhase(StateRace.FORWARD, FORWARD_GOAL, Long.MAX_VALUE)
+                    + fleet.runPhase(StateRace.BACK, BACK_GOAL, Long.MAX_VALUE);
+        }
+        return fleet.runPhase(StateRace.FORWARD, FORWARD_GOAL, Long.MAX_VALUE, pool)
+                + fleet.runPhase(StateRace.BACK, BACK_GOAL, Long.MAX_VALUE, pool);
+    }
+}
@@ -0,0 +1,61 @@
+package com.rockets.benchmark.jmh;
+
+import com.rockets.application.factory.RocketFactory;
+import com.rockets.domain.Booster;
+import com.rockets.domain.Rocket;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clase de utilidad con las medidas JMH de Rocket.getAcumPower y Rocket.addBoosterMaxPower, con
+ * int[] y con Optional, para cohetes de 3 a 10000 propulsores
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RocketBenchmark {
+    private static final int MAX_POWER = 10;
+
+    @Param({"3", "100", "10000"})
+    public int boosters;
+
+    private Rocket rocket;
+    private int[] maxPower;
+    private Optional<Integer>[] optionalMaxPower;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        rocket = new RocketFactory().create("R", boosters);
+        maxPower = new int[boosters];
+        Arrays.fill(maxPower, MAX_POWER);
+        optionalMaxPower = (Optional<Integer>[]) new Optional<?>[boosters];
+        Arrays.fill(optionalMaxPower, Optional.of(MAX_POWER));
+        rocket.addBoosterMaxPower(maxPower);
+        for (Booster booster : rocket.getBoosters()) {
+            booster.setCurrentPower(MAX_POWER / 2);
+        }
+    }
+
+    @Benchmark
+    public int getAcumPower() {
+        return rocket.getAcumPower();
+    }
+
+    @Benchmark
+    public List<Booster> addBoosterMaxPower() {
+        return rocket.addBoosterMaxPower(maxPower);
+    }
+
+    @Benchmark
+    public List<Booster> addBoosterMaxPowerOptional() {
+        return rocket.addBoosterMaxPower(optionalMaxPower);
+    }
+}
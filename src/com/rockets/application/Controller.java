@@ -1,37 +1,79 @@
 package com.rockets.application;
 
+import com.rockets.application.engine.RaceEngine;
+import com.rockets.application.engine.ThreadPoolEngine;
 import com.rockets.application.factory.FactoryMethod;
 import com.rockets.application.factory.RocketFactory;
+import com.rockets.application.solve.RaceSolution;
+import com.rockets.application.solve.RaceSolver;
 import com.rockets.domain.Booster;
+import com.rockets.domain.Fleet;
+import com.rockets.domain.FleetCheckpoint;
+import com.rockets.domain.Race;
+import com.rockets.domain.RaceClock;
 import com.rockets.domain.Rocket;
 import com.rockets.domain.StateRace;
+import com.rockets.domain.event.ConsoleSink;
+import com.rockets.domain.event.RaceEventLog;
+import com.rockets.domain.metrics.RaceMetrics;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Clase de la capa Application
  *
- * Implementa el patron Singleton
+ * Implementa el patron Singleton para la carrera de la aplicacion de consola (getInstance), con
+ * inicializacion perezosa y segura entre hilos mediante una clase holder. Ademas puede crearse
+ * una instancia por carrera, de modo que cada una tenga sus propios cohetes, su propio cohete
+ * en configuracion y su propio seguimiento de fases (ver RaceSessionManager). Los metodos que
+ * modifican la carrera estan sincronizados, por lo que una misma instancia puede usarse desde
+ * varios hilos
+ *
+ * Los cohetes se registran en la carrera por su identificador (ver Race), de modo que las
+ * operaciones sobre un solo cohete (addBoosterMaxPower, retarget y removeRocket con su
+ * identificador, findRocket) lo buscan en tiempo constante y no recorren el resto, aunque la
+ * carrera tenga millones de cohetes
  *
  * Hace uso del patron AbstractFactory para la creacion de objetos de la capa de Dominio
  *
  * Hace uso de la interfaz ExecutorService para la creacion de un thread pool que sera
  * utilizado para hacer correr las clases del Dominio que implementen la interfaz Runnable
  *
+ * Delega la ejecucion de la carrera en una interfaz RaceEngine, por defecto un hilo por
+ * cohete y por propulsor (ThreadPoolEngine), sobre hilos de plataforma o hilos virtuales,
+ * o bien un planificador por ticks (TickEngine)
+ *
+ * Registra las metricas de la carrera (RaceMetrics) en JMX y su pool de threads en ellas
+ *
  */
 public class Controller {
-    private static Controller instance=null;
+    private static final AtomicInteger pools = new AtomicInteger();
     private Rocket rocket;
-    private List<Rocket> rockets = new ArrayList<Rocket>();
-    private FactoryMethod factory;
-    private ExecutorService exec;
+    private volatile Race race = new Race();
+    private volatile FactoryMethod factory;
+    private final ExecutorService exec;
+    private final String metricsSuffix;
+    private volatile RaceEngine engine;
+    private volatile RaceClock clock=RaceClock.DEFAULT;
+    private volatile RaceEventLog eventLog;
+    private volatile long lastTransitionNanos = -1;
+
+    /**
+     * Clase holder de la instancia unica: la JVM la inicializa una sola vez, al llamar por primera
+     * vez a getInstance(), sin necesidad de sincronizar cada acceso
+     */
+    private static class Holder {
+        private static final Controller INSTANCE = new Controller(new RocketFactory());
+    }
 
     /**
-     * Constructor privado de la clase Controller. El constructor privado asegura que la clase
-     * solo tendra una instancia (patron Singleton), que sera accedida por un punto global
+     * Constructor de la clase Controller con su propio pool de hilos
      *
      * Inicializa la interfaz FactoryMethod que implementa el patron AbstractFactory
      *
@@ -39,9 +81,31 @@ public class Controller {
      *
      * @param factory interfaz de tipo FactoryMethod
      */
-    private Controller(FactoryMethod factory) {
+    public Controller(FactoryMethod factory) {
         this.factory = factory;
         exec = Executors.newCachedThreadPool();
+        engine = new ThreadPoolEngine(exec);
+        eventLog = new RaceEventLog(8192, new ConsoleSink(System.out));
+        int n = pools.getAndIncrement();
+        metricsSuffix = n == 0 ? "" : "-" + n;
+        RaceMetrics.getInstance().register();
+        RaceMetrics.getInstance().registerExecutor("controller" + metricsSuffix, exec);
+    }
+
+    /**
+     * Constructor de la clase Controller sin pool de hilos propio: la carrera se ejecuta con el
+     * modo de ejecucion dado, por ejemplo un TickEngine sobre un planificador compartido
+     *
+     * @param factory interfaz de tipo FactoryMethod
+     * @param engine interfaz RaceEngine con el modo de ejecucion de la carrera
+     * @param eventLog registro de eventos de la carrera, RaceEventLog.DISCARD para no publicarlos
+     */
+    public Controller(FactoryMethod factory, RaceEngine engine, RaceEventLog eventLog) {
+        this.factory = factory;
+        this.exec = null;
+        this.metricsSuffix = null;
+        this.engine = engine;
+        this.eventLog = eventLog;
     }
 
     /**
@@ -50,23 +114,30 @@ public class Controller {
      * @return instacia de la clase Controller
      */
     public static Controller getInstance(){
-        if (instance==null){
-            instance=new Controller(new RocketFactory());
-        }
-        return instance;
+        return Holder.INSTANCE;
     }
 
     /**
      * Delega en la clase Factory la creacion de un objeto de tipo Rocket
-     * Añade el objeto creado a un listado de objetos del mismo tipo
+     * Añade el objeto creado a la carrera, objeto de tipo Race
      *
      * @param id, String identificador del cohete
      * @param numberOfBoosters, numero de propulsores
      * @return objeto de tipo Rocket creado
+     * @throws IllegalArgumentException si ya hay en la carrera un cohete con el mismo
+     * identificador; el cohete en configuracion no cambia
      */
-    public Rocket createRocket(String id, int numberOfBoosters){
-        this.rocket = factory.create(id, numberOfBoosters);
-        this.rockets.add(rocket);
+    public synchronized Rocket createRocket(String id, int numberOfBoosters){
+        Rocket created = factory.create(id, numberOfBoosters);
+        created.setClock(clock);
+        created.setEventLog(eventLog);
+        try {
+            this.race.addRocket(created);
+        } catch (IllegalArgumentException e) {
+            factory.release(created);
+            throw e;
+        }
+        this.rocket = created;
         return this.rocket;
 
     }
@@ -80,58 +151,360 @@ public class Controller {
      *                  funcion del numero de propulsores del cohete
      * @return
      */
-    public List<Booster> addBoosterMaxPower(Optional<Integer>... maxPower) {
+    public synchronized List<Booster> addBoosterMaxPower(Optional<Integer>... maxPower) {
         this.rocket.addBoosterMaxPower(maxPower);
         return this.rocket.getBoosters();
     }
 
     /**
-     * Setea la variable staic countRockets (clase Rocket) con el numero total de
-     * Rockets creados, almacenados en un listado de objetos de tipo Rocket
+     * Delega en el objeto Rocket la accion de añadir la potencia maxima a cada uno de sus
+     * propulsores, sin envolver los valores en Optional
+     *
+     * @param maxPower, potencia maxima de cada propulsor; si se pasa un int[] ya creado
+     *                  no se reserva memoria
+     * @return listado de objetos de tipo Booster del cohete
+     */
+    public synchronized List<Booster> addBoosterMaxPower(int... maxPower) {
+        return this.rocket.addBoosterMaxPower(maxPower);
+    }
+
+    /**
+     * Añade la potencia maxima a cada uno de los propulsores del cohete con el identificador dado,
+     * sin pasar por el cohete en configuracion de createRocket
      *
-     * Recorre el listado de objetos de tipo Rocket creados y delega en cada objeto la accion
-     * de acelerar hasta alcanzar una potencia objetivo
+     * @param id, String identificador del cohete
+     * @param maxPower, potencia maxima de cada propulsor
+     * @return listado de objetos de tipo Booster del cohete
+     * @throws NoSuchElementException si no hay ningun cohete con ese identificador
+     */
+    public List<Booster> addBoosterMaxPower(String id, int... maxPower) {
+        return this.getRocket(id).addBoosterMaxPower(maxPower);
+    }
+
+    /**
+     * Crea un cohete con la potencia maxima de cada uno de sus propulsores y lo añade a la
+     * carrera en un solo paso, sin pasar por el cohete en configuracion de createRocket y
+     * addBoosterMaxPower, de modo que varios hilos pueden añadir cohetes a la vez
+     *
+     * @param id, String identificador del cohete
+     * @param maxPower, potencia maxima de cada propulsor, su longitud es el numero de propulsores
+     * @return objeto de tipo Rocket creado
+     * @throws IllegalArgumentException si ya hay en la carrera un cohete con el mismo identificador
+     */
+    public Rocket addRocket(String id, int... maxPower){
+        Rocket created = factory.create(id, maxPower.length);
+        created.addBoosterMaxPower(maxPower);
+        created.setClock(clock);
+        created.setEventLog(eventLog);
+        try {
+            this.race.addRocket(created);
+        } catch (IllegalArgumentException e) {
+            factory.release(created);
+            throw e;
+        }
+        return created;
+    }
+
+    /**
+     * Comienza en la carrera una fase en la que cada cohete ha de acelerar hasta alcanzar
+     * una potencia objetivo. La carrera lleva la cuenta de los cohetes que aun han de llegar
      *
      * @param goalPower, potencia objetivo que han de alcanzar cada uno de los cohetes
      *                   participantes en la carrera
+     * @return CompletableFuture que se completa cuando todos los cohetes alcanzan la potencia objetivo
+     * @throws IllegalArgumentException si algun cohete no puede llegar a la potencia objetivo
      */
-    public void forward(Integer goalPower){
-        Rocket.setCountRockets(this.rockets.size());
-        for (Rocket rocket : this.rockets) {
-            rocket.forward(Optional.of(goalPower));
-            rocket.setGoalPower(goalPower);
-            rocket.getBoosters().stream().forEach(c->c.setState(StateRace.FORWARD));
+    public CompletableFuture<Void> forward(Integer goalPower){
+        return retarget(StateRace.FORWARD, goalPower);
+    }
+
+    /**
+     * Comienza en la carrera una fase en la que cada cohete ha de frenar hasta alcanzar
+     * una potencia objetivo. La carrera lleva la cuenta de los cohetes que aun han de llegar
+     *
+     * @param goalPower, potencia objetivo que han de alcanzar cada uno de los cohetes
+     *                   participantes en la carrera
+     * @return CompletableFuture que se completa cuando todos los cohetes alcanzan la potencia objetivo
+     * @throws IllegalArgumentException si algun cohete no puede llegar a la potencia objetivo
+     */
+    public CompletableFuture<Void> back(Integer goalPower){
+        return retarget(StateRace.BACK, goalPower);
+    }
+
+    /**
+     * Cambia la potencia objetivo y el sentido de la carrera de forma atomica, este o no en curso
+     * la fase anterior: ninguna llegada ni fallo de la fase anterior cuenta en la nueva, los
+     * propulsores conservan su potencia actual y continuan desde ella, sin volver a crear cohetes
+     * ni tareas. El tiempo del cambio, desde la llamada hasta que todos los cohetes estan en la
+     * fase nueva y el modo de ejecucion lo sabe, se registra en RaceMetrics y en getLastTransitionNanos
+     *
+     * @param state, FORWARD para acelerar, BACK para frenar
+     * @param goalPower, potencia objetivo que han de alcanzar cada uno de los cohetes
+     * @return CompletableFuture que se completa cuando todos los cohetes alcanzan la potencia objetivo
+     * @throws IllegalArgumentException si el estado no es FORWARD o BACK, o si algun cohete no
+     * puede llegar a la potencia objetivo desde su potencia actual
+     */
+    public CompletableFuture<Void> retarget(StateRace state, int goalPower){
+        if (state != StateRace.FORWARD && state != StateRace.BACK) {
+            throw new IllegalArgumentException("Estado de fase no valido: " + state);
+        }
+        long start = System.nanoTime();
+        CompletableFuture<Void> done;
+        synchronized (this) {
+            RaceSolver.checkReachable(this.getRockets(), state, goalPower);
+            done = this.race.startPhase(state, goalPower);
+            engine.phaseChanged(this.getRockets());
         }
+        long elapsed = System.nanoTime() - start;
+        lastTransitionNanos = elapsed;
+        RaceMetrics.getInstance().phaseTransition(elapsed);
+        return done;
     }
 
     /**
-     * Setea la variable staic countRockets (clase Rocket) con el numero total de
-     * Rockets creados, almacenados en un listado de objetos de tipo Rocket
+     * Cambia la potencia objetivo y el sentido de un solo cohete, sin tocar los demas ni la fase
+     * de la carrera (ver Race.retarget)
      *
-     * Recorre el listado de objetos de tipo Rocket creados y delega en cada objeto la accion
-     * de frenar hasta alcanzar una potencia objetivo
+     * @param id, String identificador del cohete
+     * @param state, FORWARD para acelerar, BACK para frenar
+     * @param goalPower, potencia objetivo nueva del cohete
+     * @return CompletableFuture que se completa cuando el cohete alcanza la potencia objetivo
+     * @throws IllegalArgumentException si el estado no es FORWARD o BACK, o si el cohete no
+     * puede llegar a la potencia objetivo desde su potencia actual
+     * @throws NoSuchElementException si no hay ningun cohete con ese identificador
+     */
+    public CompletableFuture<Void> retarget(String id, StateRace state, int goalPower){
+        if (state != StateRace.FORWARD && state != StateRace.BACK) {
+            throw new IllegalArgumentException("Estado de fase no valido: " + state);
+        }
+        Rocket target = this.getRocket(id);
+        RaceSolver.checkReachable(List.of(target), state, goalPower);
+        CompletableFuture<Void> done = this.race.retarget(target, state, goalPower);
+        engine.rocketChanged(target);
+        return done;
+    }
+
+    /**
+     * Quita un cohete de la carrera: deja de contar en la fase en curso y sus hilos terminan.
+     * No se devuelve a la factoria, ya que sus hilos pueden seguir terminando
      *
+     * @param id, String identificador del cohete
+     * @return cohete quitado, vacio si no hay ninguno con ese identificador
+     */
+    public Optional<Rocket> removeRocket(String id){
+        Optional<Rocket> removed = this.race.removeRocket(id);
+        removed.ifPresent(c -> engine.rocketRemoved(c));
+        return removed;
+    }
+
+    /**
+     * @return duracion en nanosegundos del ultimo cambio de fase (ver retarget), -1 si aun no ha habido ninguno
+     */
+    public long getLastTransitionNanos(){
+        return lastTransitionNanos;
+    }
+
+    /**
+     * Resuelve de forma analitica, sin ejecutar la carrera, una fase en la que cada cohete ha de
+     * acelerar o frenar hasta una potencia objetivo, partiendo de la potencia actual de sus
+     * propulsores. No modifica los cohetes
+     *
+     * @param state, FORWARD para acelerar, BACK para frenar
      * @param goalPower, potencia objetivo que han de alcanzar cada uno de los cohetes
-     *                   participantes en la carrera
+     * @return objeto de tipo RaceSolution con el tick de llegada y las potencias finales de cada
+     * cohete y la clasificacion. Con su metodo next() se resuelven las fases siguientes
+     */
+    public RaceSolution solve(StateRace state, int goalPower){
+        return RaceSolver.solve(this.getRockets(), state, goalPower);
+    }
+
+    /**
+     * Espera a que todos los cohetes alcancen la potencia objetivo de la fase en curso
+     *
+     * @param timeout, tiempo maximo de espera
+     * @param unit, unidad del tiempo maximo de espera
+     * @return true si todos los cohetes han llegado, false si se ha agotado el tiempo
+     * @throws InterruptedException si el hilo es interrumpido durante la espera
      */
-    public void back(Integer goalPower){
-        Rocket.setCountRockets(this.rockets.size());
-        for (Rocket rocket : this.rockets) {
-            rocket.back(Optional.of(goalPower));
-            rocket.setGoalPower(goalPower);
-            rocket.getBoosters().stream().forEach(c->c.setState(StateRace.BACK));
+    public boolean awaitPhase(long timeout, TimeUnit unit) throws InterruptedException {
+        boolean done = this.race.await(timeout, unit);
+        eventLog.drain(timeout, unit);
+        return done;
+    }
+
+    /**
+     * @return registro de eventos de la carrera
+     */
+    public RaceEventLog getEventLog() {
+        return eventLog;
+    }
+
+    /**
+     * Fija el registro de eventos de la carrera y lo aplica a los cohetes ya creados
+     * y a los que se creen a continuacion
+     *
+     * @param eventLog, objeto de tipo RaceEventLog con sus destinos de eventos
+     */
+    public synchronized void setEventLog(RaceEventLog eventLog) {
+        this.eventLog = eventLog;
+        this.getRockets().forEach(c -> c.setEventLog(eventLog));
+    }
+
+    /**
+     * @return objeto de tipo Race, la carrera en la que participan los cohetes creados
+     */
+    public Race getRace() {
+        return race;
+    }
+
+    /**
+     * Termina la carrera en curso y comienza una vacia: los cohetes de la carrera en curso se
+     * devuelven a la factoria (FactoryMethod.release), que puede reutilizarlos al crear los de
+     * la siguiente. Ha de llamarse con la carrera detenida, sin cohetes ni propulsores en ejecucion
+     */
+    public synchronized void newRace(){
+        List<Rocket> rockets = this.getRockets();
+        for (int i = 0; i < rockets.size(); i++) {
+            factory.release(rockets.get(i));
         }
+        this.race = new Race();
+        this.rocket = null;
+    }
+
+    /**
+     * Pide un checkpoint de la configuracion y el estado de todos los cohetes y de la fase en
+     * curso, con el orden y el tick de llegada de los que ya han llegado, que se escribe en segundo
+     * plano (ver FleetCheckpoint). Los cohetes siguen en carrera: de cada cohete se toman a la vez
+     * la potencia de sus propulsores y su potencia acumulada (ver Fleet.of), aunque cohetes
+     * distintos pueden tomarse en momentos algo distintos. Mientras no cambien los cohetes de la
+     * carrera ni su potencia maxima, solo se escribe su estado
+     *
+     * @param checkpoint, fichero de checkpoint en el que se escribe
+     * @return CompletableFuture que se completa con la secuencia del checkpoint cuando esta en disco
+     */
+    public CompletableFuture<Long> checkpoint(FleetCheckpoint checkpoint){
+        return checkpoint.submit(Fleet.of(this.race));
+    }
+
+    /**
+     * Sustituye la carrera en curso por la de un checkpoint (ver FleetCheckpoint.read y newRace):
+     * crea los cohetes con su potencia maxima, les devuelve su potencia y su estado y reanuda la
+     * fase en curso (Race.resume), con el orden y el tick de llegada de los que ya habian llegado.
+     * Ha de llamarse con la carrera detenida; despues execute() la
+     * pone de nuevo en marcha
+     *
+     * @param path, fichero de checkpoint
+     * @return flota leida del checkpoint
+     * @throws IOException si no se puede leer el checkpoint
+     */
+    public synchronized Fleet restore(Path path) throws IOException {
+        Fleet fleet = FleetCheckpoint.read(path);
+        this.newRace();
+        for (int r = 0; r < fleet.getRocketCount(); r++) {
+            fleet.applyTo(r, this.addRocket(fleet.getId(r), fleet.getMaxPower(r)));
+        }
+        int[] finishOrder = new int[fleet.getFinishedCount()];
+        for (int i = 0; i < finishOrder.length; i++) {
+            finishOrder[i] = fleet.getFinishOrder(i);
+        }
+        long[] finishTicks = new long[fleet.getRocketCount()];
+        for (int r = 0; r < finishTicks.length; r++) {
+            finishTicks[r] = fleet.getFinishTick(r);
+        }
+        this.race.resume(fleet.getPhase(), fleet.getPhaseGoal(), finishOrder, finishTicks);
+        return fleet;
+    }
+
+    /**
+     * @return interfaz FactoryMethod con la que se crean los cohetes
+     */
+    public FactoryMethod getFactory() {
+        return factory;
+    }
+
+    /**
+     * Fija la factoria con la que se crean los cohetes, por ejemplo PooledRocketFactory
+     * para reutilizarlos entre carreras
+     *
+     * @param factory, interfaz FactoryMethod
+     */
+    public void setFactory(FactoryMethod factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * @param id, String identificador del cohete
+     * @return cohete de la carrera con ese identificador, vacio si no hay ninguno
+     */
+    public Optional<Rocket> findRocket(String id) {
+        return this.race.getRocket(id);
+    }
+
+    private Rocket getRocket(String id) {
+        return this.race.getRocket(id)
+                .orElseThrow(() -> new NoSuchElementException("No existe el cohete " + id));
+    }
+
+    /**
+     * @return listado de objetos de tipo Rocket que participan en la carrera
+     */
+    public List<Rocket> getRockets() {
+        return this.race.getRockets();
     }
 
     /**
      *
      * @return objeto de tipo ExecutorService que proporciona métodos para administrar
-     * el progreso de una o más tareas asincrónicas.
+     * el progreso de una o más tareas asincrónicas, null si el Controller no tiene pool propio
      */
     public ExecutorService getExec() {
         return exec;
     }
 
+    /**
+     * @return interfaz RaceClock, base de tiempo de la carrera
+     */
+    public RaceClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Fija la base de tiempo de la carrera (tiempo real, acelerado o virtual) y la aplica
+     * a los cohetes ya creados y a los que se creen a continuacion
+     *
+     * @param clock, interfaz RaceClock que determina la duracion de cada tick
+     */
+    public synchronized void setClock(RaceClock clock) {
+        this.clock = clock;
+        this.getRockets().forEach(c -> c.setClock(clock));
+    }
+
+    /**
+     * @return interfaz RaceEngine con el modo de ejecucion de la carrera
+     */
+    public RaceEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Fija el modo de ejecucion de la carrera, ha de llamarse antes del metodo execute()
+     *
+     * @param engine, interfaz RaceEngine con el modo de ejecucion de la carrera
+     */
+    public synchronized void setEngine(RaceEngine engine) {
+        this.engine = engine;
+        if (metricsSuffix != null && engine instanceof ThreadPoolEngine && ((ThreadPoolEngine) engine).getExec() != exec) {
+            RaceMetrics.getInstance().registerExecutor("engine" + metricsSuffix, ((ThreadPoolEngine) engine).getExec());
+        }
+    }
+
+    /**
+     * @return metricas de la carrera en texto plano
+     */
+    public String getMetricsSnapshot() {
+        return RaceMetrics.getInstance().snapshot();
+    }
+
     /**
      * Ejecuta de forma asincrona una accion, identificada por implementar la interfaz Runnable,
      * que se completa mediante una tarea que se ejecuta en un ExecutorService dado después
@@ -140,13 +513,24 @@ public class Controller {
      * En este caso la acciones Runnables que se ejecutan de forma asincrona estan encapsuladas
      * tanto en los objeto de tipo Rocket que se crean (2 en total, pero podrian ser mas),
      * como en su respectivos Booster (9 en total, pero podrian ser mas)
+     *
+     * La forma concreta de ejecucion depende de la interfaz RaceEngine fijada
+     */
+    public synchronized void execute(){
+        engine.start(this.getRockets());
+    }
+
+    /**
+     * Detiene la ejecucion de la carrera, tanto el modo de ejecucion como el pool de threads,
+     * y cierra el registro de eventos tras entregar los pendientes
      */
-    public void execute(){
-        for (Rocket rocket : this.rockets) {
-            CompletableFuture.runAsync(rocket, exec);
-            for (Booster booster : rocket.getBoosters()) {
-                CompletableFuture.runAsync(booster, exec);
-            }
+    public synchronized void shutdown(){
+        engine.shutdown();
+        eventLog.close();
+        if (exec != null) {
+            exec.shutdownNow();
+            RaceMetrics.getInstance().unregisterExecutor("controller" + metricsSuffix);
+            RaceMetrics.getInstance().unregisterExecutor("engine" + metricsSuffix);
         }
     }
 }
@@ -0,0 +1,161 @@
+package com.rockets.application;
+
+import com.rockets.application.engine.TickEngine;
+import com.rockets.application.factory.FactoryMethod;
+import com.rockets.application.factory.RocketFactory;
+import com.rockets.domain.RaceClock;
+import com.rockets.domain.event.RaceEventLog;
+import com.rockets.domain.metrics.RaceMetrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Clase de la capa Application
+ *
+ * Gestiona carreras independientes (sesiones) dentro de una misma JVM, por ejemplo las de un
+ * servidor. Cada sesion es un Controller propio, con sus cohetes, su cohete en configuracion y
+ * su seguimiento de fases, y su propia base de tiempo. Todas ejecutan sus ticks (TickEngine) en
+ * un unico planificador compartido con un numero fijo de hilos, por lo que el numero de hilos no
+ * depende del numero de sesiones ni de cohetes. El numero de sesiones abiertas a la vez esta
+ * limitado por maxSessions
+ *
+ * Las sesiones no publican eventos por defecto (RaceEventLog.DISCARD); cada una puede fijar
+ * su propio registro de eventos con Controller.setEventLog
+ */
+public class RaceSessionManager implements AutoCloseable {
+    /**
+     * Numero maximo de sesiones abiertas a la vez por defecto
+     */
+    public static final int DEFAULT_MAX_SESSIONS = 1024;
+
+    private static final AtomicInteger managers = new AtomicInteger();
+
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final Map<String, Controller> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicInteger open = new AtomicInteger();
+    private final int maxSessions;
+    private final Supplier<RaceClock> clocks;
+    private final FactoryMethod factory;
+    private final String metricsName;
+
+    /**
+     * Crea un gestor con un hilo por nucleo, DEFAULT_MAX_SESSIONS sesiones y un reloj virtual por sesion
+     */
+    public RaceSessionManager() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_SESSIONS, RaceClock::virtual, new RocketFactory());
+    }
+
+    /**
+     * @param threads, numero de hilos del planificador compartido
+     * @param maxSessions, numero maximo de sesiones abiertas a la vez
+     * @param clocks, crea la base de tiempo de cada sesion; un reloj virtual no ha de compartirse entre sesiones
+     * @param factory, interfaz FactoryMethod con la que las sesiones crean sus cohetes, compartida entre ellas
+     */
+    public RaceSessionManager(int threads, int maxSessions, Supplier<RaceClock> clocks, FactoryMethod factory) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads ha de ser mayor que 0");
+        }
+        if (maxSessions <= 0) {
+            throw new IllegalArgumentException("maxSessions ha de ser mayor que 0");
+        }
+        this.maxSessions = maxSessions;
+        this.clocks = clocks;
+        this.factory = factory;
+        AtomicInteger count = new AtomicInteger();
+        this.scheduler = new ScheduledThreadPoolExecutor(threads, r -> {
+            Thread thread = new Thread(r, "race-session-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.setRemoveOnCancelPolicy(true);
+        this.metricsName = "sessions-" + managers.incrementAndGet();
+        RaceMetrics.getInstance().register();
+        RaceMetrics.getInstance().registerExecutor(metricsName, scheduler);
+    }
+
+    /**
+     * Abre una sesion nueva, con su propio Controller y un TickEngine sobre el planificador compartido
+     *
+     * @return identificador de la sesion
+     * @throws IllegalStateException si ya hay maxSessions sesiones abiertas o el gestor esta cerrado
+     */
+    public String createSession() {
+        if (scheduler.isShutdown()) {
+            throw new IllegalStateException("Gestor de sesiones cerrado");
+        }
+        if (open.incrementAndGet() > maxSessions) {
+            open.decrementAndGet();
+            throw new IllegalStateException("Numero maximo de sesiones alcanzado: " + maxSessions);
+        }
+        RaceClock clock = clocks.get();
+        Controller controller = new Controller(factory, new TickEngine(clock, scheduler), RaceEventLog.DISCARD);
+        controller.setClock(clock);
+        String id = "race-" + nextId.incrementAndGet();
+        sessions.put(id, controller);
+        return id;
+    }
+
+    /**
+     * @param id, identificador de la sesion
+     * @return Controller de la sesion, vacio si no existe o ya se ha cerrado
+     */
+    public Optional<Controller> getSession(String id) {
+        return Optional.ofNullable(sessions.get(id));
+    }
+
+    /**
+     * Cierra una sesion: detiene sus ticks y cierra su registro de eventos. El planificador
+     * compartido sigue en marcha para el resto de sesiones
+     *
+     * @param id, identificador de la sesion
+     * @return true si la sesion existia
+     */
+    public boolean closeSession(String id) {
+        Controller controller = sessions.remove(id);
+        if (controller == null) {
+            return false;
+        }
+        open.decrementAndGet();
+        controller.shutdown();
+        return true;
+    }
+
+    /**
+     * @return identificadores de las sesiones abiertas
+     */
+    public Set<String> getSessionIds() {
+        return Collections.unmodifiableSet(sessions.keySet());
+    }
+
+    /**
+     * @return numero de sesiones abiertas
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    /**
+     * Cierra todas las sesiones y detiene el planificador compartido
+     */
+    @Override
+    public void close() {
+        for (String id : sessions.keySet()) {
+            closeSession(id);
+        }
+        scheduler.shutdownNow();
+        RaceMetrics.getInstance().unregisterExecutor(metricsName);
+    }
+}
@@ -0,0 +1,262 @@
+package com.rockets.application.batch;
+
+import com.rockets.domain.Fleet;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Clase de la capa Application
+ *
+ * Ejecuta lotes de carreras (RaceSpec) repartidos entre un pool fijo de hilos, por defecto uno
+ * por nucleo, para barridos de escenarios. Cada carrera corre en un contexto aislado, sin pasar
+ * por el Controller: una flota columnar (Fleet) que avanza tick a tick con la misma regla que
+ * Rocket.tick(). Cada hilo del pool reutiliza su propia Fleet, vaciada con clear() entre carrera
+ * y carrera, de modo que tras las primeras carreras ya no se reservan arrays de propulsores
+ *
+ * Los resultados (RaceResult) se entregan segun terminan, no en el orden de las especificaciones,
+ * mediante un Flow.Publisher (publish) o un Iterator (iterator). En ambos casos la entrega tiene
+ * un buffer acotado: si el consumidor no da abasto, los hilos del pool esperan en lugar de
+ * acumular resultados en memoria
+ *
+ * Opcionalmente consulta un ResultCache antes de ejecutar cada carrera: una carrera con la misma
+ * configuracion de propulsores y la misma secuencia de fases que otra ya ejecutada devuelve su
+ * resultado sin volver a simularla
+ */
+public class BatchRunner implements AutoCloseable {
+    /**
+     * Numero de resultados por defecto que pueden estar pendientes de consumir
+     */
+    public static final int DEFAULT_BUFFER = 1024;
+
+    private static final Object END = new Object();
+
+    private final ExecutorService workers;
+    private final int parallelism;
+    private final int buffer;
+    private final ResultCache cache;
+    private final ThreadLocal<Fleet> fleets = ThreadLocal.withInitial(() -> new Fleet(16, 256));
+
+    /**
+     * Crea un ejecutor de lotes con un hilo por nucleo
+     */
+    public BatchRunner() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_BUFFER);
+    }
+
+    /**
+     * @param parallelism, numero de hilos entre los que se reparten las carreras
+     * @param buffer, numero de resultados que pueden estar pendientes de consumir
+     */
+    public BatchRunner(int parallelism, int buffer) {
+        this(parallelism, buffer, null);
+    }
+
+    /**
+     * @param parallelism, numero de hilos entre los que se reparten las carreras
+     * @param buffer, numero de resultados que pueden estar pendientes de consumir
+     * @param cache, cache de resultados que se consulta antes de ejecutar cada carrera, null para no usarla
+     */
+    public BatchRunner(int parallelism, int buffer, ResultCache cache) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism ha de ser mayor que 0");
+        }
+        if (buffer <= 0) {
+            throw new IllegalArgumentException("buffer ha de ser mayor que 0");
+        }
+        this.parallelism = parallelism;
+        this.buffer = buffer;
+        this.cache = cache;
+        AtomicInteger count = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "batch-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Devuelve un Flow.Publisher que, al suscribirse, ejecuta el lote y publica el resultado de
+     * cada carrera segun termina. Admite un unico suscriptor por llamada; si el suscriptor cancela
+     * la suscripcion, las carreras que aun no han empezado no se ejecutan
+     *
+     * @param specs, listado de especificaciones de carrera
+     * @return Flow.Publisher de los resultados
+     */
+    public Flow.Publisher<RaceResult> publish(List<RaceSpec> specs) {
+        return subscriber -> {
+            SubmissionPublisher<RaceResult> publisher = new SubmissionPublisher<>(ForkJoinPool.commonPool(), buffer);
+            publisher.subscribe(subscriber);
+            run(specs, publisher);
+        };
+    }
+
+    /**
+     * Ejecuta el lote y devuelve un Iterator de los resultados segun terminan. Los metodos
+     * hasNext y next esperan a que termine la siguiente carrera
+     *
+     * @param specs, listado de especificaciones de carrera
+     * @return Iterator de los resultados; next lanza CompletionException si falla alguna carrera
+     */
+    public Iterator<RaceResult> iterator(List<RaceSpec> specs) {
+        QueueSubscriber subscriber = new QueueSubscriber(buffer);
+        publish(specs).subscribe(subscriber);
+        return subscriber;
+    }
+
+    /**
+     * Reparte las carreras entre los hilos del pool: cada hilo toma la siguiente carrera sin
+     * ejecutar hasta agotarlas, y el ultimo en terminar cierra el publisher
+     */
+    private void run(List<RaceSpec> specs, SubmissionPublisher<RaceResult> publisher) {
+        AtomicInteger next = new AtomicInteger();
+        int tasks = Math.max(1, Math.min(parallelism, specs.size()));
+        AtomicInteger running = new AtomicInteger(tasks);
+        for (int i = 0; i < tasks; i++) {
+            workers.execute(() -> {
+                try {
+                    Fleet fleet = fleets.get();
+                    int index;
+                    while (!publisher.isClosed() && publisher.hasSubscribers()
+                            && (index = next.getAndIncrement()) < specs.size()) {
+                        RaceSpec spec = specs.get(index);
+                        publisher.submit(cache == null ? runRace(spec, fleet)
+                                : cache.computeIfAbsent(spec, s -> runRace(s, fleet)));
+                    }
+                } catch (RuntimeException e) {
+                    publisher.closeExceptionally(e);
+                } finally {
+                    if (running.decrementAndGet() == 0) {
+                        publisher.close();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Ejecuta todas las fases de una carrera sobre una flota reutilizada
+     *
+     * @param spec, especificacion de la carrera
+     * @param fleet, flota del hilo, se vacia antes de cargar la carrera
+     * @return resultado de la carrera
+     */
+    static RaceResult runRace(RaceSpec spec, Fleet fleet) {
+        fleet.clear();
+        int rockets = spec.getRocketCount();
+        for (int r = 0; r < rockets; r++) {
+            fleet.addRocket(spec.getRocketId(r), spec.getMaxPower(r));
+        }
+        int phases = spec.getPhaseCount();
+        long[] phaseTicks = new long[phases];
+        long[][] finishTicks = new long[phases][rockets];
+        int[][] finishOrder = new int[phases][];
+        for (int p = 0; p < phases; p++) {
+            long start = fleet.getTick();
+            phaseTicks[p] = fleet.runPhase(spec.getState(p), spec.getGoal(p), spec.getPhaseTickLimit());
+            for (int r = 0; r < rockets; r++) {
+                long tick = fleet.getFinishTick(r);
+                finishTicks[p][r] = tick < 0 ? RaceResult.UNREACHED : tick - start;
+            }
+            finishOrder[p] = new int[fleet.getFinishedCount()];
+            for (int i = 0; i < finishOrder[p].length; i++) {
+                finishOrder[p][i] = fleet.getFinishOrder(i);
+            }
+        }
+        int[] acumPower = new int[rockets];
+        int[][] boosterPower = new int[rockets][];
+        for (int r = 0; r < rockets; r++) {
+            Fleet.RocketView rocket = fleet.rocket(r);
+            acumPower[r] = rocket.getAcumPower();
+            boosterPower[r] = new int[rocket.getNumberOfBoosters()];
+            for (int b = 0; b < boosterPower[r].length; b++) {
+                boosterPower[r][b] = rocket.getBooster(b).getCurrentPower();
+            }
+        }
+        return new RaceResult(spec, phaseTicks, finishTicks, finishOrder, acumPower, boosterPower);
+    }
+
+    /**
+     * @return cache de resultados, null si no se usa
+     */
+    public ResultCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Detiene el pool de hilos; las carreras en curso se interrumpen
+     */
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Suscriptor que deja los resultados en una cola acotada y los ofrece como Iterator,
+     * pidiendo un resultado mas al publisher por cada uno que se consume
+     */
+    private static class QueueSubscriber implements Flow.Subscriber<RaceResult>, Iterator<RaceResult> {
+        private final BlockingQueue<Object> queue;
+        private final int capacity;
+        private Flow.Subscription subscription;
+        private Object head;
+
+        QueueSubscriber(int capacity) {
+            this.capacity = capacity;
+            // cabe tambien la señal de fin o de error
+            this.queue = new ArrayBlockingQueue<>(capacity + 1);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(capacity);
+        }
+
+        @Override
+        public void onNext(RaceResult item) {
+            queue.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            queue.add(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            queue.add(END);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (head == null) {
+                try {
+                    head = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    subscription.cancel();
+                    throw new CompletionException(e);
+                }
+            }
+            if (head instanceof Throwable) {
+                throw new CompletionException((Throwable) head);
+            }
+            return head != END;
+        }
+
+        @Override
+        public RaceResult next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            RaceResult result = (RaceResult) head;
+            head = null;
+            subscription.request(1);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.rockets.application.batch;
+
+import java.util.Arrays;
+
+/**
+ * Clase de la capa Application
+ *
+ * Resultado de una carrera ejecutada por BatchRunner: por cada fase, los ticks que ha durado,
+ * el tick de llegada de cada cohete y el orden de llegada, y la potencia acumulada de cada
+ * cohete y la potencia de cada propulsor al terminar la carrera. Es inmutable: los arrays no se
+ * exponen sin copiar, por lo que ResultCache puede devolver el mismo resultado a varias carreras
+ */
+public class RaceResult {
+    /**
+     * Tick de llegada de un cohete que no alcanza la potencia objetivo de la fase
+     */
+    public static final long UNREACHED = -1;
+
+    private final RaceSpec spec;
+    private final long[] phaseTicks;
+    private final long[][] finishTicks;
+    private final int[][] finishOrder;
+    private final int[] acumPower;
+    private final int[][] boosterPower;
+
+    RaceResult(RaceSpec spec, long[] phaseTicks, long[][] finishTicks, int[][] finishOrder, int[] acumPower,
+               int[][] boosterPower) {
+        this.spec = spec;
+        this.phaseTicks = phaseTicks;
+        this.finishTicks = finishTicks;
+        this.finishOrder = finishOrder;
+        this.acumPower = acumPower;
+        this.boosterPower = boosterPower;
+    }
+
+    /**
+     * @param spec, especificacion equivalente, con la misma clave en ResultCache
+     * @return el mismo resultado para otra especificacion, compartiendo los arrays
+     */
+    RaceResult withSpec(RaceSpec spec) {
+        return spec == this.spec ? this
+                : new RaceResult(spec, phaseTicks, finishTicks, finishOrder, acumPower, boosterPower);
+    }
+
+    /**
+     * @return especificacion de la carrera
+     */
+    public RaceSpec getSpec() {
+        return spec;
+    }
+
+    /**
+     * @param phase, indice de la fase
+     * @return numero de ticks de la fase
+     */
+    public long getPhaseTicks(int phase) {
+        return phaseTicks[phase];
+    }
+
+    /**
+     * @param phase, indice de la fase
+     * @param r, posicion del cohete en la carrera
+     * @return tick de la fase (desde 1) en el que el cohete alcanza la potencia objetivo, UNREACHED si no la alcanza
+     */
+    public long getFinishTick(int phase, int r) {
+        return finishTicks[phase][r];
+    }
+
+    /**
+     * @param phase, indice de la fase
+     * @return posiciones de los cohetes que alcanzan la potencia objetivo, por orden de llegada
+     */
+    public int[] getFinishOrder(int phase) {
+        return finishOrder[phase].clone();
+    }
+
+    /**
+     * @param phase, indice de la fase
+     * @return posicion del primer cohete en alcanzar la potencia objetivo, -1 si no llega ninguno
+     */
+    public int getWinner(int phase) {
+        return finishOrder[phase].length == 0 ? -1 : finishOrder[phase][0];
+    }
+
+    /**
+     * @return true si todos los cohetes alcanzan la potencia objetivo en todas las fases
+     */
+    public boolean isComplete() {
+        for (int[] order : finishOrder) {
+            if (order.length != spec.getRocketCount()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param r, posicion del cohete en la carrera
+     * @return potencia acumulada del cohete al terminar la carrera
+     */
+    public int getAcumPower(int r) {
+        return acumPower[r];
+    }
+
+    /**
+     * @param r, posicion del cohete en la carrera
+     * @return potencia de cada propulsor del cohete al terminar la carrera
+     */
+    public int[] getBoosterPower(int r) {
+        return boosterPower[r].clone();
+    }
+
+    long[] phaseTicks() {
+        return phaseTicks;
+    }
+
+    long[][] finishTicks() {
+        return finishTicks;
+    }
+
+    int[][] finishOrder() {
+        return finishOrder;
+    }
+
+    int[] acumPower() {
+        return acumPower;
+    }
+
+    int[][] boosterPower() {
+        return boosterPower;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("RaceResult{id=").append(spec.getId());
+        for (int p = 0; p < phaseTicks.length; p++) {
+            text.append(", ").append(spec.getState(p)).append(' ').append(spec.getGoal(p))
+                    .append(" ticks=").append(phaseTicks[p])
+                    .append(" order=").append(Arrays.toString(finishOrder[p]));
+        }
+        return text.append('}').toString();
+    }
+}
@@ -0,0 +1,147 @@
+package com.rockets.application.batch;
+
+import com.rockets.domain.Booster;
+import com.rockets.domain.Rocket;
+import com.rockets.domain.StateRace;
+
+import java.util.List;
+
+/**
+ * Clase de la capa Application
+ *
+ * Especificacion inmutable de una carrera para BatchRunner: identificador y potencia maxima de
+ * los propulsores de cada cohete, y la secuencia de fases (acelerar o frenar hasta una potencia
+ * objetivo). Los arrays no se copian, por lo que no han de modificarse tras crear la especificacion
+ */
+public class RaceSpec {
+    private final long id;
+    private final String[] rocketIds;
+    private final int[][] maxPower;
+    private final StateRace[] states;
+    private final int[] goals;
+    private final long phaseTickLimit;
+
+    /**
+     * @param id, identificador de la carrera, se devuelve en su RaceResult
+     * @param rocketIds, identificador de cada cohete
+     * @param maxPower, potencia maxima de cada propulsor de cada cohete
+     * @param states, estado de cada fase, FORWARD para acelerar o BACK para frenar
+     * @param goals, potencia objetivo de cada fase
+     */
+    public RaceSpec(long id, String[] rocketIds, int[][] maxPower, StateRace[] states, int[] goals) {
+        if (rocketIds.length != maxPower.length) {
+            throw new IllegalArgumentException("Ha de indicarse la potencia maxima de los propulsores de cada cohete");
+        }
+        if (states.length != goals.length) {
+            throw new IllegalArgumentException("Ha de indicarse la potencia objetivo de cada fase");
+        }
+        for (StateRace state : states) {
+            if (state != StateRace.FORWARD && state != StateRace.BACK) {
+                throw new IllegalArgumentException("Estado de fase no valido: " + state);
+            }
+        }
+        int limit = 0;
+        for (int[] boosters : maxPower) {
+            for (int power : boosters) {
+                if (power < 0) {
+                    throw new IllegalArgumentException("La potencia maxima no puede ser negativa");
+                }
+                limit = Math.max(limit, power);
+            }
+        }
+        this.id = id;
+        this.rocketIds = rocketIds;
+        this.maxPower = maxPower;
+        this.states = states;
+        this.goals = goals;
+        // ningun propulsor puede dar mas pasos que su potencia maxima: pasado ese tick ya no cambia nada
+        this.phaseTickLimit = limit + 1L;
+    }
+
+    /**
+     * Crea la especificacion de una carrera con los cohetes indicados, por ejemplo los del
+     * Controller, partiendo de sus propulsores a potencia 0
+     *
+     * @param id, identificador de la carrera
+     * @param rockets, listado de objetos de tipo Rocket de los que se toma la potencia maxima de sus propulsores
+     * @param states, estado de cada fase, FORWARD para acelerar o BACK para frenar
+     * @param goals, potencia objetivo de cada fase
+     * @return especificacion de la carrera
+     */
+    public static RaceSpec of(long id, List<Rocket> rockets, StateRace[] states, int[] goals) {
+        String[] rocketIds = new String[rockets.size()];
+        int[][] maxPower = new int[rockets.size()][];
+        for (int r = 0; r < rocketIds.length; r++) {
+            List<Booster> boosters = rockets.get(r).getBoosters();
+            rocketIds[r] = rockets.get(r).getId();
+            maxPower[r] = new int[boosters.size()];
+            for (int b = 0; b < maxPower[r].length; b++) {
+                maxPower[r][b] = boosters.get(b).getMaxPower();
+            }
+        }
+        return new RaceSpec(id, rocketIds, maxPower, states.clone(), goals.clone());
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int getRocketCount() {
+        return rocketIds.length;
+    }
+
+    /**
+     * @param r, posicion del cohete en la carrera
+     * @return identificador del cohete
+     */
+    public String getRocketId(int r) {
+        return rocketIds[r];
+    }
+
+    /**
+     * @param r, posicion del cohete en la carrera
+     * @return potencia maxima de cada propulsor del cohete, sin copiar
+     */
+    int[] getMaxPower(int r) {
+        return maxPower[r];
+    }
+
+    /**
+     * @return numero total de propulsores de la carrera
+     */
+    public int getBoosterCount() {
+        int count = 0;
+        for (int[] boosters : maxPower) {
+            count += boosters.length;
+        }
+        return count;
+    }
+
+    public int getPhaseCount() {
+        return states.length;
+    }
+
+    /**
+     * @param phase, indice de la fase
+     * @return FORWARD para acelerar, BACK para frenar
+     */
+    public StateRace getState(int phase) {
+        return states[phase];
+    }
+
+    /**
+     * @param phase, indice de la fase
+     * @return potencia objetivo de la fase
+     */
+    public int getGoal(int phase) {
+        return goals[phase];
+    }
+
+    /**
+     * @return numero maximo de ticks de una fase: pasado ese tick ningun propulsor cambia
+     * de potencia, y los cohetes que no han llegado ya no pueden llegar
+     */
+    public long getPhaseTickLimit() {
+        return phaseTickLimit;
+    }
+}
@@ -0,0 +1,387 @@
+package com.rockets.application.batch;
+
+import com.rockets.domain.StateRace;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Clase de la capa Application
+ *
+ * Cache acotada de resultados de carrera (RaceResult) para configuraciones que se repiten. La clave
+ * es la forma canonica de la especificacion: potencia maxima de cada propulsor de cada cohete y
+ * secuencia de fases (estado y potencia objetivo). No incluye el identificador de la carrera ni el
+ * de los cohetes, que no cambian el resultado, de modo que dos carreras con la misma configuracion
+ * comparten resultado aunque sus cohetes se llamen de otra forma
+ *
+ * Guarda como mucho maxEntries resultados y, al llenarse, descarta el usado hace mas tiempo (LRU).
+ * Lleva la cuenta de aciertos, fallos y descartes. Con save y load se guarda en un fichero local
+ * y se recupera tras reiniciar la aplicacion
+ */
+public class ResultCache {
+    /**
+     * Numero maximo de resultados por defecto
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private static final int MAGIC = 0x52435243;
+    private static final int VERSION = 1;
+
+    private final int maxEntries;
+    private final LinkedHashMap<Key, RaceResult> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public ResultCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param maxEntries, numero maximo de resultados que se guardan
+     */
+    public ResultCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries ha de ser mayor que 0");
+        }
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, RaceResult> eldest) {
+                if (size() > ResultCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param spec, especificacion de la carrera
+     * @return resultado de una carrera con la misma configuracion, para esta especificacion,
+     * vacio si no esta en la cache
+     */
+    public Optional<RaceResult> get(RaceSpec spec) {
+        Key key = new Key(spec);
+        RaceResult result;
+        synchronized (this) {
+            result = entries.get(key);
+            if (result == null) {
+                misses++;
+                return Optional.empty();
+            }
+            hits++;
+        }
+        return Optional.of(result.withSpec(spec));
+    }
+
+    /**
+     * @param result, resultado de una carrera, se guarda con la clave de su especificacion
+     */
+    public void put(RaceResult result) {
+        Key key = new Key(result.getSpec());
+        synchronized (this) {
+            entries.put(key, result);
+        }
+    }
+
+    /**
+     * Devuelve el resultado guardado o, si no esta, ejecuta la carrera y lo guarda. La carrera se
+     * ejecuta sin bloquear la cache, por lo que dos hilos con la misma configuracion pueden
+     * ejecutarla a la vez; el resultado es el mismo
+     *
+     * @param spec, especificacion de la carrera
+     * @param run, ejecuta la carrera si su resultado no esta en la cache
+     * @return resultado de la carrera
+     */
+    public RaceResult computeIfAbsent(RaceSpec spec, Function<RaceSpec, RaceResult> run) {
+        Key key = new Key(spec);
+        RaceResult result;
+        synchronized (this) {
+            result = entries.get(key);
+            if (result != null) {
+                hits++;
+                return result.withSpec(spec);
+            }
+            misses++;
+        }
+        result = run.apply(spec);
+        synchronized (this) {
+            entries.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * @return numero de resultados guardados
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * @return numero de consultas con el resultado en la cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return numero de consultas sin el resultado en la cache
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return numero de resultados descartados por estar la cache llena
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return proporcion de consultas con el resultado en la cache, 0 si no ha habido consultas
+     */
+    public synchronized double getHitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Vacia la cache y sus estadisticas
+     */
+    public synchronized void clear() {
+        entries.clear();
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ResultCache{size=" + entries.size() + "/" + maxEntries
+                + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + '}';
+    }
+
+    /**
+     * Guarda los resultados en un fichero, del usado hace mas tiempo al mas reciente, de modo que
+     * load recupera tambien el orden LRU. Se escribe en un fichero temporal que despues sustituye
+     * al anterior, para no dejar un fichero a medias si la aplicacion se detiene. La sustitucion es
+     * atomica si el sistema de ficheros lo permite; si falla, el fichero temporal se borra
+     *
+     * @param path, fichero en el que se guarda la cache
+     * @throws IOException si no se puede escribir el fichero
+     */
+    public void save(Path path) throws IOException {
+        List<Map.Entry<Key, RaceResult>> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(entries.entrySet());
+        }
+        Path parent = path.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<Key, RaceResult> entry : snapshot) {
+                    write(out, entry.getKey(), entry.getValue());
+                }
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                // el sistema de ficheros no permite sustituirlo de forma atomica
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Crea una cache con los resultados guardados con save. Si el fichero tiene mas de maxEntries
+     * resultados se conservan los mas recientes
+     *
+     * @param path, fichero de la cache, si no existe la cache se crea vacia
+     * @param maxEntries, numero maximo de resultados que se guardan
+     * @return cache con los resultados del fichero
+     * @throws IOException si no se puede leer el fichero o no tiene el formato esperado
+     */
+    public static ResultCache load(Path path, int maxEntries) throws IOException {
+        ResultCache cache = new ResultCache(maxEntries);
+        if (!Files.exists(path)) {
+            return cache;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("No es un fichero de ResultCache: " + path);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Version de ResultCache no soportada: " + version);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                cache.put(read(in));
+            }
+        }
+        cache.evictions = 0;
+        return cache;
+    }
+
+    private static void write(DataOutputStream out, Key key, RaceResult result) throws IOException {
+        out.writeInt(key.values.length);
+        for (int value : key.values) {
+            out.writeInt(value);
+        }
+        RaceSpec spec = result.getSpec();
+        int rockets = spec.getRocketCount();
+        for (int p = 0; p < spec.getPhaseCount(); p++) {
+            out.writeLong(result.phaseTicks()[p]);
+            for (int r = 0; r < rockets; r++) {
+                out.writeLong(result.finishTicks()[p][r]);
+            }
+            int[] order = result.finishOrder()[p];
+            out.writeInt(order.length);
+            for (int r : order) {
+                out.writeInt(r);
+            }
+        }
+        for (int r = 0; r < rockets; r++) {
+            out.writeInt(result.acumPower()[r]);
+            for (int power : result.boosterPower()[r]) {
+                out.writeInt(power);
+            }
+        }
+    }
+
+    private static RaceResult read(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 2) {
+            throw new IOException("Clave de ResultCache no valida");
+        }
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = in.readInt();
+        }
+        RaceSpec spec;
+        try {
+            spec = new Key(values).toSpec();
+        } catch (RuntimeException e) {
+            throw new IOException("Clave de ResultCache no valida", e);
+        }
+        int rockets = spec.getRocketCount();
+        int phases = spec.getPhaseCount();
+        long[] phaseTicks = new long[phases];
+        long[][] finishTicks = new long[phases][rockets];
+        int[][] finishOrder = new int[phases][];
+        for (int p = 0; p < phases; p++) {
+            phaseTicks[p] = in.readLong();
+            for (int r = 0; r < rockets; r++) {
+                finishTicks[p][r] = in.readLong();
+            }
+            finishOrder[p] = new int[in.readInt()];
+            for (int i = 0; i < finishOrder[p].length; i++) {
+                finishOrder[p][i] = in.readInt();
+            }
+        }
+        int[] acumPower = new int[rockets];
+        int[][] boosterPower = new int[rockets][];
+        for (int r = 0; r < rockets; r++) {
+            acumPower[r] = in.readInt();
+            boosterPower[r] = new int[spec.getMaxPower(r).length];
+            for (int b = 0; b < boosterPower[r].length; b++) {
+                boosterPower[r][b] = in.readInt();
+            }
+        }
+        return new RaceResult(spec, phaseTicks, finishTicks, finishOrder, acumPower, boosterPower);
+    }
+
+    /**
+     * Forma canonica de una especificacion: numero de cohetes, y por cada cohete su numero de
+     * propulsores y la potencia maxima de cada uno; numero de fases, y por cada fase su estado y su
+     * potencia objetivo
+     */
+    private static final class Key {
+        private final int[] values;
+        private final int hash;
+
+        Key(RaceSpec spec) {
+            int length = 2 + spec.getRocketCount() + spec.getBoosterCount() + 2 * spec.getPhaseCount();
+            int[] values = new int[length];
+            int i = 0;
+            values[i++] = spec.getRocketCount();
+            for (int r = 0; r < spec.getRocketCount(); r++) {
+                int[] maxPower = spec.getMaxPower(r);
+                values[i++] = maxPower.length;
+                for (int power : maxPower) {
+                    values[i++] = power;
+                }
+            }
+            values[i++] = spec.getPhaseCount();
+            for (int p = 0; p < spec.getPhaseCount(); p++) {
+                values[i++] = spec.getState(p).ordinal();
+                values[i++] = spec.getGoal(p);
+            }
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        Key(int[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        /**
+         * @return especificacion con esta forma canonica, con los cohetes identificados por su posicion
+         */
+        RaceSpec toSpec() {
+            int i = 0;
+            String[] rocketIds = new String[values[i++]];
+            int[][] maxPower = new int[rocketIds.length][];
+            for (int r = 0; r < rocketIds.length; r++) {
+                rocketIds[r] = Integer.toString(r);
+                maxPower[r] = Arrays.copyOfRange(values, i + 1, i + 1 + values[i]);
+                i += 1 + maxPower[r].length;
+            }
+            StateRace[] states = new StateRace[values[i++]];
+            int[] goals = new int[states.length];
+            for (int p = 0; p < states.length; p++) {
+                states[p] = StateRace.values()[values[i++]];
+                goals[p] = values[i++];
+            }
+            if (i != values.length) {
+                throw new IllegalArgumentException("Longitud de clave no valida");
+            }
+            return new RaceSpec(0, rocketIds, maxPower, states, goals);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && hash == ((Key) o).hash && Arrays.equals(values, ((Key) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
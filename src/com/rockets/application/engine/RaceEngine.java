@@ -0,0 +1,53 @@
+package com.rockets.application.engine;
+
+import com.rockets.domain.Rocket;
+
+import java.util.List;
+
+/**
+ * Interfaz de la capa Application
+ *
+ * Se utiliza para desacoplar el modo de ejecucion de la carrera de la clase Controller,
+ * de forma que el mismo conjunto de objetos Rocket y Booster pueda ejecutarse
+ * con un hilo por objeto o mediante un planificador que avanza la carrera tick a tick
+ */
+public interface RaceEngine {
+
+    /**
+     * Pone en marcha la ejecucion de la carrera para el listado de cohetes dado
+     *
+     * @param rockets, listado de objetos de tipo Rocket que participan en la carrera
+     */
+    void start(List<Rocket> rockets);
+
+    /**
+     * Notifica al modo de ejecucion que ha comenzado una nueva fase de la carrera
+     * (acelerar o frenar hasta una nueva potencia objetivo)
+     *
+     * @param rockets, listado de objetos de tipo Rocket que participan en la carrera
+     */
+    default void phaseChanged(List<Rocket> rockets) {
+    }
+
+    /**
+     * Notifica al modo de ejecucion que un solo cohete ha cambiado de potencia objetivo o de
+     * sentido, sin que cambie la fase del resto (ver Race.retarget)
+     *
+     * @param rocket, objeto de tipo Rocket que ha comenzado una fase propia
+     */
+    default void rocketChanged(Rocket rocket) {
+    }
+
+    /**
+     * Notifica al modo de ejecucion que un cohete se ha quitado de la carrera y ya no ha de ejecutarse
+     *
+     * @param rocket, objeto de tipo Rocket quitado de la carrera
+     */
+    default void rocketRemoved(Rocket rocket) {
+    }
+
+    /**
+     * Detiene la ejecucion de la carrera y libera los hilos utilizados
+     */
+    void shutdown();
+}
@@ -0,0 +1,162 @@
+package com.rockets.application.engine;
+
+import com.rockets.domain.Booster;
+import com.rockets.domain.Rocket;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Clase de la capa Application
+ *
+ * Modo de ejecucion original: cada objeto Rocket y cada objeto Booster se ejecuta
+ * de forma asincrona en su propio hilo del ExecutorService proporcionado
+ *
+ * El ExecutorService puede ser un pool de hilos de plataforma (newCachedThreadPool) o un
+ * ejecutor de hilos virtuales (newVirtualThreadPerTaskExecutor), disponible a partir de Java 21.
+ * El ejecutor de hilos virtuales se obtiene por reflexion para que el proyecto siga compilando
+ * con versiones anteriores de Java
+ *
+ * Los propulsores empujan sus variaciones de potencia al cohete y, entre fases o cuando ya no
+ * pueden avanzar, esperan sin consumir CPU a que empiece la fase siguiente; el hilo del cohete
+ * solo espera a ser interrumpido. Al cambiar de fase se vuelven a lanzar las tareas que hayan
+ * terminado de forma inesperada. Las tareas de un cohete quitado de la carrera terminan solas
+ */
+public class ThreadPoolEngine implements RaceEngine {
+    private ExecutorService exec;
+    private final Map<Runnable, CompletableFuture<Void>> tasks = new ConcurrentHashMap<>();
+
+    /**
+     * @param exec, ExecutorService en el que se ejecutaran los cohetes y sus propulsores
+     */
+    public ThreadPoolEngine(ExecutorService exec) {
+        this.exec = exec;
+    }
+
+    /**
+     * @return motor con un pool de hilos de plataforma que crea hilos bajo demanda
+     */
+    public static ThreadPoolEngine cachedThreadPool() {
+        return new ThreadPoolEngine(Executors.newCachedThreadPool());
+    }
+
+    /**
+     * @return motor que ejecuta cada Rocket y cada Booster en su propio hilo virtual
+     * @throws UnsupportedOperationException si la version de Java no dispone de hilos virtuales
+     */
+    public static ThreadPoolEngine virtualThreads() {
+        try {
+            return new ThreadPoolEngine((ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null));
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Hilos virtuales no disponibles en Java "
+                    + Runtime.version().feature(), e);
+        }
+    }
+
+    /**
+     * @return true si la version de Java en ejecucion dispone de hilos virtuales
+     */
+    public static boolean isVirtualThreadsAvailable() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return ExecutorService en el que se ejecutan los cohetes y sus propulsores
+     */
+    public ExecutorService getExec() {
+        return exec;
+    }
+
+    /**
+     * Ejecuta de forma asincrona cada Rocket y cada uno de sus Booster, identificados
+     * por implementar la interfaz Runnable
+     *
+     * @param rockets, listado de objetos de tipo Rocket que participan en la carrera
+     */
+    @Override
+    public void start(List<Rocket> rockets) {
+        for (Rocket rocket : rockets) {
+            launch(rocket);
+            for (Booster booster : rocket.getBoosters()) {
+                launch(booster);
+            }
+        }
+    }
+
+    /**
+     * Vuelve a lanzar las tareas de los cohetes y propulsores que hayan terminado, por ejemplo
+     * por una excepcion en el hilo de un propulsor, y lanza las de los cohetes añadidos a la
+     * carrera despues de start
+     *
+     * @param rockets, listado de objetos de tipo Rocket que participan en la carrera
+     */
+    @Override
+    public void phaseChanged(List<Rocket> rockets) {
+        if (tasks.isEmpty() || exec.isShutdown()) {
+            return;
+        }
+        for (Rocket rocket : rockets) {
+            relaunch(rocket);
+            for (Booster booster : rocket.getBoosters()) {
+                relaunch(booster);
+            }
+        }
+    }
+
+    /**
+     * Vuelve a lanzar las tareas del cohete y de sus propulsores que hayan terminado, o las lanza
+     * si el cohete se añadio a la carrera despues de start
+     *
+     * @param rocket, objeto de tipo Rocket que ha comenzado una fase propia
+     */
+    @Override
+    public void rocketChanged(Rocket rocket) {
+        if (tasks.isEmpty() || exec.isShutdown()) {
+            return;
+        }
+        relaunch(rocket);
+        for (Booster booster : rocket.getBoosters()) {
+            relaunch(booster);
+        }
+    }
+
+    /**
+     * Olvida las tareas del cohete y de sus propulsores, cuyos hilos terminan al quitar el cohete
+     * de la carrera (ver Rocket.detach)
+     *
+     * @param rocket, objeto de tipo Rocket quitado de la carrera
+     */
+    @Override
+    public void rocketRemoved(Rocket rocket) {
+        tasks.remove(rocket);
+        for (Booster booster : rocket.getBoosters()) {
+            tasks.remove(booster);
+        }
+    }
+
+    private void launch(Runnable task) {
+        tasks.put(task, CompletableFuture.runAsync(task, exec));
+    }
+
+    private void relaunch(Runnable task) {
+        CompletableFuture<Void> running = tasks.get(task);
+        if (running == null || running.isDone()) {
+            launch(task);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        exec.shutdownNow();
+    }
+}
@@ -0,0 +1,438 @@
+package com.rockets.application.engine;
+
+import com.rockets.domain.RaceClock;
+import com.rockets.domain.Rocket;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Clase de la capa Application
+ *
+ * Modo de ejecucion por ticks: un unico planificador avanza periodicamente todos los cohetes
+ * una unidad de tiempo discreta, llamando al metodo tick() de cada Rocket. Los propulsores
+ * no necesitan un hilo propio, por lo que el numero de hilos no depende del numero de Booster
+ *
+ * La duracion de cada tick la determina la interfaz RaceClock: con un reloj de tiempo real
+ * o acelerado los ticks se programan de forma periodica, con un reloj virtual se encadenan
+ * uno tras otro mientras algun cohete siga en carrera, y la ejecucion es reproducible
+ *
+ * Opcionalmente, cada tick puede repartirse entre un pequeño pool fijo de hilos,
+ * dividiendo el listado de cohetes en tantos bloques como hilos tenga el pool
+ *
+ * El planificador puede ser propio o compartido entre varias carreras (RaceSessionManager).
+ * Con un planificador compartido, shutdown() solo detiene los ticks de esta carrera, y con un
+ * reloj virtual los ticks se encadenan por tramos de SHARED_SLICE ticks, volviendo a la cola
+ * del planificador entre tramo y tramo para que una carrera larga no acapare un hilo
+ *
+ * Con una semilla (seed) cada cohete recorre sus propulsores en cada tick en el orden de una
+ * permutacion aleatoria, como ocurre con un hilo por propulsor, pero reproducible: cada cohete
+ * obtiene su propio SplittableRandom de la semilla segun el orden en que se incorpora a la carrera,
+ * lo conserva aunque cambie de posicion (al quitar cohetes o compactar la carrera) y solo lo
+ * consume en los ticks en los que esta en carrera, por lo que sus permutaciones no dependen del
+ * numero de hilos ni del resto de cohetes. Con un reloj virtual, la misma configuracion y la
+ * misma semilla dan siempre el mismo resultado y la misma huella de eventos (TraceDigest); con un
+ * solo hilo tambien el mismo registro de eventos, byte a byte
+ */
+public class TickEngine implements RaceEngine {
+    private ScheduledExecutorService scheduler;
+    private ExecutorService workers;
+    private RaceClock clock;
+    private int parallelism;
+    private volatile List<Rocket> rockets;
+    private final AtomicBoolean looping = new AtomicBoolean();
+    private final AtomicInteger requested = new AtomicInteger();
+    private int served;
+    private List<Rocket> ticking = List.of();
+    private boolean[] active = new boolean[0];
+    private int racing;
+    private boolean ownsScheduler = true;
+    private int slice = Integer.MAX_VALUE;
+    private volatile ScheduledFuture<?> periodic;
+    private volatile boolean stopped;
+    private boolean seeded;
+    private long seed;
+    private SplittableRandom root;
+    private Map<Rocket, Shuffle> shuffles = new IdentityHashMap<>();
+    private List<Rocket> prepared;
+    private Shuffle[] byIndex = new Shuffle[0];
+
+    /**
+     * Numero de ticks que encadena seguidos una carrera con un reloj virtual
+     * sobre un planificador compartido
+     */
+    public static final int SHARED_SLICE = 64;
+
+    /**
+     * Crea un motor de un solo hilo que avanza la carrera cada tickMillis milisegundos
+     *
+     * @param tickMillis, periodo entre ticks en milisegundos
+     */
+    public TickEngine(long tickMillis) {
+        this(RaceClock.realTime(tickMillis), 1);
+    }
+
+    /**
+     * @param clock, interfaz RaceClock que determina la duracion de cada tick
+     * @param parallelism, numero de hilos entre los que se reparten los cohetes en cada tick
+     */
+    public TickEngine(RaceClock clock, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism ha de ser mayor que 0");
+        }
+        this.clock = clock;
+        this.parallelism = parallelism;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        if (parallelism > 1) {
+            this.workers = Executors.newFixedThreadPool(parallelism);
+        }
+    }
+
+    /**
+     * Crea un motor determinista: en cada tick, cada cohete recorre sus propulsores en el orden
+     * de una permutacion obtenida de la semilla
+     *
+     * @param clock, interfaz RaceClock que determina la duracion de cada tick, virtual para que
+     * la ejecucion sea reproducible
+     * @param parallelism, numero de hilos entre los que se reparten los cohetes en cada tick
+     * @param seed, semilla de las permutaciones
+     */
+    public TickEngine(RaceClock clock, int parallelism, long seed) {
+        this(clock, parallelism);
+        this.seeded = true;
+        this.seed = seed;
+        this.root = new SplittableRandom(seed);
+    }
+
+    /**
+     * Crea un motor que programa sus ticks en un planificador compartido con otras carreras,
+     * que no se detiene al llamar a shutdown()
+     *
+     * @param clock, interfaz RaceClock que determina la duracion de cada tick
+     * @param scheduler, planificador compartido
+     */
+    public TickEngine(RaceClock clock, ScheduledExecutorService scheduler) {
+        this.clock = clock;
+        this.parallelism = 1;
+        this.scheduler = scheduler;
+        this.ownsScheduler = false;
+        this.slice = SHARED_SLICE;
+    }
+
+    /**
+     * @return interfaz RaceClock que determina la duracion de cada tick
+     */
+    public RaceClock getClock() {
+        return clock;
+    }
+
+    /**
+     * @return true si el orden de los propulsores en cada tick se obtiene de una semilla
+     */
+    public boolean isSeeded() {
+        return seeded;
+    }
+
+    /**
+     * @return semilla de las permutaciones, 0 si el motor no usa semilla
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Programa la ejecucion de los ticks sobre el listado de cohetes
+     *
+     * @param rockets, listado de objetos de tipo Rocket que participan en la carrera
+     */
+    @Override
+    public void start(List<Rocket> rockets) {
+        this.rockets = rockets;
+        rockets.forEach(c -> c.setClock(clock));
+        if (seeded) {
+            root = new SplittableRandom(seed);
+            shuffles = new IdentityHashMap<>();
+            prepared = null;
+            prepareOrders(rockets);
+        }
+        if (clock.isVirtual()) {
+            requested.incrementAndGet();
+            loop();
+        } else {
+            periodic = scheduler.scheduleAtFixedRate(this::safeTick,
+                    clock.getTickNanos(), clock.getTickNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Toma el listado de cohetes de la fase nueva, con los añadidos o quitados desde la anterior,
+     * y con un reloj virtual reanuda el encadenamiento de ticks detenido al terminar la fase anterior
+     *
+     * @param rockets, listado de objetos de tipo Rocket que participan en la carrera
+     */
+    @Override
+    public void phaseChanged(List<Rocket> rockets) {
+        if (this.rockets != null) {
+            this.rockets = rockets;
+            if (clock.isVirtual()) {
+                requested.incrementAndGet();
+                loop();
+            }
+        }
+    }
+
+    /**
+     * Con un reloj virtual, vuelve a tomar los cohetes en carrera para incluir el que ha cambiado
+     * de potencia objetivo, y reanuda el encadenamiento de ticks si estaba detenido
+     *
+     * @param rocket, objeto de tipo Rocket que ha comenzado una fase propia
+     */
+    @Override
+    public void rocketChanged(Rocket rocket) {
+        if (this.rockets != null && clock.isVirtual()) {
+            requested.incrementAndGet();
+            loop();
+        }
+    }
+
+    /**
+     * Encadena ticks en el hilo del planificador mientras algun cohete de la fase siga en carrera,
+     * como mucho slice ticks seguidos. Al terminar la fase el hilo queda libre hasta la siguiente
+     * llamada a phaseChanged
+     *
+     * Los cohetes en carrera se toman al empezar cada fase, cuando ya han empezado todos, y cada
+     * tick solo avanza los que siguen en carrera en esa fase. Si una fase empieza con la anterior
+     * aun en curso, se vuelven a tomar antes del tick siguiente. El reloj avanza antes de cada tick y
+     * no despues del ultimo, de modo que la fase siguiente empieza siempre en el tick en el que
+     * llego el ultimo cohete, aunque se pida desde otro hilo mientras este aun no ha terminado
+     */
+    private void loop() {
+        if (stopped || !looping.compareAndSet(false, true)) {
+            return;
+        }
+        scheduler.execute(() -> {
+            try {
+                for (int i = 0; i < slice && !stopped && !Thread.currentThread().isInterrupted(); i++) {
+                    if (served != requested.get()) {
+                        served = requested.get();
+                        snapshot();
+                    }
+                    if (racing == 0) {
+                        break;
+                    }
+                    clock.sleep(1);
+                    advance();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RejectedExecutionException e) {
+                // shutdown() ha detenido el pool de hilos con el tick en curso
+                if (!stopped) {
+                    e.printStackTrace();
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            } finally {
+                looping.set(false);
+            }
+            if (!stopped && (racing > 0 || served != requested.get()) && !Thread.currentThread().isInterrupted()) {
+                loop();
+            }
+        });
+    }
+
+    /**
+     * Toma los cohetes en carrera al empezar la fase
+     */
+    private void snapshot() {
+        List<Rocket> rockets = this.rockets;
+        this.ticking = rockets;
+        if (seeded) {
+            prepareOrders(rockets);
+        }
+        boolean[] active = new boolean[rockets.size()];
+        int count = 0;
+        for (int i = 0; i < active.length; i++) {
+            active[i] = rockets.get(i).isRacing();
+            count += active[i] ? 1 : 0;
+        }
+        this.active = active;
+        this.racing = count;
+    }
+
+    /**
+     * Avanza un tick los cohetes que siguen en carrera en la fase. Si el cohete sigue en carrera se
+     * comprueba con su monitor, el mismo con el que empieza una fase, para que un cohete que acaba
+     * de llegar no se confunda con uno que ya ha empezado la fase siguiente
+     */
+    private void advance() throws InterruptedException {
+        boolean[] active = this.active;
+        forEach(ticking, (i, rocket) -> {
+            if (active[i]) {
+                synchronized (rocket) {
+                    tick(i, rocket);
+                    active[i] = rocket.isRacing();
+                }
+            }
+        });
+        int count = 0;
+        for (boolean a : active) {
+            count += a ? 1 : 0;
+        }
+        this.racing = count;
+    }
+
+    private void safeTick() {
+        try {
+            tick(rockets);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Avanza una unidad de tiempo todos los cohetes. Los cohetes son independientes entre si,
+     * por lo que pueden avanzarse en paralelo; el tick termina cuando todos han avanzado
+     *
+     * @param rockets, listado de objetos de tipo Rocket que participan en la carrera
+     * @throws InterruptedException si el hilo es interrumpido mientras espera a los bloques
+     */
+    public void tick(List<Rocket> rockets) throws InterruptedException {
+        if (seeded) {
+            prepareOrders(rockets);
+        }
+        forEach(rockets, this::tick);
+    }
+
+    /**
+     * Aplica la accion a cada cohete, repartiendo el listado en bloques entre los hilos del pool
+     *
+     * @param rockets, listado de objetos de tipo Rocket
+     * @param action, accion que recibe la posicion del cohete en el listado y el cohete
+     * @throws InterruptedException si el hilo es interrumpido mientras espera a los bloques
+     */
+    private void forEach(List<Rocket> rockets, BiConsumer<Integer, Rocket> action) throws InterruptedException {
+        if (workers == null || rockets.size() < 2) {
+            for (int i = 0; i < rockets.size(); i++) {
+                action.accept(i, rockets.get(i));
+            }
+            return;
+        }
+        int chunk = (rockets.size() + parallelism - 1) / parallelism;
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int from = 0; from < rockets.size(); from += chunk) {
+            int start = from;
+            int end = Math.min(from + chunk, rockets.size());
+            tasks.add(() -> {
+                for (int i = start; i < end; i++) {
+                    action.accept(i, rockets.get(i));
+                }
+                return null;
+            });
+        }
+        workers.invokeAll(tasks);
+    }
+
+    /**
+     * Avanza un cohete un tick, con una permutacion nueva de sus propulsores si el motor usa semilla
+     *
+     * @param index, posicion del cohete en el listado
+     * @param rocket, objeto de tipo Rocket
+     */
+    private void tick(int index, Rocket rocket) {
+        if (!seeded) {
+            rocket.tick();
+            return;
+        }
+        if (!rocket.isRacing()) {
+            return;
+        }
+        Shuffle shuffle = byIndex[index];
+        int[] order = shuffle.order;
+        if (order.length != rocket.getBoosters().size()) {
+            order = shuffle.order = identity(rocket.getBoosters().size());
+        }
+        SplittableRandom random = shuffle.random;
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        rocket.tick(order);
+    }
+
+    /**
+     * Asigna a cada posicion del listado el generador y la permutacion de su cohete si el listado
+     * ha cambiado. Los cohetes ya conocidos conservan los suyos aunque cambien de posicion y cada
+     * cohete nuevo obtiene de la semilla un SplittableRandom, en el orden en que aparece por primera
+     * vez, de forma que el generador de cada cohete solo depende de la semilla y de su orden de
+     * incorporacion. Los cohetes quitados de la carrera se olvidan
+     *
+     * @param rockets, listado de objetos de tipo Rocket que participan en la carrera
+     */
+    private void prepareOrders(List<Rocket> rockets) {
+        if (rockets == prepared) {
+            return;
+        }
+        Map<Rocket, Shuffle> known = new IdentityHashMap<>(rockets.size() * 2);
+        Shuffle[] byIndex = new Shuffle[rockets.size()];
+        for (int i = 0; i < byIndex.length; i++) {
+            Rocket rocket = rockets.get(i);
+            Shuffle shuffle = shuffles.get(rocket);
+            if (shuffle == null) {
+                shuffle = new Shuffle(root.split(), identity(rocket.getBoosters().size()));
+            }
+            known.put(rocket, shuffle);
+            byIndex[i] = shuffle;
+        }
+        this.shuffles = known;
+        this.byIndex = byIndex;
+        this.prepared = rockets;
+    }
+
+    /**
+     * Generador de un cohete y ultima permutacion de sus propulsores, que se baraja de nuevo en cada tick
+     */
+    private static final class Shuffle {
+        private final SplittableRandom random;
+        private int[] order;
+
+        Shuffle(SplittableRandom random, int[] order) {
+            this.random = random;
+            this.order = order;
+        }
+    }
+
+    private static int[] identity(int size) {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        return order;
+    }
+
+    @Override
+    public void shutdown() {
+        stopped = true;
+        if (periodic != null) {
+            periodic.cancel(false);
+        }
+        if (!ownsScheduler) {
+            return;
+        }
+        scheduler.shutdownNow();
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+}
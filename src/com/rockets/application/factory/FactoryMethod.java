@@ -15,6 +15,15 @@ public interface FactoryMethod {
 
     Rocket create(String id, int numberOfBoosters);
 
+    /**
+     * Devuelve a la factoria un cohete que ya no participa en ninguna carrera, para que pueda
+     * reutilizarlo. Por defecto no hace nada y el cohete queda para el recolector de basura
+     *
+     * @param rocket, objeto de tipo Rocket que ya no esta en ejecucion
+     */
+    default void release(Rocket rocket) {
+    }
+
     /**
      * Metodo static implementado en la interfaz, accesible directamente desde la interfaz.
      * Al ser static, el método es inicializado y esta disponible cuando se carga
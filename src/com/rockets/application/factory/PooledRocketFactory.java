@@ -0,0 +1,110 @@
+package com.rockets.application.factory;
+
+import com.rockets.domain.Rocket;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Clase de la capa Application
+ *
+ * Implementa la interfaz FactoryMethod reutilizando los objetos de tipo Rocket, y con ellos sus
+ * Booster, entre carreras. Los cohetes devueltos con release() se guardan en un pool por numero
+ * de propulsores; create() toma uno de ese pool y lo reinicia con Rocket.reset(id), y solo crea
+ * un cohete nuevo si el pool esta vacio. Junto con Rocket.addBoosterMaxPower(int...) sobre un
+ * int[] ya creado, una carrera que reutiliza cohetes no reserva memoria para ellos
+ *
+ * Cada pool guarda como mucho maxIdle cohetes, los que sobran quedan para el recolector de basura
+ */
+public class PooledRocketFactory implements FactoryMethod {
+    /**
+     * Numero maximo de cohetes por defecto que se guardan en cada pool
+     */
+    public static final int DEFAULT_MAX_IDLE = 1024;
+
+    private final int maxIdle;
+    private ArrayDeque<Rocket>[] pools;
+    private long created;
+    private long reused;
+
+    public PooledRocketFactory() {
+        this(DEFAULT_MAX_IDLE);
+    }
+
+    /**
+     * @param maxIdle, numero maximo de cohetes que se guardan en el pool de cada numero de propulsores
+     */
+    @SuppressWarnings("unchecked")
+    public PooledRocketFactory(int maxIdle) {
+        if (maxIdle < 0) {
+            throw new IllegalArgumentException("maxIdle no puede ser negativo");
+        }
+        this.maxIdle = maxIdle;
+        this.pools = (ArrayDeque<Rocket>[]) new ArrayDeque<?>[16];
+    }
+
+    /**
+     * Toma del pool un cohete con el numero de propulsores indicado y lo reinicia,
+     * o crea uno nuevo si no hay ninguno
+     *
+     * @param id, identificador del cohete
+     * @param numberOfBoosters, numero de propulsores
+     * @return objeto de tipo Rocket
+     */
+    @Override
+    public synchronized Rocket create(String id, int numberOfBoosters) {
+        ArrayDeque<Rocket> pool = numberOfBoosters < pools.length ? pools[numberOfBoosters] : null;
+        Rocket rocket = pool == null ? null : pool.pollLast();
+        if (rocket == null) {
+            created++;
+            return new Rocket(id, numberOfBoosters);
+        }
+        reused++;
+        rocket.reset(id);
+        return rocket;
+    }
+
+    /**
+     * Guarda el cohete en el pool de su numero de propulsores
+     *
+     * @param rocket, objeto de tipo Rocket que ya no esta en ejecucion
+     */
+    @Override
+    public synchronized void release(Rocket rocket) {
+        int size = rocket.getNumberOfBoosters();
+        if (size >= pools.length) {
+            pools = Arrays.copyOf(pools, Math.max(size + 1, pools.length * 2));
+        }
+        if (pools[size] == null) {
+            pools[size] = new ArrayDeque<>();
+        }
+        if (pools[size].size() < maxIdle) {
+            pools[size].addLast(rocket);
+        }
+    }
+
+    /**
+     * @return numero de cohetes creados porque el pool estaba vacio
+     */
+    public synchronized long getCreated() {
+        return created;
+    }
+
+    /**
+     * @return numero de cohetes tomados del pool
+     */
+    public synchronized long getReused() {
+        return reused;
+    }
+
+    /**
+     * @return numero de cohetes guardados en los pools
+     */
+    public synchronized int getIdle() {
+        int idle = 0;
+        for (ArrayDeque<Rocket> pool : pools) {
+            idle += pool == null ? 0 : pool.size();
+        }
+        return idle;
+    }
+}
@@ -0,0 +1,283 @@
+package com.rockets.application.record;
+
+import com.rockets.domain.Booster;
+import com.rockets.domain.Rocket;
+import com.rockets.domain.event.EventSink;
+import com.rockets.domain.event.RaceEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static com.rockets.application.record.TraceFormat.*;
+
+/**
+ * Clase de la capa Application
+ *
+ * Graba la traza completa de potencias de una carrera en un fichero binario. Es un EventSink:
+ * se añade a un RaceEventLog sin perdidas (lossless) y escribe, por cada cambio de potencia de un
+ * propulsor, cambio de fase, llegada o fallo de un cohete, un registro de longitud fija (ver TraceFormat)
+ *
+ * Los registros se escriben en una region del fichero proyectada en memoria con FileChannel.map,
+ * que se amplia proyectando la region siguiente cuando se llena. Al cerrar, el fichero se recorta
+ * a su longitud real
+ *
+ * Mantiene ademas una copia del estado de la carrera y, cada cierto numero de ticks, escribe una
+ * instantanea en el fichero de indice, de forma que RaceReplayer pueda reconstruir el estado en
+ * cualquier tick sin recorrer toda la traza
+ *
+ * Los registros se graban en el orden de secuencia del registro de eventos y con ticks que no
+ * decrecen: dos hilos pueden leer el reloj y reservar su secuencia en distinto orden, y en ese caso
+ * el evento que llega despues se graba con el tick del ultimo registro, el primero en el que ya se
+ * habian aplicado ambos
+ *
+ * El listado de cohetes ha de ser el de la carrera, en el mismo orden, y ha de estar completo al
+ * crear el grabador
+ */
+public class RaceRecorder implements EventSink {
+    /**
+     * Numero de ticks entre instantaneas por defecto
+     */
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 1024;
+
+    private static final int REGION_RECORDS = 64 * 1024;
+
+    private final FileChannel channel;
+    private final FileChannel index;
+    private final int headerLength;
+    private final int[] offsets;
+    private final int[] powers;
+    private final int[] goals;
+    private final byte[] states;
+    private final ByteBuffer snapshot;
+    private final long snapshotInterval;
+    private MappedByteBuffer region;
+    private long regionStart;
+    private long records;
+    private long lastTick = Long.MIN_VALUE;
+    private long nextSnapshotTick = Long.MIN_VALUE;
+    private boolean closed;
+
+    /**
+     * @param path, ruta del fichero de trazas, se crea o se sobreescribe. El indice se escribe en
+     *              la misma ruta con la extension TraceFormat.INDEX_SUFFIX
+     * @param rockets, listado de cohetes de la carrera, en orden
+     * @throws IOException si no se pueden abrir los ficheros
+     */
+    public RaceRecorder(Path path, List<Rocket> rockets) throws IOException {
+        this(path, rockets, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * @param path, ruta del fichero de trazas, se crea o se sobreescribe
+     * @param rockets, listado de cohetes de la carrera, en orden
+     * @param snapshotInterval, numero de ticks entre instantaneas
+     * @throws IOException si no se pueden abrir los ficheros
+     */
+    public RaceRecorder(Path path, List<Rocket> rockets, int snapshotInterval) throws IOException {
+        if (snapshotInterval <= 0) {
+            throw new IllegalArgumentException("Intervalo de instantaneas no valido: " + snapshotInterval);
+        }
+        this.snapshotInterval = snapshotInterval;
+        this.offsets = new int[rockets.size() + 1];
+        for (int r = 0; r < rockets.size(); r++) {
+            offsets[r + 1] = offsets[r] + rockets.get(r).getNumberOfBoosters();
+        }
+        int boosters = offsets[rockets.size()];
+        this.powers = new int[boosters];
+        this.goals = new int[rockets.size()];
+        this.states = new byte[boosters];
+        this.snapshot = ByteBuffer.allocate(snapshotSize(boosters, rockets.size()));
+
+        byte[] header = header(rockets);
+        this.headerLength = header.length;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.index = FileChannel.open(indexPath(path), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        channel.write(ByteBuffer.wrap(header), 0);
+        this.regionStart = headerLength;
+        this.region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, (long) REGION_RECORDS * RECORD_SIZE);
+
+        for (int r = 0; r < rockets.size(); r++) {
+            Rocket rocket = rockets.get(r);
+            goals[r] = rocket.getGoalPower();
+            for (Booster booster : rocket.getBoosters()) {
+                powers[offsets[r] + booster.getIndex()] = booster.getCurrentPower();
+                states[offsets[r] + booster.getIndex()] = encode(booster.getState());
+            }
+        }
+        writeSnapshot();
+    }
+
+    /**
+     * @param path, ruta del fichero de trazas
+     * @return ruta del fichero de indice de instantaneas
+     */
+    public static Path indexPath(Path path) {
+        return Paths.get(path.toString() + INDEX_SUFFIX);
+    }
+
+    private static byte[] header(List<Rocket> rockets) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(0);
+        out.writeLong(0);
+        out.writeInt(rockets.size());
+        for (Rocket rocket : rockets) {
+            out.writeUTF(rocket.getId());
+            out.writeInt(rocket.getNumberOfBoosters());
+            for (Booster booster : rocket.getBoosters()) {
+                out.writeInt(booster.getMaxPower());
+            }
+        }
+        out.flush();
+        byte[] header = bytes.toByteArray();
+        ByteBuffer.wrap(header).putInt(8, header.length);
+        return header;
+    }
+
+    @Override
+    public void onEvent(RaceEvent event) {
+        byte type;
+        switch (event.getType()) {
+            case BOOSTER_POWER:
+                type = RECORD_POWER;
+                break;
+            case PHASE_CHANGED:
+                type = RECORD_PHASE;
+                break;
+            case GOAL_REACHED:
+                type = RECORD_GOAL;
+                break;
+            case GOAL_UNREACHABLE:
+                type = RECORD_FAILED;
+                break;
+            default:
+                return;
+        }
+        int rocket = event.getRocketIndex();
+        if (closed || rocket < 0 || rocket >= goals.length) {
+            return;
+        }
+        long tick = Math.max(event.getTick(), lastTick);
+        if (tick >= nextSnapshotTick) {
+            if (records > 0) {
+                writeSnapshot();
+            }
+            nextSnapshotTick = tick + snapshotInterval;
+        }
+        if (!region.hasRemaining()) {
+            regionStart += region.capacity();
+            region = map(regionStart);
+        }
+        byte state = encode(event.getState());
+        region.putLong(tick)
+                .putInt(rocket)
+                .putInt(event.getBoosterIndex())
+                .putInt(event.getPower())
+                .put(state)
+                .put(type)
+                .putShort((short) 0);
+        apply(type, rocket, event.getBoosterIndex(), event.getPower(), state);
+        records++;
+        lastTick = tick;
+    }
+
+    private void apply(byte type, int rocket, int booster, int power, byte state) {
+        int from = offsets[rocket];
+        int to = offsets[rocket + 1];
+        if (type == RECORD_POWER) {
+            powers[from + booster] = power;
+            states[from + booster] = state;
+        } else {
+            if (type == RECORD_PHASE) {
+                goals[rocket] = power;
+            }
+            for (int b = from; b < to; b++) {
+                states[b] = state;
+            }
+        }
+    }
+
+    private MappedByteBuffer map(long position) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE, position, (long) REGION_RECORDS * RECORD_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeSnapshot() {
+        snapshot.clear();
+        snapshot.putLong(lastTick).putLong(records);
+        for (int power : powers) {
+            snapshot.putInt(power);
+        }
+        for (int goal : goals) {
+            snapshot.putInt(goal);
+        }
+        snapshot.put(states);
+        snapshot.flip();
+        try {
+            while (snapshot.hasRemaining()) {
+                index.write(snapshot);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return numero de registros grabados
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * Actualiza en la cabecera el numero de registros grabados, de forma que un RaceReplayer
+     * pueda leer la traza mientras se sigue grabando
+     */
+    @Override
+    public void flush() {
+        if (closed) {
+            return;
+        }
+        try {
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, records), COUNT_OFFSET);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Vuelca la region proyectada, recorta el fichero a su longitud real y cierra los ficheros
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        flush();
+        closed = true;
+        try {
+            region.force();
+            channel.truncate(headerLength + records * RECORD_SIZE);
+            channel.close();
+            index.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.rockets.application.record;
+
+import com.rockets.application.factory.FactoryMethod;
+import com.rockets.application.factory.RocketFactory;
+import com.rockets.domain.Booster;
+import com.rockets.domain.Rocket;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.rockets.application.record.TraceFormat.*;
+
+/**
+ * Clase de la capa Application
+ *
+ * Reconstruye el estado de una carrera grabada por RaceRecorder en cualquier tick, sin volver a
+ * ejecutar la simulacion: busca en el indice (busqueda binaria) la ultima instantanea anterior al
+ * tick, parte de su estado y aplica los registros de la traza hasta el tick pedido
+ *
+ * La traza se lee proyectada en memoria, en segmentos de solo lectura. Los ticks de los registros
+ * y de las instantaneas no decrecen, RaceRecorder lo garantiza aunque los eventos se publiquen con
+ * ticks desordenados
+ */
+public class RaceReplayer implements AutoCloseable {
+    private static final int SEGMENT_RECORDS = 1 << 24;
+
+    private final FileChannel channel;
+    private final FileChannel index;
+    private final int headerLength;
+    private final long records;
+    private final List<String> ids = new ArrayList<>();
+    private final int[] offsets;
+    private final int[] maxPowers;
+    private final int snapshotSize;
+    private final long snapshots;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private FactoryMethod factory = new RocketFactory();
+
+    /**
+     * @param path, ruta del fichero de trazas grabado por RaceRecorder
+     * @throws IOException si no se pueden leer los ficheros o el formato no es valido
+     */
+    public RaceReplayer(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        ByteBuffer prefix = ByteBuffer.allocate(Integer.BYTES * 3 + Long.BYTES);
+        readFully(channel, prefix, 0);
+        if (prefix.getInt(0) != MAGIC || prefix.getInt(4) != VERSION) {
+            channel.close();
+            throw new IOException("Fichero de trazas no valido: " + path);
+        }
+        this.headerLength = prefix.getInt(8);
+        this.records = prefix.getLong((int) COUNT_OFFSET);
+
+        ByteBuffer header = ByteBuffer.allocate(headerLength);
+        readFully(channel, header, 0);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(header.array(), prefix.capacity(),
+                headerLength - prefix.capacity()));
+        int rockets = in.readInt();
+        this.offsets = new int[rockets + 1];
+        List<Integer> max = new ArrayList<>();
+        for (int r = 0; r < rockets; r++) {
+            ids.add(in.readUTF());
+            int boosters = in.readInt();
+            offsets[r + 1] = offsets[r] + boosters;
+            for (int b = 0; b < boosters; b++) {
+                max.add(in.readInt());
+            }
+        }
+        this.maxPowers = max.stream().mapToInt(Integer::intValue).toArray();
+
+        this.index = FileChannel.open(RaceRecorder.indexPath(path), StandardOpenOption.READ);
+        this.snapshotSize = snapshotSize(maxPowers.length, rockets);
+        this.snapshots = index.size() / snapshotSize;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Fin de fichero inesperado");
+            }
+        }
+    }
+
+    /**
+     * @param factory, interfaz FactoryMethod con la que se crean los cohetes reconstruidos
+     */
+    public void setFactory(FactoryMethod factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * @return numero de registros de la traza
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * @return identificadores de los cohetes grabados, en el orden de la carrera
+     */
+    public List<String> getRocketIds() {
+        return Collections.unmodifiableList(ids);
+    }
+
+    /**
+     * @return tick del ultimo registro de la traza, Long.MIN_VALUE si la traza esta vacia
+     */
+    public long getLastTick() {
+        return records == 0 ? Long.MIN_VALUE : segment(records - 1).getLong(position(records - 1));
+    }
+
+    /**
+     * Reconstruye el estado de la carrera al final del tick indicado: potencia actual y estado de
+     * cada propulsor y potencia objetivo de cada cohete
+     *
+     * @param tick, tick de la carrera
+     * @return listado de objetos de tipo Rocket, nuevos y sin carrera asociada, con el estado reconstruido
+     */
+    public List<Rocket> stateAt(long tick) {
+        int rockets = ids.size();
+        int[] powers = new int[maxPowers.length];
+        int[] goals = new int[rockets];
+        byte[] states = new byte[maxPowers.length];
+
+        ByteBuffer snapshot = ByteBuffer.allocate(snapshotSize);
+        readSnapshot(findSnapshot(tick), snapshot);
+        long from = snapshot.getLong(Long.BYTES);
+        snapshot.position(Long.BYTES * 2);
+        for (int b = 0; b < powers.length; b++) {
+            powers[b] = snapshot.getInt();
+        }
+        for (int r = 0; r < rockets; r++) {
+            goals[r] = snapshot.getInt();
+        }
+        snapshot.get(states);
+
+        for (long i = from; i < records; i++) {
+            ByteBuffer segment = segment(i);
+            int p = position(i);
+            if (segment.getLong(p) > tick) {
+                break;
+            }
+            int rocket = segment.getInt(p + 8);
+            int booster = segment.getInt(p + 12);
+            int power = segment.getInt(p + 16);
+            byte state = segment.get(p + 20);
+            byte type = segment.get(p + 21);
+            if (type == RECORD_POWER) {
+                powers[offsets[rocket] + booster] = power;
+                states[offsets[rocket] + booster] = state;
+            } else {
+                if (type == RECORD_PHASE) {
+                    goals[rocket] = power;
+                }
+                for (int b = offsets[rocket]; b < offsets[rocket + 1]; b++) {
+                    states[b] = state;
+                }
+            }
+        }
+
+        List<Rocket> result = new ArrayList<>(rockets);
+        for (int r = 0; r < rockets; r++) {
+            Rocket rocket = factory.create(ids.get(r), offsets[r + 1] - offsets[r]);
+            rocket.setGoalPower(goals[r]);
+            for (Booster booster : rocket.getBoosters()) {
+                int b = offsets[r] + booster.getIndex();
+                if (maxPowers[b] != Booster.NO_MAX_POWER) {
+                    booster.setMaxPower(maxPowers[b]);
+                }
+                booster.setCurrentPower(powers[b]);
+                booster.setState(decode(states[b]));
+            }
+            result.add(rocket);
+        }
+        return result;
+    }
+
+    /**
+     * @return posicion de la ultima instantanea cuyo tick es menor o igual que el tick indicado
+     */
+    private long findSnapshot(long tick) {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        long low = 0;
+        long high = snapshots - 1;
+        while (low < high) {
+            long mid = (low + high + 1) >>> 1;
+            buffer.clear();
+            read(index, buffer, mid * snapshotSize);
+            if (buffer.getLong(0) <= tick) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private void readSnapshot(long position, ByteBuffer snapshot) {
+        read(index, snapshot, position * snapshotSize);
+    }
+
+    private static void read(FileChannel channel, ByteBuffer buffer, long position) {
+        try {
+            readFully(channel, buffer, position);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return segmento proyectado que contiene el registro indicado
+     */
+    private ByteBuffer segment(long record) {
+        int segment = (int) (record / SEGMENT_RECORDS);
+        while (segments.size() <= segment) {
+            long first = (long) segments.size() * SEGMENT_RECORDS;
+            long length = Math.min(SEGMENT_RECORDS, records - first) * RECORD_SIZE;
+            try {
+                segments.add(channel.map(FileChannel.MapMode.READ_ONLY, headerLength + first * RECORD_SIZE, length));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return segments.get(segment);
+    }
+
+    /**
+     * @return posicion del registro indicado dentro de su segmento
+     */
+    private static int position(long record) {
+        return (int) (record % SEGMENT_RECORDS) * RECORD_SIZE;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        index.close();
+    }
+}
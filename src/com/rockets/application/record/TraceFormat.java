@@ -0,0 +1,55 @@
+package com.rockets.application.record;
+
+import com.rockets.domain.StateRace;
+
+/**
+ * Clase de la capa Application
+ *
+ * Constantes del formato binario de las trazas de carrera, compartidas por RaceRecorder y RaceReplayer
+ *
+ * Fichero de trazas:
+ * - cabecera: magic, version, longitud de la cabecera, numero de registros, numero de cohetes y,
+ *   por cohete, su identificador, su numero de propulsores y la potencia maxima de cada uno
+ * - registros de longitud fija (RECORD_SIZE bytes): tick, cohete, propulsor (-1 si el registro es
+ *   del cohete), potencia, ordinal del estado (-1 si no hay estado), tipo de evento y relleno
+ *
+ * Indice de instantaneas (fichero con extension INDEX_SUFFIX): entradas de longitud fija con el tick
+ * del ultimo registro aplicado, el numero de registros aplicados, la potencia de cada propulsor,
+ * la potencia objetivo de cada cohete y el estado de cada propulsor
+ */
+final class TraceFormat {
+    static final int MAGIC = 0x524F4354;
+    static final int VERSION = 1;
+    static final int RECORD_SIZE = 24;
+    static final long COUNT_OFFSET = 12;
+    static final String INDEX_SUFFIX = ".idx";
+
+    static final byte RECORD_POWER = 0;
+    static final byte RECORD_PHASE = 1;
+    static final byte RECORD_GOAL = 2;
+    static final byte RECORD_FAILED = 3;
+
+    static final byte NO_STATE = -1;
+
+    private static final StateRace[] STATES = StateRace.values();
+
+    private TraceFormat() {
+    }
+
+    static byte encode(StateRace state) {
+        return state == null ? NO_STATE : (byte) state.ordinal();
+    }
+
+    static StateRace decode(byte state) {
+        return state == NO_STATE ? null : STATES[state];
+    }
+
+    /**
+     * @param boosters, numero total de propulsores
+     * @param rockets, numero de cohetes
+     * @return longitud en bytes de una entrada del indice de instantaneas
+     */
+    static int snapshotSize(int boosters, int rockets) {
+        return Long.BYTES + Long.BYTES + boosters * Integer.BYTES + rockets * Integer.BYTES + boosters;
+    }
+}
@@ -0,0 +1,145 @@
+package com.rockets.application.solve;
+
+import com.rockets.domain.StateRace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Clase de la capa Application
+ *
+ * Resultado de resolver una fase de la carrera con RaceSolver: tick de llegada de cada cohete,
+ * potencias de sus propulsores al terminar la fase y clasificacion. La clasificacion ordena los
+ * cohetes que alcanzan la potencia objetivo por tick de llegada y, en el mismo tick, por su
+ * posicion en la carrera, que es el orden en que los recorre cada tick
+ *
+ * Con next() se resuelve la fase siguiente partiendo de las potencias finales de esta
+ */
+public class RaceSolution {
+    /**
+     * Tick de llegada de un cohete que no alcanza la potencia objetivo
+     */
+    public static final long UNREACHABLE = -1;
+
+    private final String[] ids;
+    private final int[][] max;
+    private final StateRace state;
+    private final int goalPower;
+    private final long[] finishTicks;
+    private final int[][] powers;
+    private final List<Integer> ranking;
+
+    RaceSolution(String[] ids, int[][] max, StateRace state, int goalPower, long[] finishTicks, int[][] powers) {
+        this.ids = ids;
+        this.max = max;
+        this.state = state;
+        this.goalPower = goalPower;
+        this.finishTicks = finishTicks;
+        this.powers = powers;
+        List<Integer> ranking = new ArrayList<>();
+        for (int r = 0; r < ids.length; r++) {
+            if (finishTicks[r] != UNREACHABLE) {
+                ranking.add(r);
+            }
+        }
+        ranking.sort(Comparator.<Integer>comparingLong(r -> finishTicks[r]).thenComparingInt(r -> r));
+        this.ranking = Collections.unmodifiableList(ranking);
+    }
+
+    /**
+     * Resuelve la fase siguiente partiendo de las potencias finales de esta
+     *
+     * @param state, FORWARD para acelerar, BACK para frenar
+     * @param goalPower, potencia objetivo de la fase
+     * @return solucion de la fase siguiente
+     */
+    public RaceSolution next(StateRace state, int goalPower) {
+        return RaceSolver.solve(ids, max, powers, state, goalPower);
+    }
+
+    public StateRace getState() {
+        return state;
+    }
+
+    public int getGoalPower() {
+        return goalPower;
+    }
+
+    /**
+     * @return numero de cohetes
+     */
+    public int getRocketCount() {
+        return ids.length;
+    }
+
+    /**
+     * @param r, posicion del cohete en la carrera
+     * @return identificador del cohete
+     */
+    public String getId(int r) {
+        return ids[r];
+    }
+
+    /**
+     * @param r, posicion del cohete en la carrera
+     * @return tick de la fase (desde 1) en el que el cohete alcanza la potencia objetivo, UNREACHABLE si no la alcanza
+     */
+    public long getFinishTick(int r) {
+        return finishTicks[r];
+    }
+
+    /**
+     * @param r, posicion del cohete en la carrera
+     * @return true si el cohete alcanza la potencia objetivo
+     */
+    public boolean isReachable(int r) {
+        return finishTicks[r] != UNREACHABLE;
+    }
+
+    /**
+     * @param r, posicion del cohete en la carrera
+     * @return potencia de cada propulsor al terminar la fase; si no alcanza la potencia objetivo,
+     * la potencia en la que se quedan fijos
+     */
+    public int[] getPowers(int r) {
+        return powers[r].clone();
+    }
+
+    /**
+     * @param r, posicion del cohete en la carrera
+     * @return potencia acumulada del cohete al terminar la fase
+     */
+    public int getAcumPower(int r) {
+        int total = 0;
+        for (int power : powers[r]) {
+            total += power;
+        }
+        return total;
+    }
+
+    /**
+     * @return posiciones de los cohetes que alcanzan la potencia objetivo, por orden de llegada
+     */
+    public List<Integer> getRanking() {
+        return ranking;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append("RaceSolution{state=").append(state).append(", goalPower=").append(goalPower).append('}');
+        for (int r = 0; r < ids.length; r++) {
+            text.append("\n ").append(ids[r])
+                    .append(" tick=").append(finishTicks[r] == UNREACHABLE ? "inalcanzable" : finishTicks[r])
+                    .append(' ').append(Arrays.toString(powers[r]));
+        }
+        text.append("\n ranking=");
+        for (int r : ranking) {
+            text.append(ids[r]).append(' ');
+        }
+        return text.toString().trim();
+    }
+}
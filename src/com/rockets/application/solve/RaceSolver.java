@@ -0,0 +1,218 @@
+package com.rockets.application.solve;
+
+import com.rockets.domain.Booster;
+import com.rockets.domain.Rocket;
+import com.rockets.domain.StateRace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Clase de la capa Application
+ *
+ * Calcula de forma analitica, sin simular tick a tick ni dormir, el resultado de una fase de la
+ * carrera con el modelo de ticks (TickEngine, Fleet): en cada tick cada cohete recorre sus
+ * propulsores en orden, cada propulsor aplica un paso (Booster.nextPower) y el cohete comprueba
+ * tras cada paso si su potencia acumulada es igual a la potencia objetivo
+ *
+ * Como cada paso varia la potencia en exactamente 1 y la regla no depende del tick, la potencia
+ * de un propulsor tras t ticks tiene forma cerrada:
+ *
+ * - FORWARD: min(max, actual + t) si actual es menor que max, si no actual
+ * - BACK: max(0, actual - t) si actual es mayor que 0 y menor que max, si no actual
+ *
+ * La suma S(t) es monotona, de modo que el tick de llegada es el menor t con S(t) al otro lado
+ * de la potencia objetivo (busqueda binaria) y el propulsor en el que se alcanza se obtiene
+ * recorriendo ese tick. Coste O(propulsores * log(potencia maxima)) por cohete
+ */
+public final class RaceSolver {
+
+    private RaceSolver() {
+    }
+
+    /**
+     * Resuelve una fase partiendo de la potencia actual de los propulsores de los cohetes,
+     * sin modificarlos
+     *
+     * @param rockets, listado de objetos de tipo Rocket, en el orden de la carrera
+     * @param state, FORWARD para acelerar, BACK para frenar
+     * @param goalPower, potencia objetivo de la fase
+     * @return solucion de la fase
+     */
+    public static RaceSolution solve(List<Rocket> rockets, StateRace state, int goalPower) {
+        String[] ids = new String[rockets.size()];
+        int[][] max = new int[rockets.size()][];
+        int[][] current = new int[rockets.size()][];
+        for (int r = 0; r < rockets.size(); r++) {
+            Rocket rocket = rockets.get(r);
+            ids[r] = rocket.getId();
+            List<Booster> boosters = rocket.getBoosters();
+            max[r] = new int[boosters.size()];
+            current[r] = new int[boosters.size()];
+            for (int b = 0; b < boosters.size(); b++) {
+                max[r][b] = boosters.get(b).getMaxPower();
+                current[r][b] = boosters.get(b).getCurrentPower();
+            }
+        }
+        return solve(ids, max, current, state, goalPower);
+    }
+
+    /**
+     * Comprueba, antes de comenzar una fase, que cada cohete puede llegar a la potencia objetivo:
+     * al acelerar no ha de superar la suma de las potencias maximas ni ser menor que la potencia
+     * acumulada; al frenar no ha de ser mayor que la potencia acumulada ni menor que la potencia
+     * en la que se quedan fijos los propulsores (los que estan a 0 o no cumplen la condicion
+     * potencia actual menor que la maxima). Si la potencia objetivo es la acumulada, ningun
+     * propulsor ha de poder moverse: el primero que se mueva la sobrepasa, y los modos de
+     * ejecucion no recorren los propulsores en el mismo orden. Un cohete sin propulsores no puede
+     * llegar a ninguna potencia objetivo
+     *
+     * @param rockets, listado de objetos de tipo Rocket
+     * @param state, FORWARD para acelerar, BACK para frenar
+     * @param goalPower, potencia objetivo de la fase
+     * @throws IllegalArgumentException si algun cohete no puede llegar a la potencia objetivo
+     */
+    public static void checkReachable(List<Rocket> rockets, StateRace state, int goalPower) {
+        List<String> unreachable = new ArrayList<>();
+        for (Rocket rocket : rockets) {
+            List<Booster> boosters = rocket.getBoosters();
+            long start = 0;
+            long end = 0;
+            for (Booster booster : boosters) {
+                int current = booster.getCurrentPower();
+                start += current;
+                end += power(state, current, booster.getMaxPower(), Long.MAX_VALUE);
+            }
+            // como en solveRocket: si ya esta en la potencia objetivo, solo vale si ningun
+            // propulsor se mueve, es decir, si la potencia final es la inicial
+            boolean overshoot = goalPower == start && end != start;
+            if (boosters.isEmpty() || overshoot || (state == StateRace.FORWARD ? goalPower < start || goalPower > end
+                    : goalPower > start || goalPower < end)) {
+                unreachable.add(rocket.getId() + " (" + Math.min(start, end) + ".." + Math.max(start, end) + ")");
+            }
+        }
+        if (!unreachable.isEmpty()) {
+            throw new IllegalArgumentException("Potencia objetivo " + goalPower + " inalcanzable al "
+                    + (state == StateRace.FORWARD ? "acelerar" : "frenar") + " para los cohetes " + unreachable);
+        }
+    }
+
+    /**
+     * @param ids, identificadores de los cohetes
+     * @param max, potencia maxima de cada propulsor de cada cohete
+     * @param current, potencia actual de cada propulsor de cada cohete al comenzar la fase
+     * @param state, FORWARD para acelerar, BACK para frenar
+     * @param goalPower, potencia objetivo de la fase
+     * @return solucion de la fase
+     */
+    public static RaceSolution solve(String[] ids, int[][] max, int[][] current, StateRace state, int goalPower) {
+        if (state != StateRace.FORWARD && state != StateRace.BACK) {
+            throw new IllegalArgumentException("Estado de fase no valido: " + state);
+        }
+        long[] finishTicks = new long[ids.length];
+        int[][] powers = new int[ids.length][];
+        for (int r = 0; r < ids.length; r++) {
+            powers[r] = new int[max[r].length];
+            finishTicks[r] = solveRocket(max[r], current[r], state, goalPower, powers[r]);
+        }
+        return new RaceSolution(ids, max, state, goalPower, finishTicks, powers);
+    }
+
+    /**
+     * @param powers, array en el que se devuelven las potencias al terminar la fase
+     * @return tick de la fase (desde 1) en el que se alcanza la potencia objetivo,
+     * RaceSolution.UNREACHABLE si no se alcanza
+     */
+    private static long solveRocket(int[] max, int[] current, StateRace state, int goal, int[] powers) {
+        for (int m : max) {
+            if (m == Booster.NO_MAX_POWER) {
+                throw new NoSuchElementException("Booster sin potencia maxima");
+            }
+        }
+        int n = max.length;
+        if (n == 0) {
+            return RaceSolution.UNREACHABLE;
+        }
+        long last = 0;
+        for (int b = 0; b < n; b++) {
+            last = Math.max(last, moves(state, current[b], max[b]));
+        }
+        long start = sum(max, current, state, 0);
+        long end = sum(max, current, state, last);
+        int sign = state == StateRace.FORWARD ? 1 : -1;
+
+        if (goal == start) {
+            // la primera comprobacion es tras el paso del primer propulsor, que puede ser cualquiera
+            // segun el modo de ejecucion: solo vale si ninguno se mueve
+            if (last == 0) {
+                fill(max, current, state, 1, 0, powers);
+                return 1;
+            }
+            fill(max, current, state, last, n - 1, powers);
+            return RaceSolution.UNREACHABLE;
+        }
+        if ((long) sign * (goal - start) < 0 || (long) sign * (end - goal) < 0) {
+            fill(max, current, state, last, n - 1, powers);
+            return RaceSolution.UNREACHABLE;
+        }
+
+        long low = 1;
+        long high = last;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if ((long) sign * (goal - sum(max, current, state, mid)) <= 0) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        long tick = low;
+        long acum = sum(max, current, state, tick - 1);
+        int cut = 0;
+        for (int b = 0; b < n; b++) {
+            acum += power(state, current[b], max[b], tick) - power(state, current[b], max[b], tick - 1);
+            if (acum == goal) {
+                cut = b;
+                break;
+            }
+        }
+        fill(max, current, state, tick, cut, powers);
+        return tick;
+    }
+
+    /**
+     * Potencias tras el tick indicado, en el que solo han dado su paso los propulsores hasta cut
+     */
+    private static void fill(int[] max, int[] current, StateRace state, long tick, int cut, int[] powers) {
+        for (int b = 0; b < max.length; b++) {
+            powers[b] = power(state, current[b], max[b], b <= cut ? tick : tick - 1);
+        }
+    }
+
+    /**
+     * @return numero de pasos que puede dar un propulsor antes de quedarse fijo
+     */
+    private static long moves(StateRace state, int current, int max) {
+        if (state == StateRace.FORWARD) {
+            return current < max ? (long) max - current : 0;
+        }
+        return current > 0 && current < max ? current : 0;
+    }
+
+    /**
+     * @return potencia de un propulsor tras el numero de ticks indicado
+     */
+    static int power(StateRace state, int current, int max, long ticks) {
+        long steps = Math.min(Math.max(0, ticks), moves(state, current, max));
+        return (int) (state == StateRace.FORWARD ? current + steps : current - steps);
+    }
+
+    private static long sum(int[] max, int[] current, StateRace state, long ticks) {
+        long total = 0;
+        for (int b = 0; b < max.length; b++) {
+            total += power(state, current[b], max[b], ticks);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,178 @@
+package com.rockets.benchmark;
+
+import com.rockets.application.engine.RaceEngine;
+import com.rockets.application.engine.ThreadPoolEngine;
+import com.rockets.application.engine.TickEngine;
+import com.rockets.application.factory.FactoryMethod;
+import com.rockets.application.factory.RocketFactory;
+import com.rockets.domain.Booster;
+import com.rockets.domain.Fleet;
+import com.rockets.domain.Race;
+import com.rockets.domain.RaceClock;
+import com.rockets.domain.Rocket;
+import com.rockets.domain.StateRace;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Clase de utilidad con las medidas de rendimiento de los caminos criticos del dominio
+ *
+ * - Booster.powerUp/powerDown sobre un mismo propulsor desde 1, 2 y 4 hilos (contencion)
+ * - Rocket.getAcumPower para cohetes de 3, 100 y 10000 propulsores
+ * - Rocket.addBoosterMaxPower para cohetes de 3, 100 y 10000 propulsores
+ * - carrera completa (acelerar y frenar) para cada modo de ejecucion: TickEngine, ThreadPoolEngine
+ *   con hilos de plataforma y virtuales, y Fleet secuencial y en paralelo. Todos con reloj virtual.
+ *   Salvo Fleet secuencial, corren en otros hilos, por lo que solo se mide su tiempo (ver Microbench)
+ *
+ * Los tamaños de flota (numero de cohetes de 10 propulsores) se pueden indicar como argumentos,
+ * por defecto 10 y 100. La salida por consola de la carrera se descarta durante la medida
+ */
+public class DomainBenchmarks {
+    private static final int BOOSTERS_PER_ROCKET = 10;
+    private static final int MAX_POWER = 10;
+    private static final int FORWARD_GOAL = 50;
+    private static final int BACK_GOAL = 20;
+    private static final long PHASE_TIMEOUT_SECONDS = 5;
+
+    private static final FactoryMethod factory = new RocketFactory();
+
+    public static void main(String[] args) throws InterruptedException {
+        List<Integer> fleets = new ArrayList<>();
+        for (String arg : args) {
+            fleets.add(Integer.parseInt(arg));
+        }
+        if (fleets.isEmpty()) {
+            Collections.addAll(fleets, 10, 100);
+        }
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Microbench bench = new Microbench(console);
+        bench.header();
+
+        Booster contended = factory.create("B", 1).getBoosters().get(0);
+        contended.setMaxPower(Integer.MAX_VALUE);
+        contended.setCurrentPower(1 << 20);
+        for (int threads : new int[]{1, 2, 4}) {
+            bench.measure("Booster.powerUp+powerDown", "1 propulsor", threads,
+                    () -> contended.powerUp() + contended.powerDown());
+        }
+
+        for (int boosters : new int[]{3, 100, 10_000}) {
+            Rocket rocket = rocket("R", boosters);
+            bench.measure("Rocket.getAcumPower", boosters + " propulsores", 1, rocket::getAcumPower);
+        }
+
+        for (int boosters : new int[]{3, 100, 10_000}) {
+            Rocket rocket = factory.create("R", boosters);
+            Optional<Integer>[] maxPower = maxPower(boosters);
+            bench.measure("Rocket.addBoosterMaxPower", boosters + " propulsores", 1,
+                    () -> rocket.addBoosterMaxPower(maxPower).size());
+        }
+
+        bench.iterations(1, 3, 1_000);
+        LongAdder timeouts = new LongAdder();
+        for (int rockets : fleets) {
+            String param = rockets + "x" + BOOSTERS_PER_ROCKET;
+            bench.measureTime("carrera tick", param, 1,
+                    () -> race(rockets, () -> new TickEngine(RaceClock.virtual(), 1), timeouts));
+            bench.measureTime("carrera threads", param, 1,
+                    () -> race(rockets, ThreadPoolEngine::cachedThreadPool, timeouts));
+            if (ThreadPoolEngine.isVirtualThreadsAvailable()) {
+                bench.measureTime("carrera virtual", param, 1,
+                        () -> race(rockets, ThreadPoolEngine::virtualThreads, timeouts));
+            }
+            bench.measure("carrera fleet", param, 1, () -> fleet(rockets, null));
+            bench.measureTime("carrera fleet fork-join", param, 1, () -> fleet(rockets, ForkJoinPool.commonPool()));
+        }
+        if (timeouts.sum() > 0) {
+            console.println("Fases con tiempo agotado: " + timeouts.sum());
+        }
+    }
+
+    private static Rocket rocket(String id, int boosters) {
+        Rocket rocket = factory.create(id, boosters);
+        for (Booster booster : rocket.getBoosters()) {
+            booster.setMaxPower(MAX_POWER);
+        }
+        return rocket;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Optional<Integer>[] maxPower(int boosters) {
+        Optional<Integer>[] maxPower = (Optional<Integer>[]) new Optional<?>[boosters];
+        for (int i = 0; i < boosters; i++) {
+            maxPower[i] = Optional.of(MAX_POWER);
+        }
+        return maxPower;
+    }
+
+    /**
+     * Corre una carrera completa, acelerar y frenar, con el modo de ejecucion indicado
+     *
+     * @return potencia acumulada total al terminar
+     */
+    private static long race(int rockets, Supplier<RaceEngine> engines, LongAdder timeouts)
+            throws InterruptedException {
+        Race race = new Race();
+        RaceClock clock = RaceClock.virtual();
+        for (int i = 0; i < rockets; i++) {
+            Rocket rocket = rocket("R" + i, BOOSTERS_PER_ROCKET);
+            rocket.setClock(clock);
+            race.addRocket(rocket);
+        }
+        RaceEngine engine = engines.get();
+        try {
+            race.forward(FORWARD_GOAL);
+            engine.start(race.getRockets());
+            if (!race.await(PHASE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                timeouts.increment();
+            }
+            race.back(BACK_GOAL);
+            engine.phaseChanged(race.getRockets());
+            if (!race.await(PHASE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                timeouts.increment();
+            }
+        } finally {
+            engine.shutdown();
+        }
+        long total = 0;
+        for (Rocket rocket : race.getRockets()) {
+            total += rocket.getAcumPower();
+        }
+        return total;
+    }
+
+    /**
+     * Corre una carrera completa, acelerar y frenar, sobre un Fleet
+     *
+     * @param pool, ForkJoinPool en el que se reparte cada tick, null para avanzar de forma secuencial
+     * @return numero de ticks de la carrera
+     */
+    private static long fleet(int rockets, ForkJoinPool pool) {
+        Fleet fleet = new Fleet(rockets, rockets * BOOSTERS_PER_ROCKET);
+        int[] maxPower = new int[BOOSTERS_PER_ROCKET];
+        Arrays.fill(maxPower, MAX_POWER);
+        for (int i = 0; i < rockets; i++) {
+            fleet.addRocket("R" + i, maxPower);
+        }
+        long ticks;
+        if (pool == null) {
+            ticks = fleet.runPhase(StateRace.FORWARD, FORWARD_GOAL, Long.MAX_VALUE);
+            ticks += fleet.runPhase(StateRace.BACK, BACK_GOAL, Long.MAX_VALUE);
+        } else {
+            ticks = fleet.runPhase(StateRace.FORWARD, FORWARD_GOAL, Long.MAX_VALUE, pool);
+            ticks += fleet.runPhase(StateRace.BACK, BACK_GOAL, Long.MAX_VALUE, pool);
+        }
+        return ticks;
+    }
+}
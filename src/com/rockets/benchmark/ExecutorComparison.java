@@ -0,0 +1,104 @@
+package com.rockets.benchmark;
+
+import com.rockets.application.engine.RaceEngine;
+import com.rockets.application.engine.ThreadPoolEngine;
+import com.rockets.application.factory.FactoryMethod;
+import com.rockets.application.factory.RocketFactory;
+import com.rockets.domain.Race;
+import com.rockets.domain.RaceClock;
+import com.rockets.domain.Rocket;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Clase de utilidad para comparar los modos de ejecucion basados en hilos
+ *
+ * Para cada numero total de propulsores (por defecto 1000, 10000 y 100000) crea cohetes de
+ * 10 propulsores, los pone en marcha con un pool de hilos de plataforma y con hilos virtuales
+ * (si la version de Java lo permite) y mide:
+ *
+ * - arranque: tiempo en lanzar todas las tareas Runnable
+ * - pasos/s: pasos de potencia aplicados por segundo durante una ventana de medida fija
+ *
+ * Se ejecuta con un reloj de 1 ms por tick y una potencia objetivo inalcanzable, de forma que
+ * todos los hilos sigan trabajando durante la ventana de medida. Los tamaños se pueden indicar
+ * como argumentos. La salida por consola de la carrera se descarta durante la medida
+ */
+public class ExecutorComparison {
+    private static final int BOOSTERS_PER_ROCKET = 10;
+    private static final int MAX_POWER = 1_000_000;
+    private static final long WINDOW_MILLIS = 2_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        List<Integer> sizes = new ArrayList<>();
+        for (String arg : args) {
+            sizes.add(Integer.parseInt(arg));
+        }
+        if (sizes.isEmpty()) {
+            Collections.addAll(sizes, 1_000, 10_000, 100_000);
+        }
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        console.printf("%-10s %10s %12s %14s%n", "backend", "boosters", "arranque ms", "pasos/s");
+        for (int size : sizes) {
+            run(console, "cached", size, ThreadPoolEngine::cachedThreadPool);
+            if (ThreadPoolEngine.isVirtualThreadsAvailable()) {
+                run(console, "virtual", size, ThreadPoolEngine::virtualThreads);
+            } else {
+                console.printf("%-10s %10d %12s%n", "virtual", size,
+                        "no disponible en Java " + Runtime.version().feature());
+            }
+        }
+    }
+
+    private static void run(PrintStream console, String name, int boosters, Supplier<RaceEngine> engines)
+            throws InterruptedException {
+        List<Rocket> rockets = createRockets(boosters);
+        RaceEngine engine = engines.get();
+        try {
+            long start = System.nanoTime();
+            engine.start(rockets);
+            long started = System.nanoTime();
+            long before = totalPower(rockets);
+            TimeUnit.MILLISECONDS.sleep(WINDOW_MILLIS);
+            long steps = totalPower(rockets) - before;
+            console.printf("%-10s %10d %12.1f %14.0f%n", name, boosters,
+                    (started - start) / 1e6, steps * 1000.0 / WINDOW_MILLIS);
+        } catch (OutOfMemoryError e) {
+            console.printf("%-10s %10d %12s%n", name, boosters, "fallo: " + e.getMessage());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    private static List<Rocket> createRockets(int boosters) {
+        FactoryMethod factory = new RocketFactory();
+        RaceClock clock = RaceClock.realTime(1);
+        Race race = new Race();
+        for (int i = 0; i < boosters / BOOSTERS_PER_ROCKET; i++) {
+            Rocket rocket = factory.create("R" + i, BOOSTERS_PER_ROCKET);
+            for (int j = 0; j < BOOSTERS_PER_ROCKET; j++) {
+                rocket.getBoosters().get(j).setMaxPower(Optional.of(MAX_POWER));
+            }
+            rocket.setClock(clock);
+            race.addRocket(rocket);
+        }
+        race.forward(BOOSTERS_PER_ROCKET * MAX_POWER + 1);
+        return race.getRockets();
+    }
+
+    private static long totalPower(List<Rocket> rockets) {
+        long total = 0;
+        for (Rocket rocket : rockets) {
+            total += rocket.getAcumPower();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,191 @@
+package com.rockets.benchmark;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Clase de utilidad para medir el rendimiento de operaciones del dominio
+ *
+ * Medida rapida, sin dependencias, para ejecutar desde el propio proyecto; las medidas de
+ * referencia para detectar regresiones son las del modulo JMH benchmarks. Sigue el esquema de
+ * JMH: iteraciones de calentamiento seguidas de iteraciones de medida de duracion fija, en las que uno
+ * o varios hilos ejecutan la operacion en bucle. Para cada medida publica:
+ *
+ * - ops/s: media de operaciones por segundo de las iteraciones de medida, y su error (desviacion tipica)
+ * - B/op: bytes reservados por operacion, el equivalente a gc.alloc.rate.norm de -prof gc
+ * - MB/s: bytes reservados por segundo, el equivalente a gc.alloc.rate
+ *
+ * A diferencia de JMH, todas las medidas corren en la misma JVM, sin fork, por lo que el perfil
+ * del JIT de una medida influye en las siguientes, y no hay Blackhole: el resultado de cada
+ * operacion se acumula en un campo volatile para que el JIT no la elimine. Los resultados sirven
+ * para comparar entre si medidas de una misma ejecucion, no como cifras absolutas
+ *
+ * La memoria reservada se obtiene de com.sun.management.ThreadMXBean y solo cuenta la de los hilos
+ * que ejecutan la operacion; si la JVM no lo permite se muestra "n/d". Las operaciones que
+ * trabajan en otros hilos (pools, planificadores) se miden con measureTime, que no publica B/op
+ * ni MB/s ("-")
+ */
+public class Microbench {
+    private final PrintStream out;
+    private int warmupIterations = 3;
+    private int measurementIterations = 5;
+    private long iterationMillis = 500;
+    private volatile long sink;
+
+    /**
+     * Operacion a medir. Devuelve un valor para que el compilador JIT no la elimine
+     */
+    @FunctionalInterface
+    public interface Operation {
+        long run() throws Exception;
+    }
+
+    /**
+     * @param out, PrintStream en el que se escriben los resultados
+     */
+    public Microbench(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * @param warmupIterations, numero de iteraciones de calentamiento
+     * @param measurementIterations, numero de iteraciones de medida
+     * @param iterationMillis, duracion de cada iteracion en milisegundos
+     * @return este objeto
+     */
+    public Microbench iterations(int warmupIterations, int measurementIterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationMillis = iterationMillis;
+        return this;
+    }
+
+    /**
+     * Escribe la cabecera de la tabla de resultados
+     */
+    public void header() {
+        out.printf("%-36s %-18s %7s %14s %12s %10s %10s%n",
+                "benchmark", "param", "threads", "ops/s", "error", "B/op", "MB/s");
+    }
+
+    /**
+     * Mide una operacion ejecutada en bucle por varios hilos a la vez
+     *
+     * @param name, nombre de la medida
+     * @param param, valor del parametro de la medida
+     * @param threads, numero de hilos que ejecutan la operacion
+     * @param operation, operacion a medir
+     * @throws InterruptedException si el hilo es interrumpido durante la medida
+     */
+    public void measure(String name, String param, int threads, Operation operation) throws InterruptedException {
+        measure(name, param, threads, true, operation);
+    }
+
+    /**
+     * Mide solo el tiempo de una operacion que reserva memoria en otros hilos, cuya memoria no
+     * se puede atribuir a la operacion
+     *
+     * @param name, nombre de la medida
+     * @param param, valor del parametro de la medida
+     * @param threads, numero de hilos que ejecutan la operacion
+     * @param operation, operacion a medir
+     * @throws InterruptedException si el hilo es interrumpido durante la medida
+     */
+    public void measureTime(String name, String param, int threads, Operation operation) throws InterruptedException {
+        measure(name, param, threads, false, operation);
+    }
+
+    private void measure(String name, String param, int threads, boolean allocation, Operation operation)
+            throws InterruptedException {
+        for (int i = 0; i < warmupIterations; i++) {
+            iteration(threads, allocation, operation);
+        }
+        double[] rates = new double[measurementIterations];
+        long ops = 0;
+        long bytes = 0;
+        long nanos = 0;
+        for (int i = 0; i < measurementIterations; i++) {
+            long[] result = iteration(threads, allocation, operation);
+            rates[i] = result[0] * 1e9 / result[2];
+            ops += result[0];
+            bytes += result[1];
+            nanos += result[2];
+        }
+        double mean = 0;
+        for (double rate : rates) {
+            mean += rate / rates.length;
+        }
+        double variance = 0;
+        for (double rate : rates) {
+            variance += (rate - mean) * (rate - mean) / Math.max(1, rates.length - 1);
+        }
+        String perOp = !allocation ? "-" : bytes < 0 || ops == 0 ? "n/d" : String.format("%.1f", (double) bytes / ops);
+        String perSecond = !allocation ? "-" : bytes < 0 ? "n/d" : String.format("%.1f", bytes * 1e9 / nanos / (1 << 20));
+        out.printf("%-36s %-18s %7d %14.3f %12.3f %10s %10s%n",
+                name, param, threads, mean, Math.sqrt(variance), perOp, perSecond);
+    }
+
+    /**
+     * @return numero de operaciones, bytes reservados (-1 si no se miden o no se pueden medir) y
+     * nanosegundos de la iteracion
+     */
+    private long[] iteration(int threads, boolean allocation, Operation operation) throws InterruptedException {
+        LongAdder ops = new LongAdder();
+        AtomicLong bytes = new AtomicLong();
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long[] window = new long[2];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                long count = 0;
+                long result = 0;
+                try {
+                    ready.countDown();
+                    start.await();
+                    long before = allocation ? allocatedBytes() : -1;
+                    long end = window[1];
+                    do {
+                        result += operation.run();
+                        count++;
+                    } while (System.nanoTime() < end);
+                    long after = allocation ? allocatedBytes() : -1;
+                    bytes.accumulateAndGet(before < 0 || after < 0 ? -1 : after - before,
+                            (a, b) -> a < 0 || b < 0 ? -1 : a + b);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    ops.add(count);
+                    sink += result;
+                    done.countDown();
+                }
+            }, "microbench-" + t);
+            workers[t].start();
+        }
+        ready.await();
+        window[0] = System.nanoTime();
+        window[1] = window[0] + TimeUnit.MILLISECONDS.toNanos(iterationMillis);
+        start.countDown();
+        done.await();
+        long elapsed = Math.max(System.nanoTime() - window[0], 1);
+        return new long[]{ops.sum(), bytes.get(), elapsed};
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getCurrentThreadAllocatedBytes();
+            }
+        }
+        return -1;
+    }
+}
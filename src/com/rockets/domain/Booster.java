@@ -1,17 +1,34 @@
 package com.rockets.domain;
 
+import com.rockets.domain.event.EventType;
+import com.rockets.domain.metrics.RaceMetrics;
+
+import java.util.NoSuchElementException;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Clase de la capa Domain
  *
  * Clase de tipo Booster, identificada por una potencia maxima
  *
- * Contiene una variable de tipo Integer, currentPower, que es la potencia actual, incrementa o
- * decrementa su valor en 1, en funcion de si el cohete acelera o frena
+ * Contiene una variable de tipo AtomicInteger, currentPower, que es la potencia actual, incrementa o
+ * decrementa su valor en 1, en funcion de si el cohete acelera o frena. Los cambios de potencia se
+ * aplican con compareAndSet, sin bloqueos, y cada variacion se suma al total de su cohete
+ *
+ * La potencia maxima se guarda como un int, NO_MAX_POWER indica que aun no se ha fijado
  *
- * Contiene una variable boolean suspended, en funcion de su valor deja en espera el hilo en ejecucion
+ * Con un hilo propio (run), el propulsor empuja cada variacion de potencia a su cohete
+ * (Rocket.offer), que actualiza su total y comprueba la llegada en ese mismo momento, sin relevo
+ * con el hilo del cohete. Fuera de fase, o cuando ya no puede dar pasos o su cohete ha terminado
+ * la fase, el propulsor espera el comienzo de la fase siguiente en la Condition de su
+ * ReentrantLock, sin consumir CPU y sin bloquear el hilo portador si se ejecuta sobre hilos virtuales.
+ * El estado y el numero de fase se guardan juntos en un AtomicLong, de modo que el hilo del
+ * propulsor los lee en cada paso sin tomar el lock, que solo se usa para esperar y avisar del
+ * comienzo de una fase
  *
  * Contiene un enum de tipo StateRace con los valores FORWARD,BACK y FINISH para indicar si el cohete
  * acelera, frena, o ha alcanzado la potencia objetivo
@@ -22,10 +39,21 @@ import java.util.concurrent.TimeUnit;
  */
 public class Booster implements Runnable{
 
-    private Optional<Integer> maxPower=Optional.empty();
-    private Integer currentPower= this.getCurrentPower();
-    private boolean suspended=true;
-    private StateRace state;
+    public static final int NO_MAX_POWER = -1;
+
+    private static final StateRace[] STATES = StateRace.values();
+
+    private volatile int maxPower=NO_MAX_POWER;
+    private final AtomicInteger currentPower=new AtomicInteger();
+    private Rocket rocket;
+    private int index;
+    // numero de fase de su cohete en los 32 bits altos y estado en los bajos (0 sin estado)
+    private final AtomicLong phase = new AtomicLong();
+    private volatile boolean detached;
+    private RaceClock clock=RaceClock.DEFAULT;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition phaseStarted = lock.newCondition();
+    private final RaceMetrics metrics = RaceMetrics.getInstance();
 
     /**
      * Contructor de la clase, identificado por un Integer, maxPower, que representa
@@ -34,7 +62,37 @@ public class Booster implements Runnable{
      * @param maxPower, potencia maxima que puede alcanzar cada propulsor
      */
     public Booster(Optional<Integer> maxPower) {
-        this.maxPower = maxPower;
+        this.setMaxPower(maxPower);
+    }
+
+    /**
+     * Asocia el propulsor al cohete al que pertenece, que recibe cada variacion de potencia
+     *
+     * @param rocket, objeto de tipo Rocket propietario del propulsor
+     * @param index, posicion del propulsor en el listado de propulsores del cohete
+     */
+    void setRocket(Rocket rocket, int index) {
+        this.rocket = rocket;
+        this.index = index;
+    }
+
+    /**
+     * @return posicion del propulsor en el listado de propulsores de su cohete
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Publica un evento del propulsor en el registro de eventos de su cohete.
+     * Los cambios de potencia (BOOSTER_POWER) se publican al aplicarse, en powerUp() y powerDown()
+     *
+     * @param type, tipo de evento
+     */
+    private void publish(EventType type) {
+        if (this.rocket != null) {
+            this.rocket.getEventLog().publish(type, this.rocket, this.index, this.getCurrentPower(), this.getState());
+        }
     }
 
     /**
@@ -42,7 +100,7 @@ public class Booster implements Runnable{
      * para indicar si el cohete acelera, frena, o ha alcanzado la potencia objetivo
      */
     public StateRace getState() {
-        return state;
+        return stateOf(phase.get());
     }
 
     /**
@@ -51,34 +109,69 @@ public class Booster implements Runnable{
      *               (acelerar, frenar o potencia objetivo alcanzada)
      */
     public void setState(StateRace state) {
-        this.state = state;
+        long current;
+        do {
+            current = phase.get();
+        } while (!phase.compareAndSet(current, pack(epochOf(current), state)));
+    }
+
+    private static long pack(int epoch, StateRace state) {
+        return ((long) epoch << 32) | (state == null ? 0 : state.ordinal() + 1);
+    }
+
+    private static int epochOf(long phase) {
+        return (int) (phase >>> 32);
+    }
+
+    private static StateRace stateOf(long phase) {
+        int code = (int) phase;
+        return code == 0 ? null : STATES[code - 1];
+    }
+
+    /**
+     * @return interfaz RaceClock, base de tiempo con la que el propulsor espera entre pasos
+     */
+    public RaceClock getClock() {
+        return clock;
     }
 
     /**
-     * @return false pone en espera el hilo en ejecucion, true hace que siga la ejecucion
+     * Fija la base de tiempo del propulsor
+     *
+     * @param clock, interfaz RaceClock que determina la duracion de cada espera
      */
-    public boolean isSuspended() {
-        return suspended;
+    public void setClock(RaceClock clock) {
+        this.clock = clock;
     }
 
     /**
-     * Fija la variable boolean suspended con el valor pasado como parametro
+     * Comienza una fase: fija el estado y despierta al hilo del propulsor si esperaba
      *
-     * @param suspended, false para poner en espera el hilo en ejecucion,
-     *                   true para que siga la ejecucion
+     * @param state, FORWARD para acelerar, BACK para frenar
+     * @param epoch, numero de fase de su cohete, con el que el propulsor le empuja sus variaciones
+     */
+    void startPhase(StateRace state, int epoch) {
+        long acquired = metrics.lock(lock, RaceMetrics.LockSite.BOOSTER);
+        try {
+            phase.set(pack(epoch, state));
+            phaseStarted.signalAll();
+        } finally {
+            metrics.unlock(lock, RaceMetrics.LockSite.BOOSTER, acquired);
+        }
+    }
+
+    /**
+     * @return int con la potencia actual del propulsor, el valor inicial es 0
      */
-    public void setSuspended(boolean suspended) {
-        this.suspended = suspended;
+    public int getCurrentPower() {
+        return currentPower.get();
     }
 
     /**
-     * @return Integer con la potencia actual del propulsor
-     * El valor inicial de la potencia actual no permite valores nulos,
-     * en este caso el valor inicial es 0
+     * @return potencia maxima del propulsor, NO_MAX_POWER si aun no se ha fijado
      */
-    public Integer getCurrentPower() {
-        currentPower = Optional.ofNullable(currentPower).orElse(0);
-        return currentPower;
+    public int getMaxPower() {
+        return maxPower;
     }
 
     /**
@@ -86,7 +179,124 @@ public class Booster implements Runnable{
      * @param maxPower, potencia maxima que puede alcanzar un propulsor
      */
     public void setMaxPower(Optional<Integer> maxPower){
+        this.setMaxPower(maxPower.orElse(NO_MAX_POWER).intValue());
+    }
+
+    /**
+     * Fija la potencia maxima de capa propulsor sin envolver el valor en un Optional. Si su cohete
+     * participa en una carrera, cambia el sello de su disposicion (ver Race.getLayout)
+     * @param maxPower, potencia maxima que puede alcanzar un propulsor
+     */
+    public void setMaxPower(int maxPower){
         this.maxPower=maxPower;
+        Race race = this.rocket == null ? null : this.rocket.getRace();
+        if (race != null) {
+            race.layoutChanged();
+        }
+    }
+
+    /**
+     * Calcula la potencia que resulta de aplicar un paso a una potencia dada, es la regla comun
+     * a todos los modos de ejecucion:
+     *
+     * - FORWARD incrementa en 1 mientras no se supere la potencia maxima
+     * - BACK decrementa en 1 mientras la potencia actual sea mayor que cero y menor que la maxima
+     * - FINISH, o sin estado, no varia la potencia
+     *
+     * @param state, estado de la carrera
+     * @param current, potencia actual
+     * @param max, potencia maxima
+     * @return potencia tras aplicar el paso
+     */
+    public static int nextPower(StateRace state, int current, int max) {
+        if (state == StateRace.FORWARD) {
+            return current < max ? current + 1 : current;
+        }
+        if (state == StateRace.BACK) {
+            return current > 0 && current < max ? current - 1 : current;
+        }
+        return current;
+    }
+
+    /**
+     * Aplica de forma atomica un paso de potencia mediante compareAndSet y comunica la
+     * variacion al cohete propietario
+     *
+     * @param state, FORWARD para incrementar, BACK para decrementar
+     * @return la potencia actual del propulsor con el paso aplicado
+     */
+    private int apply(StateRace state) {
+        int max = this.maxPower;
+        if (max == NO_MAX_POWER) {
+            throw new NoSuchElementException("Booster sin potencia maxima");
+        }
+        int current;
+        int next;
+        do {
+            current = this.currentPower.get();
+            next = nextPower(state, current, max);
+            if (next == current) {
+                return current;
+            }
+        } while (!this.currentPower.compareAndSet(current, next));
+        metrics.stepApplied();
+        if (this.rocket != null) {
+            this.rocket.addPower(next - current);
+            this.rocket.getEventLog().publish(EventType.BOOSTER_POWER, this.rocket, this.index, next, state);
+        }
+        return next;
+    }
+
+    /**
+     * Fija directamente la potencia actual del propulsor, sin aplicar la regla de pasos,
+     * por ejemplo al reconstruir el estado de una carrera grabada. El total de su cohete
+     * se ajusta con la diferencia
+     *
+     * @param power, potencia actual
+     */
+    public void setCurrentPower(int power) {
+        int previous = this.currentPower.getAndSet(power);
+        if (this.rocket != null) {
+            this.rocket.addPower(power - previous);
+        }
+    }
+
+    /**
+     * Fija la potencia actual y el estado del propulsor al restaurar una carrera (ver Fleet.applyTo).
+     * No ha de estar en ejecucion
+     *
+     * @param currentPower, potencia actual
+     * @param state, estado del propulsor, null si no tiene fase
+     */
+    void restore(int currentPower, StateRace state) {
+        this.currentPower.set(currentPower);
+        this.setState(state);
+    }
+
+    /**
+     * Detiene el propulsor al quitar su cohete de la carrera: pasa a FINISH y su hilo termina
+     */
+    void detach() {
+        lock.lock();
+        try {
+            this.detached = true;
+            this.setState(StateRace.FINISH);
+            phaseStarted.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Devuelve el propulsor a su estado inicial, sin potencia maxima, a potencia 0, sin fase y
+     * suspendido, para reutilizarlo en otra carrera. No ha de estar en ejecucion
+     */
+    void reset() {
+        this.maxPower = NO_MAX_POWER;
+        this.currentPower.set(0);
+        this.phase.set(0);
+        this.clock = RaceClock.DEFAULT;
+        this.detached = false;
     }
 
     /**
@@ -94,11 +304,8 @@ public class Booster implements Runnable{
      *
      * @return la potencia actual del propulsor con el incremento aplicado
      */
-    public synchronized int powerUp(){
-        if(this.currentPower < this.maxPower.get().intValue()){
-            this.currentPower=this.currentPower+1;
-        }
-        return this.currentPower;
+    public int powerUp(){
+        return this.apply(StateRace.FORWARD);
     }
 
     /**
@@ -107,71 +314,107 @@ public class Booster implements Runnable{
      *
      * @return la potencia actual del propulsor con el decremento aplicado
      */
-    public synchronized int powerDown(){
-        if(this.currentPower.intValue() > 0
-                && this.currentPower.intValue() < this.maxPower.get().intValue()){
-            this.currentPower=this.currentPower-1;
+    public int powerDown(){
+        return this.apply(StateRace.BACK);
+    }
+
+    /**
+     * Aplica un unico paso de potencia en funcion del estado actual del propulsor:
+     * incrementa en 1 si acelera (FORWARD), decrementa en 1 si frena (BACK)
+     * y no varia si ha alcanzado la potencia objetivo (FINISH) o aun no tiene estado
+     *
+     * Permite avanzar el propulsor de forma discreta, tick a tick, sin necesidad
+     * de un hilo de ejecucion propio
+     *
+     * @return la potencia actual del propulsor tras aplicar el paso
+     */
+    public int step(){
+        StateRace state = this.getState();
+        if(state==null){
+            return this.getCurrentPower();
+        }
+        switch (state){
+            case FORWARD:
+                return this.powerUp();
+            case BACK:
+                return this.powerDown();
+            default:
+                return this.getCurrentPower();
         }
-        return this.currentPower;
     }
 
     @Override
     public String toString() {
         return "Booster{" +
-                "maxPower=" + maxPower +
+                "maxPower=" + (maxPower == NO_MAX_POWER ? Optional.empty() : Optional.of(maxPower)) +
                 ", currentPower=" + currentPower +
                 '}';
     }
 
+    /**
+     * Aplica un paso de potencia y lo empuja a su cohete, que lo acepta solo si sigue en la fase
+     * indicada y no la ha terminado. Si el cohete lo rechaza el paso se deshace
+     *
+     * @param state, FORWARD para incrementar, BACK para decrementar
+     * @param epoch, numero de fase del cohete en la que se da el paso
+     * @return true si el paso se ha aplicado, false si el propulsor ya no puede dar pasos
+     * en esta fase o su cohete la ha terminado
+     */
+    private boolean push(StateRace state, int epoch) {
+        int max = this.maxPower;
+        if (max == NO_MAX_POWER) {
+            throw new NoSuchElementException("Booster sin potencia maxima");
+        }
+        int current = this.currentPower.get();
+        int next = nextPower(state, current, max);
+        if (next == current) {
+            if (this.rocket != null) {
+                this.rocket.boosterStuck(epoch, state);
+            }
+            return false;
+        }
+        if (!this.currentPower.compareAndSet(current, next)) {
+            return true;
+        }
+        // el cohete publica el paso, antes de la llegada que pueda provocar
+        if (this.rocket != null && !this.rocket.offer(epoch, next - current, state, this.index, next)) {
+            this.currentPower.compareAndSet(next, current);
+            return false;
+        }
+        metrics.stepApplied();
+        return true;
+    }
+
     /**
      * Sobreescribe el metodo run por implementar la interfaz Runnable
      *
      * Cada Booster actua como Producer, produciendo una potencia actual que se
      * ira incrementando o decrementando sin sobrepasar la potencia maxima permitida
      *
-     * En funcion de los valores que tome el enum StateRace (FORWARD,BACK,FINISH)
-     * el propulsor incrementa o decrementa su potencia actual en 1,
-     * o pasa al estado finish indicando que se ha llegado a la potencia objetivo
+     * Mientras su estado sea FORWARD o BACK da un paso por tick del reloj de la carrera y lo empuja
+     * a su cohete. Sin fase, en FINISH, o si ya no puede dar pasos o su cohete ha terminado la
+     * fase, espera al comienzo de la fase siguiente sin consumir CPU. Termina al interrumpir su
+     * hilo o al quitar su cohete de la carrera
      */
     @Override
     public void run() {
         try {
-            while(!Thread.interrupted()) {
-                synchronized (this) {
-                    while (!this.isSuspended()) {
-                        System.out.println("[wait...] " + this.toString());
-                        wait();
-                    }
+            int idleEpoch = -1;
+            while (!Thread.currentThread().isInterrupted()) {
+                if (detached) {
+                    return;
                 }
-                synchronized (this) {
-                    this.setSuspended(false);
-                    TimeUnit.MILLISECONDS.sleep(1000);
-                    switch (state){
-                        case FORWARD:
-                            TimeUnit.MILLISECONDS.sleep(1000);
-                            if(!(Rocket.getCountRockets() < 0)){
-                                this.powerUp();
-                                notifyAll();
-                                System.out.println("[acelerando...] " + this.toString());
-                            }
-                            wait();
-                            break;
-                        case BACK:
-                            TimeUnit.MILLISECONDS.sleep(1000);
-                            if(!(Rocket.getCountRockets() < 0)){
-                                this.powerDown();
-                                notifyAll();
-                                System.out.println("[frenando...] " + this.toString());
-                            }
-                            wait();
-                            break;
-                        case FINISH:
-                            notifyAll();
-                            break;
-                    }
-
+                long packed = phase.get();
+                StateRace state = stateOf(packed);
+                int current = epochOf(packed);
+                if ((state != StateRace.FORWARD && state != StateRace.BACK) || current == idleEpoch) {
+                    awaitPhase(idleEpoch);
+                    continue;
+                }
+                this.clock.sleep(1);
+                if (!this.push(state, current)) {
+                    idleEpoch = current;
                 }
-               TimeUnit.MILLISECONDS.sleep(1000);
             }
         } catch(InterruptedException e) {
             System.out.println("Booster interrupted: "
@@ -179,4 +422,28 @@ public class Booster implements Runnable{
         }
     }
 
+    /**
+     * Espera, sin consumir CPU, a que comience una fase distinta de idleEpoch o a que su cohete se
+     * quite de la carrera. Usa el lock sin las metricas: el tiempo en espera no es retencion del lock
+     *
+     * @param idleEpoch, numero de fase en la que el propulsor ya no puede dar pasos, -1 si ninguna
+     * @throws InterruptedException si el hilo es interrumpido durante la espera
+     */
+    private void awaitPhase(int idleEpoch) throws InterruptedException {
+        lock.lock();
+        try {
+            while (!detached) {
+                long packed = phase.get();
+                StateRace state = stateOf(packed);
+                if ((state == StateRace.FORWARD || state == StateRace.BACK) && epochOf(packed) != idleEpoch) {
+                    return;
+                }
+                this.publish(EventType.BOOSTER_WAITING);
+                phaseStarted.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
 }
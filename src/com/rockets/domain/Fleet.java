@@ -0,0 +1,939 @@
+package com.rockets.domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clase de la capa Domain
+ *
+ * Almacen columnar de una flota de cohetes para carreras de gran tamaño. En lugar de un objeto
+ * Booster por propulsor, guarda las potencias actual y maxima de todos los propulsores en dos
+ * arrays int[] contiguos y su estado en un byte[], unos 9 bytes por propulsor. Los propulsores
+ * de cada cohete ocupan el rango [offset(r), offset(r+1)) de esos arrays
+ *
+ * Por cada cohete guarda su id, su potencia objetivo, su potencia acumulada y el tick en el que
+ * alcanzo la potencia objetivo de la fase en curso. El orden de llegada se guarda en finishOrder
+ *
+ * Avanza la carrera con el metodo step(), que recorre los arrays aplicando la misma regla que
+ * Rocket.tick() y Booster.nextPower(). El metodo step(ForkJoinPool) obtiene el mismo resultado
+ * repartiendo el tick entre los hilos de un ForkJoinPool: por bloques de cohetes y, en los cohetes
+ * con muchos propulsores, por rangos de propulsores. Las clases RocketView y BoosterView ofrecen una vista
+ * de tipo Rocket/Booster sobre los arrays, sin copiar los datos
+ *
+ * Los ids, los rangos de propulsores y las potencias maximas forman la disposicion de la flota, que
+ * solo cambia al añadir cohetes o vaciarla; cada disposicion tiene un sello distinto (getLayout).
+ * copyTo y FleetCheckpoint solo copian o escriben esa parte cuando cambia el sello
+ */
+public class Fleet {
+    /**
+     * Codigo de estado de un propulsor sin fase asignada
+     */
+    public static final byte NO_STATE = 0;
+
+    private static final StateRace[] STATES = StateRace.values();
+    private static final AtomicLong LAYOUTS = new AtomicLong();
+    private static final int MAX_READ_ATTEMPTS = 64;
+    private static final byte FORWARD = encode(StateRace.FORWARD);
+    private static final byte BACK = encode(StateRace.BACK);
+    private static final byte FINISH = encode(StateRace.FINISH);
+
+    private String[] ids;
+    private int[] offsets;
+    private int[] goal;
+    private int[] acum;
+    private long[] finishTick;
+    private int[] finishOrder;
+    private int finished;
+    private int rocketCount;
+
+    private int[] current;
+    private int[] max;
+    private byte[] state;
+    private int boosterCount;
+
+    private long tick;
+    private int grain = DEFAULT_GRAIN;
+    private StateRace phase;
+    private int phaseGoal;
+    private long layout;
+
+    /**
+     * Numero de propulsores por defecto a partir del cual un bloque de trabajo se divide
+     */
+    public static final int DEFAULT_GRAIN = 16_384;
+
+    /**
+     * Crea una flota vacia con capacidad inicial para el numero de cohetes y propulsores indicado,
+     * los arrays crecen si se añaden mas
+     *
+     * @param rocketCapacity, capacidad inicial de cohetes
+     * @param boosterCapacity, capacidad inicial de propulsores
+     */
+    public Fleet(int rocketCapacity, int boosterCapacity) {
+        this.ids = new String[Math.max(1, rocketCapacity)];
+        this.offsets = new int[Math.max(1, rocketCapacity) + 1];
+        this.goal = new int[Math.max(1, rocketCapacity)];
+        this.acum = new int[Math.max(1, rocketCapacity)];
+        this.finishTick = new long[Math.max(1, rocketCapacity)];
+        this.finishOrder = new int[Math.max(1, rocketCapacity)];
+        this.current = new int[Math.max(1, boosterCapacity)];
+        this.max = new int[Math.max(1, boosterCapacity)];
+        this.state = new byte[Math.max(1, boosterCapacity)];
+    }
+
+    /**
+     * Crea una flota con la configuracion y el estado actual de un listado de objetos Rocket. De
+     * cada cohete se toman a la vez la potencia de sus propulsores y su potencia acumulada
+     * (Rocket.getAcumPower): un propulsor aplica su paso antes de sumarlo al total del cohete, por
+     * lo que la lectura se repite hasta que coinciden. Cohetes distintos pueden tomarse en momentos
+     * algo distintos. Sin carrera no hay tick ni orden de llegada (ver of(Race))
+     *
+     * @param rockets, listado de objetos de tipo Rocket
+     * @return flota equivalente
+     */
+    public static Fleet of(List<Rocket> rockets) {
+        int boosters = 0;
+        for (Rocket rocket : rockets) {
+            boosters += rocket.getBoosters().size();
+        }
+        Fleet fleet = new Fleet(rockets.size(), boosters);
+        for (Rocket rocket : rockets) {
+            List<Booster> list = rocket.getBoosters();
+            int[] maxPower = new int[list.size()];
+            for (int i = 0; i < maxPower.length; i++) {
+                maxPower[i] = list.get(i).getMaxPower();
+            }
+            int r = fleet.addRocket(rocket.getId(), maxPower);
+            fleet.goal[r] = rocket.getGoalPower();
+            fleet.acum[r] = fleet.read(r, rocket);
+        }
+        return fleet;
+    }
+
+    /**
+     * Lee la potencia y el estado de los propulsores de un cohete y devuelve su potencia acumulada,
+     * repitiendo la lectura mientras un propulsor este a mitad de un paso
+     */
+    private int read(int r, Rocket rocket) {
+        List<Booster> list = rocket.getBoosters();
+        int total;
+        int attempts = 0;
+        while (true) {
+            total = rocket.getAcumPower();
+            long sum = 0;
+            for (int i = 0; i < list.size(); i++) {
+                Booster booster = list.get(i);
+                int b = offsets[r] + i;
+                current[b] = booster.getCurrentPower();
+                state[b] = encode(booster.getState());
+                sum += current[b];
+            }
+            if ((sum == total && rocket.getAcumPower() == total) || ++attempts == MAX_READ_ATTEMPTS) {
+                return total;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Crea una flota con la configuracion y el estado actual de los cohetes de una carrera, el
+     * estado y la potencia objetivo de su fase en curso, y el orden y el tick de llegada de los
+     * cohetes que ya han llegado, contado desde el comienzo de la fase (ver Race.getFinishTick).
+     * Conserva el sello de la disposicion de la carrera (ver Race.getLayout)
+     *
+     * @param race, objeto de tipo Race
+     * @return flota equivalente
+     */
+    public static Fleet of(Race race) {
+        while (true) {
+            List<Rocket> rockets;
+            long stamp;
+            synchronized (race) {
+                rockets = race.getRockets();
+                stamp = race.getLayout();
+            }
+            Fleet fleet = of(rockets);
+            fleet.phase = race.getState();
+            fleet.phaseGoal = race.getGoalPower();
+            int[] position = new int[rockets.isEmpty() ? 0 : rockets.get(rockets.size() - 1).getRaceIndex() + 1];
+            for (int r = 0; r < rockets.size(); r++) {
+                Rocket rocket = rockets.get(r);
+                int index = rocket.getRaceIndex();
+                if (index >= 0 && index < position.length) {
+                    position[index] = r;
+                }
+                fleet.finishTick[r] = fleet.arrived(r) ? race.getFinishTick(rocket) : -1;
+            }
+            // las llegadas se leen despues de los cohetes: solo cuentan las de los que ya habian llegado al leerlos
+            for (Rocket rocket : race.getArrivals()) {
+                int index = rocket.getRaceIndex();
+                if (index >= 0 && index < position.length && rockets.get(position[index]) == rocket
+                        && fleet.arrived(position[index])) {
+                    fleet.finishOrder[fleet.finished++] = position[index];
+                }
+            }
+            if (race.getLayout() == stamp) {
+                fleet.layout = stamp;
+                return fleet;
+            }
+        }
+    }
+
+    /**
+     * @return true si el cohete ha alcanzado la potencia objetivo de la fase: sus propulsores
+     * estan en FINISH y su potencia acumulada es la objetivo
+     */
+    private boolean arrived(int r) {
+        return offsets[r + 1] > offsets[r] && state[offsets[r]] == FINISH && acum[r] == goal[r];
+    }
+
+    /**
+     * Añade un cohete a la flota, con sus propulsores a potencia 0 y sin fase asignada
+     *
+     * @param id, identificador del cohete
+     * @param maxPower, potencia maxima de cada propulsor
+     * @return indice del cohete en la flota
+     */
+    public int addRocket(String id, int... maxPower) {
+        ensureRocketCapacity(rocketCount + 1);
+        ensureBoosterCapacity(boosterCount + maxPower.length);
+        int r = rocketCount++;
+        ids[r] = id;
+        goal[r] = 0;
+        acum[r] = 0;
+        finishTick[r] = -1;
+        offsets[r] = boosterCount;
+        System.arraycopy(maxPower, 0, max, boosterCount, maxPower.length);
+        Arrays.fill(current, boosterCount, boosterCount + maxPower.length, 0);
+        Arrays.fill(state, boosterCount, boosterCount + maxPower.length, NO_STATE);
+        boosterCount += maxPower.length;
+        offsets[rocketCount] = boosterCount;
+        layout = 0;
+        return r;
+    }
+
+    /**
+     * Vacia la flota conservando los arrays ya reservados, para reutilizarla en otra carrera
+     */
+    public void clear() {
+        rocketCount = 0;
+        boosterCount = 0;
+        finished = 0;
+        tick = 0;
+        offsets[0] = 0;
+        phase = null;
+        phaseGoal = 0;
+        layout = 0;
+    }
+
+    /**
+     * Copia la flota en otra, reutilizando sus arrays, por ejemplo para escribirla en segundo plano
+     * mientras esta sigue avanzando. Si la otra ya tiene la misma disposicion (ver getLayout) solo
+     * se copian las potencias, los estados y el seguimiento de la fase
+     *
+     * @param target, flota en la que se copia
+     */
+    public void copyTo(Fleet target) {
+        long stamp = getLayout();
+        target.ensureRocketCapacity(rocketCount);
+        target.ensureBoosterCapacity(boosterCount);
+        if (target.layout != stamp) {
+            System.arraycopy(ids, 0, target.ids, 0, rocketCount);
+            System.arraycopy(offsets, 0, target.offsets, 0, rocketCount + 1);
+            System.arraycopy(max, 0, target.max, 0, boosterCount);
+        }
+        System.arraycopy(goal, 0, target.goal, 0, rocketCount);
+        System.arraycopy(acum, 0, target.acum, 0, rocketCount);
+        System.arraycopy(finishTick, 0, target.finishTick, 0, rocketCount);
+        System.arraycopy(finishOrder, 0, target.finishOrder, 0, finished);
+        System.arraycopy(current, 0, target.current, 0, boosterCount);
+        System.arraycopy(state, 0, target.state, 0, boosterCount);
+        target.rocketCount = rocketCount;
+        target.boosterCount = boosterCount;
+        target.finished = finished;
+        target.tick = tick;
+        target.phase = phase;
+        target.phaseGoal = phaseGoal;
+        target.grain = grain;
+        target.layout = stamp;
+    }
+
+    /**
+     * Devuelve a un objeto Rocket el estado de un cohete de la flota: la potencia actual y el estado
+     * de cada propulsor, y la potencia objetivo y acumulada del cohete. La potencia maxima se fija
+     * al crear el cohete
+     *
+     * @param r, indice del cohete
+     * @param rocket, objeto de tipo Rocket con el mismo numero de propulsores, fuera de ejecucion
+     * @throws IllegalArgumentException si el numero de propulsores no coincide
+     */
+    public void applyTo(int r, Rocket rocket) {
+        List<Booster> boosters = rocket.getBoosters();
+        if (boosters.size() != offsets[r + 1] - offsets[r]) {
+            throw new IllegalArgumentException("El cohete " + rocket.getId() + " no tiene "
+                    + (offsets[r + 1] - offsets[r]) + " propulsores");
+        }
+        for (int i = 0; i < boosters.size(); i++) {
+            int b = offsets[r] + i;
+            boosters.get(i).restore(current[b], decode(state[b]));
+        }
+        rocket.restore(goal[r], acum[r]);
+    }
+
+    /**
+     * @return sello de la disposicion de la flota (ids, rangos de propulsores y potencias maximas),
+     * distinto para cada disposicion, incluso entre flotas distintas
+     */
+    long getLayout() {
+        if (layout == 0) {
+            layout = nextLayout();
+        }
+        return layout;
+    }
+
+    /**
+     * @return sello de disposicion nuevo, comun a flotas y carreras (ver Race.getLayout)
+     */
+    static long nextLayout() {
+        return LAYOUTS.incrementAndGet();
+    }
+
+    /**
+     * Fija el tamaño y el estado de la fase al leer una flota (ver FleetCheckpoint)
+     */
+    void load(int rockets, int boosters, long tick, int finished, StateRace phase, int phaseGoal) {
+        ensureRocketCapacity(rockets);
+        ensureBoosterCapacity(boosters);
+        this.rocketCount = rockets;
+        this.boosterCount = boosters;
+        this.tick = tick;
+        this.finished = finished;
+        this.phase = phase;
+        this.phaseGoal = phaseGoal;
+        this.layout = 0;
+    }
+
+    String[] ids() {
+        return ids;
+    }
+
+    int[] offsets() {
+        return offsets;
+    }
+
+    int[] maxPowers() {
+        return max;
+    }
+
+    int[] goals() {
+        return goal;
+    }
+
+    int[] acumPowers() {
+        return acum;
+    }
+
+    long[] finishTicks() {
+        return finishTick;
+    }
+
+    int[] finishOrder() {
+        return finishOrder;
+    }
+
+    int[] currentPowers() {
+        return current;
+    }
+
+    byte[] states() {
+        return state;
+    }
+
+    private void ensureRocketCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int size = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, size);
+        offsets = Arrays.copyOf(offsets, size + 1);
+        goal = Arrays.copyOf(goal, size);
+        acum = Arrays.copyOf(acum, size);
+        finishTick = Arrays.copyOf(finishTick, size);
+        finishOrder = Arrays.copyOf(finishOrder, size);
+    }
+
+    private void ensureBoosterCapacity(int capacity) {
+        if (capacity <= current.length) {
+            return;
+        }
+        int size = Math.max(capacity, current.length * 2);
+        current = Arrays.copyOf(current, size);
+        max = Arrays.copyOf(max, size);
+        state = Arrays.copyOf(state, size);
+    }
+
+    /**
+     * Comienza una nueva fase para todos los cohetes de la flota
+     *
+     * @param state, FORWARD para acelerar o BACK para frenar
+     * @param goalPower, potencia objetivo
+     */
+    public void startPhase(StateRace state, int goalPower) {
+        finished = 0;
+        phase = state;
+        phaseGoal = goalPower;
+        for (int r = 0; r < rocketCount; r++) {
+            startPhase(r, state, goalPower);
+        }
+    }
+
+    /**
+     * Comienza una nueva fase para un cohete de la flota. Si el cohete ya esta en la potencia
+     * objetivo y alguno de sus propulsores puede moverse, el primero que se mueve la sobrepasa,
+     * sea cual sea el orden en que se recorren, por lo que falla ya con ese paso aplicado (ver
+     * RaceSolver.checkReachable)
+     *
+     * @param r, indice del cohete
+     * @param state, FORWARD para acelerar o BACK para frenar
+     * @param goalPower, potencia objetivo
+     */
+    public void startPhase(int r, StateRace state, int goalPower) {
+        goal[r] = goalPower;
+        finishTick[r] = -1;
+        Arrays.fill(this.state, offsets[r], offsets[r + 1], encode(state));
+        if (acum[r] == goalPower) {
+            for (int b = offsets[r]; b < offsets[r + 1]; b++) {
+                int n = Booster.nextPower(state, current[b], max[b]);
+                if (n != current[b]) {
+                    acum[r] += n - current[b];
+                    current[b] = n;
+                    fail(r);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Avanza toda la flota un tick: cada cohete recorre sus propulsores en orden, cada propulsor
+     * aplica un paso de potencia y el cohete se detiene al alcanzar la potencia objetivo
+     *
+     * @return true si algun cohete sigue en carrera tras el tick
+     */
+    public boolean step() {
+        tick++;
+        boolean racing = false;
+        for (int r = 0; r < rocketCount; r++) {
+            if (stepRocket(r)) {
+                racing = true;
+            } else if (finishTick[r] == tick) {
+                finishOrder[finished++] = r;
+            }
+        }
+        return racing;
+    }
+
+    /**
+     * Avanza toda la flota un tick repartiendo el trabajo en un ForkJoinPool. Los cohetes se
+     * agrupan en bloques de unos grain propulsores; un cohete con mas propulsores que grain se
+     * divide a su vez en rangos de propulsores. El orden de llegada se reduce al final del tick
+     * recorriendo los cohetes por indice, por lo que el resultado es identico al de step()
+     *
+     * @param pool, ForkJoinPool en el que se ejecuta el tick
+     * @return true si algun cohete sigue en carrera tras el tick
+     */
+    public boolean step(ForkJoinPool pool) {
+        tick++;
+        boolean racing = pool.invoke(new RocketRangeTask(0, rocketCount));
+        for (int r = 0; r < rocketCount; r++) {
+            if (finishTick[r] == tick) {
+                finishOrder[finished++] = r;
+            }
+        }
+        return racing;
+    }
+
+    /**
+     * Fija el tamaño de los bloques de trabajo del modo paralelo
+     *
+     * @param grain, numero de propulsores a partir del cual un bloque se divide
+     */
+    public void setGrain(int grain) {
+        if (grain <= 0) {
+            throw new IllegalArgumentException("grain ha de ser mayor que 0");
+        }
+        this.grain = grain;
+    }
+
+    /**
+     * Avanza un cohete un tick. Como Rocket.tick(), el cohete falla si tras un paso ha
+     * sobrepasado la potencia objetivo o si al terminar el tick ninguno de sus propulsores puede
+     * dar mas pasos (ver Rocket.checkFailure)
+     *
+     * @param r, indice del cohete
+     * @return true si el cohete sigue en carrera tras el tick
+     */
+    boolean stepRocket(int r) {
+        int a = acum[r];
+        int g = goal[r];
+        int end = offsets[r + 1];
+        boolean movable = false;
+        for (int b = offsets[r]; b < end; b++) {
+            byte s = state[b];
+            if (s != FORWARD && s != BACK) {
+                acum[r] = a;
+                return false;
+            }
+            StateRace direction = STATES[s - 1];
+            int c = current[b];
+            int n = Booster.nextPower(direction, c, max[b]);
+            current[b] = n;
+            a += n - c;
+            if (a == g) {
+                acum[r] = a;
+                finish(r);
+                return false;
+            }
+            if (s == FORWARD ? a > g : a < g) {
+                acum[r] = a;
+                fail(r);
+                return false;
+            }
+            movable |= Booster.nextPower(direction, n, max[b]) != n;
+        }
+        acum[r] = a;
+        if (!movable) {
+            fail(r);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Marca un cohete como llegado a la potencia objetivo en el tick actual
+     *
+     * @param r, indice del cohete
+     */
+    void finish(int r) {
+        Arrays.fill(state, offsets[r], offsets[r + 1], FINISH);
+        finishTick[r] = tick;
+    }
+
+    /**
+     * Marca un cohete como fallido en la fase en curso: no puede alcanzar la potencia objetivo,
+     * por lo que sus propulsores pasan a FINISH sin tick de llegada
+     *
+     * @param r, indice del cohete
+     */
+    void fail(int r) {
+        Arrays.fill(state, offsets[r], offsets[r + 1], FINISH);
+    }
+
+    /**
+     * Avanza la flota tick a tick hasta que todos los cohetes alcanzan la potencia objetivo o
+     * fallan (ver stepRocket), o se alcanza el numero maximo de ticks
+     *
+     * @param state, FORWARD para acelerar o BACK para frenar
+     * @param goalPower, potencia objetivo
+     * @param maxTicks, numero maximo de ticks
+     * @return numero de ticks de la fase
+     */
+    public long runPhase(StateRace state, int goalPower, long maxTicks) {
+        startPhase(state, goalPower);
+        long start = tick;
+        while (tick - start < maxTicks && step()) {
+            // cada step() avanza un tick
+        }
+        return tick - start;
+    }
+
+    /**
+     * Igual que runPhase(StateRace, int, long), avanzando cada tick en paralelo
+     *
+     * @param state, FORWARD para acelerar o BACK para frenar
+     * @param goalPower, potencia objetivo
+     * @param maxTicks, numero maximo de ticks
+     * @param pool, ForkJoinPool en el que se ejecutan los ticks
+     * @return numero de ticks de la fase
+     */
+    public long runPhase(StateRace state, int goalPower, long maxTicks, ForkJoinPool pool) {
+        startPhase(state, goalPower);
+        long start = tick;
+        while (tick - start < maxTicks && step(pool)) {
+            // cada step(pool) avanza un tick
+        }
+        return tick - start;
+    }
+
+    /**
+     * Avanza un cohete con mas propulsores que grain dividiendo sus propulsores en rangos:
+     *
+     * 1. en paralelo, cada rango calcula sin modificar nada la suma de sus variaciones y el minimo
+     *    y maximo de la suma parcial tras cada paso, hasta el primer propulsor sin fase si lo hay
+     * 2. en secuencia, recorriendo los rangos, se localiza el rango en el que la potencia acumulada
+     *    pasa por la potencia objetivo: al variar de 1 en 1, pasa por ella si esta entre el minimo
+     *    y el maximo. Solo ese rango se recorre paso a paso para encontrar el propulsor exacto
+     * 3. en paralelo, se aplican los pasos hasta ese propulsor
+     *
+     * Como cada paso varia la potencia en 1 en el sentido de la fase, un cohete solo puede
+     * sobrepasar la potencia objetivo en el primer propulsor del tick si la fase comienza en ella
+     * o mas alla; ese caso se avanza con stepRocket. Si no la alcanza y ningun propulsor puede dar
+     * mas pasos, el cohete falla como en stepRocket
+     *
+     * @param r, indice del cohete
+     * @return true si el cohete sigue en carrera tras el tick
+     */
+    private boolean stepRocketParallel(int r) {
+        int from = offsets[r];
+        int to = offsets[r + 1];
+        if (state[from] == FORWARD ? acum[r] >= goal[r] : state[from] == BACK && acum[r] <= goal[r]) {
+            return stepRocket(r);
+        }
+        List<ChunkTask> chunks = new ArrayList<>();
+        for (int lo = from; lo < to; lo += grain) {
+            chunks.add(new ChunkTask(lo, Math.min(lo + grain, to)));
+        }
+        ForkJoinTask.invokeAll(chunks);
+
+        int a = acum[r];
+        int g = goal[r];
+        int cut = to;
+        boolean racing = true;
+        boolean reached = false;
+        boolean movable = false;
+        for (ChunkTask chunk : chunks) {
+            movable |= chunk.movable;
+            if (g - a >= chunk.min && g - a <= chunk.max) {
+                for (int b = chunk.lo; b < chunk.stop; b++) {
+                    int c = current[b];
+                    a += Booster.nextPower(STATES[state[b] - 1], c, max[b]) - c;
+                    if (a == g) {
+                        cut = b + 1;
+                        break;
+                    }
+                }
+                reached = true;
+                racing = false;
+                break;
+            }
+            a += chunk.sum;
+            if (chunk.stop < chunk.hi) {
+                cut = chunk.stop;
+                racing = false;
+                break;
+            }
+        }
+        List<ApplyTask> apply = new ArrayList<>();
+        for (int lo = from; lo < cut; lo += grain) {
+            apply.add(new ApplyTask(lo, Math.min(lo + grain, cut)));
+        }
+        ForkJoinTask.invokeAll(apply);
+        acum[r] = a;
+        if (reached) {
+            finish(r);
+        } else if (racing && !movable) {
+            fail(r);
+            racing = false;
+        }
+        return racing;
+    }
+
+    /**
+     * Avanza en paralelo los cohetes del rango [lo, hi)
+     */
+    private class RocketRangeTask extends RecursiveTask<Boolean> {
+        private static final long serialVersionUID = 1L;
+
+        private final int lo;
+        private final int hi;
+
+        RocketRangeTask(int lo, int hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected Boolean compute() {
+            if (hi - lo > 1 && offsets[hi] - offsets[lo] > grain) {
+                int mid = (lo + hi) >>> 1;
+                RocketRangeTask left = new RocketRangeTask(lo, mid);
+                left.fork();
+                boolean right = new RocketRangeTask(mid, hi).compute();
+                return left.join() | right;
+            }
+            boolean racing = false;
+            for (int r = lo; r < hi; r++) {
+                boolean rocketRacing = offsets[r + 1] - offsets[r] > grain
+                        ? stepRocketParallel(r) : stepRocket(r);
+                racing |= rocketRacing;
+            }
+            return racing;
+        }
+    }
+
+    /**
+     * Calcula, sin modificar los arrays, la suma de las variaciones de un rango de propulsores,
+     * el minimo y maximo de la suma parcial tras cada paso y si algun propulsor podra dar otro paso
+     */
+    private class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int lo;
+        private final int hi;
+        private int stop;
+        private int sum;
+        private boolean movable;
+        private int min = Integer.MAX_VALUE;
+        private int max = Integer.MIN_VALUE;
+
+        ChunkTask(int lo, int hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            int p = 0;
+            int b = lo;
+            for (; b < hi; b++) {
+                byte s = state[b];
+                if (s != FORWARD && s != BACK) {
+                    break;
+                }
+                int c = current[b];
+                int n = Booster.nextPower(STATES[s - 1], c, Fleet.this.max[b]);
+                p += n - c;
+                movable |= Booster.nextPower(STATES[s - 1], n, Fleet.this.max[b]) != n;
+                min = Math.min(min, p);
+                max = Math.max(max, p);
+            }
+            stop = b;
+            sum = p;
+        }
+    }
+
+    /**
+     * Aplica un paso de potencia a cada propulsor del rango [lo, hi)
+     */
+    private class ApplyTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int lo;
+        private final int hi;
+
+        ApplyTask(int lo, int hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            for (int b = lo; b < hi; b++) {
+                current[b] = Booster.nextPower(STATES[state[b] - 1], current[b], max[b]);
+            }
+        }
+    }
+
+    /**
+     * @param state, enum de tipo StateRace, puede ser null
+     * @return codigo de estado guardado en el array de estados
+     */
+    public static byte encode(StateRace state) {
+        return state == null ? NO_STATE : (byte) (state.ordinal() + 1);
+    }
+
+    /**
+     * @param code, codigo de estado guardado en el array de estados
+     * @return enum de tipo StateRace, null si no tiene fase asignada
+     */
+    public static StateRace decode(byte code) {
+        return code == NO_STATE ? null : STATES[code - 1];
+    }
+
+    public int getRocketCount() {
+        return rocketCount;
+    }
+
+    public int getBoosterCount() {
+        return boosterCount;
+    }
+
+    /**
+     * @return tick actual de la flota
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * @return estado de la fase en curso de la flota, null si aun no ha comenzado ninguna
+     */
+    public StateRace getPhase() {
+        return phase;
+    }
+
+    /**
+     * @return potencia objetivo de la fase en curso de la flota
+     */
+    public int getPhaseGoal() {
+        return phaseGoal;
+    }
+
+    /**
+     * @return numero de cohetes que han alcanzado la potencia objetivo en la fase en curso
+     */
+    public int getFinishedCount() {
+        return finished;
+    }
+
+    /**
+     * @param position, posicion de llegada, empezando en 0
+     * @return indice del cohete que llego en esa posicion
+     */
+    public int getFinishOrder(int position) {
+        return finishOrder[position];
+    }
+
+    /**
+     * @param r, indice del cohete
+     * @return tick en el que el cohete alcanzo la potencia objetivo, -1 si aun no la ha alcanzado
+     */
+    public long getFinishTick(int r) {
+        return finishTick[r];
+    }
+
+    /**
+     * @param r, indice del cohete
+     * @return true si el cohete ha fallado en la fase en curso: sus propulsores estan en FINISH
+     * sin haber alcanzado la potencia objetivo
+     */
+    public boolean isFailed(int r) {
+        return offsets[r + 1] > offsets[r] && state[offsets[r]] == FINISH && acum[r] != goal[r];
+    }
+
+    /**
+     * @param r, indice del cohete
+     * @return identificador del cohete
+     */
+    public String getId(int r) {
+        return ids[r];
+    }
+
+    /**
+     * @param r, indice del cohete
+     * @return potencia maxima de cada propulsor del cohete, en una copia
+     */
+    public int[] getMaxPower(int r) {
+        return Arrays.copyOfRange(max, offsets[r], offsets[r + 1]);
+    }
+
+    /**
+     * @param r, indice del cohete
+     * @return indice del primer propulsor del cohete en los arrays de propulsores
+     */
+    public int offset(int r) {
+        return offsets[r];
+    }
+
+    /**
+     * @param r, indice del cohete
+     * @return vista de tipo Rocket sobre los datos del cohete
+     */
+    public RocketView rocket(int r) {
+        return new RocketView(r);
+    }
+
+    /**
+     * Vista de un cohete de la flota, con los mismos metodos de consulta que la clase Rocket
+     */
+    public class RocketView {
+        private final int r;
+
+        RocketView(int r) {
+            this.r = r;
+        }
+
+        public String getId() {
+            return ids[r];
+        }
+
+        public int getNumberOfBoosters() {
+            return offsets[r + 1] - offsets[r];
+        }
+
+        public Integer getGoalPower() {
+            return goal[r];
+        }
+
+        public int getAcumPower() {
+            return acum[r];
+        }
+
+        public BoosterView getBooster(int i) {
+            return new BoosterView(r, offsets[r] + i);
+        }
+
+        @Override
+        public String toString() {
+            return "Rocket{" +
+                    "id='" + getId() + '\'' +
+                    ", numberOfBoosters=" + getNumberOfBoosters() +
+                    '}';
+        }
+    }
+
+    /**
+     * Vista de un propulsor de la flota, con los mismos metodos que la clase Booster
+     */
+    public class BoosterView {
+        private final int r;
+        private final int b;
+
+        BoosterView(int r, int b) {
+            this.r = r;
+            this.b = b;
+        }
+
+        public int getCurrentPower() {
+            return current[b];
+        }
+
+        public int getMaxPower() {
+            return max[b];
+        }
+
+        public StateRace getState() {
+            return decode(state[b]);
+        }
+
+        public int powerUp() {
+            return apply(StateRace.FORWARD);
+        }
+
+        public int powerDown() {
+            return apply(StateRace.BACK);
+        }
+
+        private int apply(StateRace step) {
+            int c = current[b];
+            int n = Booster.nextPower(step, c, max[b]);
+            current[b] = n;
+            acum[r] += n - c;
+            return n;
+        }
+
+        @Override
+        public String toString() {
+            return "Booster{" +
+                    "maxPower=" + max[b] +
+                    ", currentPower=" + current[b] +
+                    '}';
+        }
+    }
+}
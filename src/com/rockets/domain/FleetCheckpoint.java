@@ -0,0 +1,519 @@
+package com.rockets.domain;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Clase de la capa Domain
+ *
+ * Checkpoint binario de una flota (Fleet): configuracion de todos los cohetes y propulsores y
+ * estado de la carrera en curso (potencia actual y estado de cada propulsor, potencia objetivo y
+ * acumulada de cada cohete, tick, orden de llegada y fase en curso), para reanudarla tras
+ * reiniciar el proceso sin volver a crear cada cohete con la factoria
+ *
+ * Fichero, en little-endian:
+ * - cabecera de HEADER_SIZE bytes: magic, version, sello de la disposicion, numero de cohetes y
+ *   de propulsores, posicion y longitud de los huecos de estado, hueco confirmado y su secuencia
+ * - disposicion: rangos de propulsores, potencia maxima de cada propulsor y, por cohete, la
+ *   longitud de su id seguida de todos los ids como char
+ * - dos huecos de estado de la misma longitud: secuencia, tick, numero de llegadas, fase en curso
+ *   y su potencia objetivo, y las columnas de la flota (tick de llegada, potencia objetivo,
+ *   potencia acumulada, orden de llegada, potencia actual y estado de cada propulsor)
+ *
+ * La escritura es incremental: mientras no cambia el sello de la disposicion (ver Fleet.getLayout
+ * y Race.getLayout) cada checkpoint escribe solo el estado, en el hueco no confirmado, y tras
+ * forzarlo a disco confirma ese hueco en la cabecera. Si cambia, el fichero completo (cabecera,
+ * disposicion y estado en el primer hueco) se escribe en un fichero temporal que, tras forzarlo a
+ * disco, sustituye al anterior. En ambos casos, si el proceso se detiene a mitad de la escritura,
+ * read recupera el checkpoint anterior
+ *
+ * Con submit la simulacion solo se detiene lo que tarda en copiar las columnas de la flota en una
+ * flota de reserva (Fleet.copyTo, la disposicion solo si ha cambiado); un hilo propio la escribe
+ * en segundo plano por bloques. Si se piden checkpoints mas rapido de lo que se escriben, los
+ * pendientes se sustituyen por el mas reciente. read lee cada columna de una vez, con el fichero
+ * proyectado en memoria, directamente en los arrays de la flota
+ */
+public class FleetCheckpoint implements Closeable {
+    private static final int MAGIC = 0x464C5443;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_HEADER_SIZE = 32;
+    private static final int ALIGNMENT = 4096;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int MAP_CHUNK = 1 << 28;
+    private static final long COMMITTED_OFFSET = 40;
+
+    private final Path path;
+    private FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final ExecutorService writer;
+    private final Object io = new Object();
+    private long layout = -1;
+    private long slotOffset;
+    private long slotSize;
+    private int committed = -1;
+    private long sequence;
+    private long bytesWritten;
+
+    private Fleet pending;
+    private Fleet spare;
+    private CompletableFuture<Long> pendingDone;
+    private boolean scheduled;
+    private boolean closed;
+    private long coalesced;
+
+    /**
+     * @param path, fichero del checkpoint, se crea o se sobreescribe con el primer checkpoint
+     * @throws IOException si no se puede abrir el fichero
+     */
+    public FleetCheckpoint(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.writer = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "fleet-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Pide un checkpoint de la flota en segundo plano. Copia la flota antes de volver, por lo que
+     * puede seguir avanzando en cuanto termina la llamada
+     *
+     * @param fleet, flota de la que se hace el checkpoint
+     * @return CompletableFuture que se completa con la secuencia del checkpoint cuando esta en disco,
+     * o con el de uno posterior si lo sustituye antes de escribirse
+     * @throws IllegalStateException si el checkpoint esta cerrado
+     */
+    public CompletableFuture<Long> submit(Fleet fleet) {
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Checkpoint cerrado");
+            }
+            if (pending == null) {
+                pending = spare != null ? spare : new Fleet(fleet.getRocketCount(), fleet.getBoosterCount());
+                spare = null;
+                pendingDone = new CompletableFuture<>();
+            } else {
+                coalesced++;
+            }
+            fleet.copyTo(pending);
+            if (!scheduled) {
+                scheduled = true;
+                writer.execute(this::drain);
+            }
+            return pendingDone;
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Fleet fleet;
+            CompletableFuture<Long> done;
+            synchronized (this) {
+                if (pending == null) {
+                    scheduled = false;
+                    notifyAll();
+                    return;
+                }
+                fleet = pending;
+                done = pendingDone;
+                pending = null;
+                pendingDone = null;
+            }
+            try {
+                done.complete(write(fleet));
+            } catch (IOException | RuntimeException e) {
+                done.completeExceptionally(e);
+            }
+            synchronized (this) {
+                spare = fleet;
+            }
+        }
+    }
+
+    /**
+     * Escribe un checkpoint de la flota en el hilo que llama, con la flota detenida
+     *
+     * @param fleet, flota de la que se hace el checkpoint
+     * @return secuencia del checkpoint
+     * @throws IOException si no se puede escribir el fichero
+     */
+    public long write(Fleet fleet) throws IOException {
+        synchronized (io) {
+            long seq = sequence + 1;
+            if (fleet.getLayout() != layout) {
+                replace(fleet, seq);
+            } else {
+                int slot = committed == 0 ? 1 : 0;
+                writeSlot(fleet, slotOffset + slot * slotSize, seq);
+                channel.force(false);
+                buffer.clear();
+                buffer.putInt(slot).putInt(0).putLong(seq).flip();
+                writeFully(COMMITTED_OFFSET);
+                channel.force(false);
+                committed = slot;
+            }
+            sequence = seq;
+            return seq;
+        }
+    }
+
+    /**
+     * Escribe el fichero completo con la disposicion nueva en un fichero temporal y, tras forzarlo a
+     * disco, lo mueve sobre el anterior, que hasta entonces sigue siendo el checkpoint confirmado
+     */
+    private void replace(Fleet fleet, long seq) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        FileChannel previous = channel;
+        long previousOffset = slotOffset;
+        long previousSize = slotSize;
+        try {
+            channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+            try {
+                writeLayout(fleet, seq);
+                writeSlot(fleet, slotOffset, seq);
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            channel = previous;
+            slotOffset = previousOffset;
+            slotSize = previousSize;
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        previous.close();
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        layout = fleet.getLayout();
+        committed = 0;
+    }
+
+    private void writeLayout(Fleet fleet, long seq) throws IOException {
+        int rockets = fleet.getRocketCount();
+        int boosters = fleet.getBoosterCount();
+        String[] ids = fleet.ids();
+        int[] lengths = new int[rockets];
+        long chars = 0;
+        for (int r = 0; r < rockets; r++) {
+            lengths[r] = ids[r].length();
+            chars += lengths[r];
+        }
+        long layoutSize = (long) (rockets + 1) * Integer.BYTES + (long) boosters * Integer.BYTES
+                + (long) rockets * Integer.BYTES + chars * Character.BYTES;
+        slotOffset = align(HEADER_SIZE + layoutSize);
+        slotSize = align(slotSize(rockets, boosters));
+
+        buffer.clear();
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(fleet.getLayout())
+                .putInt(rockets).putInt(boosters).putLong(slotOffset).putLong(slotSize)
+                .putInt(0).putInt(0).putLong(seq).putLong(0).flip();
+        writeFully(0);
+
+        long position = put(fleet.offsets(), rockets + 1, HEADER_SIZE);
+        position = put(fleet.maxPowers(), boosters, position);
+        position = put(lengths, rockets, position);
+        char[] block = new char[BUFFER_SIZE / Character.BYTES];
+        int used = 0;
+        for (int r = 0; r < rockets; r++) {
+            String id = ids[r];
+            for (int from = 0; from < id.length(); ) {
+                int n = Math.min(id.length() - from, block.length - used);
+                id.getChars(from, from + n, block, used);
+                used += n;
+                from += n;
+                if (used == block.length) {
+                    position = put(block, used, position);
+                    used = 0;
+                }
+            }
+        }
+        put(block, used, position);
+    }
+
+    private void writeSlot(Fleet fleet, long position, long seq) throws IOException {
+        int rockets = fleet.getRocketCount();
+        int boosters = fleet.getBoosterCount();
+        buffer.clear();
+        buffer.putLong(seq).putLong(fleet.getTick()).putInt(fleet.getFinishedCount())
+                .putInt(Fleet.encode(fleet.getPhase())).putInt(fleet.getPhaseGoal()).putInt(0).flip();
+        position += writeFully(position);
+        position = put(fleet.finishTicks(), rockets, position);
+        position = put(fleet.goals(), rockets, position);
+        position = put(fleet.acumPowers(), rockets, position);
+        position = put(fleet.finishOrder(), fleet.getFinishedCount(), position);
+        position += (long) (rockets - fleet.getFinishedCount()) * Integer.BYTES;
+        position = put(fleet.currentPowers(), boosters, position);
+        put(fleet.states(), boosters, position);
+    }
+
+    private static long slotSize(int rockets, int boosters) {
+        return SLOT_HEADER_SIZE + (long) rockets * (Long.BYTES + 3 * Integer.BYTES)
+                + (long) boosters * (Integer.BYTES + 1);
+    }
+
+    private static long align(long position) {
+        return (position + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private long put(int[] values, int length, long position) throws IOException {
+        for (int from = 0; from < length; ) {
+            int n = Math.min(length - from, BUFFER_SIZE / Integer.BYTES);
+            buffer.clear();
+            buffer.asIntBuffer().put(values, from, n);
+            buffer.limit(n * Integer.BYTES);
+            position += writeFully(position);
+            from += n;
+        }
+        return position;
+    }
+
+    private long put(long[] values, int length, long position) throws IOException {
+        for (int from = 0; from < length; ) {
+            int n = Math.min(length - from, BUFFER_SIZE / Long.BYTES);
+            buffer.clear();
+            buffer.asLongBuffer().put(values, from, n);
+            buffer.limit(n * Long.BYTES);
+            position += writeFully(position);
+            from += n;
+        }
+        return position;
+    }
+
+    private long put(char[] values, int length, long position) throws IOException {
+        for (int from = 0; from < length; ) {
+            int n = Math.min(length - from, BUFFER_SIZE / Character.BYTES);
+            buffer.clear();
+            buffer.asCharBuffer().put(values, from, n);
+            buffer.limit(n * Character.BYTES);
+            position += writeFully(position);
+            from += n;
+        }
+        return position;
+    }
+
+    private long put(byte[] values, int length, long position) throws IOException {
+        for (int from = 0; from < length; ) {
+            int n = Math.min(length - from, BUFFER_SIZE);
+            buffer.clear();
+            buffer.put(values, from, n).flip();
+            position += writeFully(position);
+            from += n;
+        }
+        return position;
+    }
+
+    /**
+     * Escribe el contenido del buffer en la posicion indicada
+     *
+     * @return numero de bytes escritos
+     */
+    private int writeFully(long position) throws IOException {
+        int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        bytesWritten += length;
+        return length;
+    }
+
+    /**
+     * Lee el ultimo checkpoint confirmado de un fichero
+     *
+     * @param path, fichero del checkpoint
+     * @return flota con la configuracion y el estado del checkpoint
+     * @throws IOException si no se puede leer el fichero, no tiene el formato esperado o aun no
+     * tiene ningun checkpoint confirmado
+     */
+    public static Fleet read(Path path) throws IOException {
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && in.read(header, header.position()) > 0) {
+                // lee la cabecera completa
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt(0) != MAGIC) {
+                throw new IOException("No es un fichero de FleetCheckpoint: " + path);
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Version de FleetCheckpoint no soportada: " + header.getInt(4));
+            }
+            int rockets = header.getInt(16);
+            int boosters = header.getInt(20);
+            long slotOffset = header.getLong(24);
+            long slotSize = header.getLong(32);
+            int slot = header.getInt(40);
+            long seq = header.getLong(48);
+            if (slot != 0 && slot != 1) {
+                throw new IOException("El fichero no tiene ningun checkpoint confirmado: " + path);
+            }
+            long position = slotOffset + slot * slotSize;
+            if (slotSequence(in, position, rockets, boosters) != seq) {
+                // la confirmacion en la cabecera quedo a medias: el otro hueco es el ultimo completo
+                position = slotOffset + (1 - slot) * slotSize;
+                if (slotSequence(in, position, rockets, boosters) != seq) {
+                    throw new IOException("Checkpoint confirmado no valido: " + path);
+                }
+            }
+            long statePosition = position;
+
+            Fleet fleet = new Fleet(rockets, boosters);
+            position = get(in, HEADER_SIZE, fleet.offsets(), rockets + 1);
+            position = get(in, position, fleet.maxPowers(), boosters);
+            int[] lengths = new int[rockets];
+            position = get(in, position, lengths, rockets);
+            long chars = 0;
+            for (int length : lengths) {
+                chars += length;
+            }
+            if (chars > Integer.MAX_VALUE) {
+                throw new IOException("Identificadores de FleetCheckpoint demasiado largos");
+            }
+            char[] all = new char[(int) chars];
+            get(in, position, all);
+            String[] ids = fleet.ids();
+            int from = 0;
+            for (int r = 0; r < rockets; r++) {
+                ids[r] = new String(all, from, lengths[r]);
+                from += lengths[r];
+            }
+
+            position = statePosition;
+            ByteBuffer state = map(in, position, SLOT_HEADER_SIZE);
+            int finished = state.getInt(16);
+            fleet.load(rockets, boosters, state.getLong(8), finished,
+                    Fleet.decode((byte) state.getInt(20)), state.getInt(24));
+            position += SLOT_HEADER_SIZE;
+            position = get(in, position, fleet.finishTicks(), rockets);
+            position = get(in, position, fleet.goals(), rockets);
+            position = get(in, position, fleet.acumPowers(), rockets);
+            get(in, position, fleet.finishOrder(), finished);
+            position += (long) rockets * Integer.BYTES;
+            position = get(in, position, fleet.currentPowers(), boosters);
+            get(in, position, fleet.states(), boosters);
+            return fleet;
+        }
+    }
+
+    /**
+     * @return secuencia del hueco de estado que empieza en la posicion indicada, o -1 si el
+     * fichero no llega a contenerlo completo
+     */
+    private static long slotSequence(FileChannel in, long position, int rockets, int boosters)
+            throws IOException {
+        if (in.size() < position + slotSize(rockets, boosters)) {
+            return -1;
+        }
+        return map(in, position, Long.BYTES).getLong(0);
+    }
+
+    private static MappedByteBuffer map(FileChannel in, long position, long length) throws IOException {
+        MappedByteBuffer mapped = in.map(FileChannel.MapMode.READ_ONLY, position, length);
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        return mapped;
+    }
+
+    private static long get(FileChannel in, long position, int[] values, int length) throws IOException {
+        for (int from = 0; from < length; ) {
+            int n = Math.min(length - from, MAP_CHUNK / Integer.BYTES);
+            map(in, position, (long) n * Integer.BYTES).asIntBuffer().get(values, from, n);
+            position += (long) n * Integer.BYTES;
+            from += n;
+        }
+        return position;
+    }
+
+    private static long get(FileChannel in, long position, long[] values, int length) throws IOException {
+        for (int from = 0; from < length; ) {
+            int n = Math.min(length - from, MAP_CHUNK / Long.BYTES);
+            map(in, position, (long) n * Long.BYTES).asLongBuffer().get(values, from, n);
+            position += (long) n * Long.BYTES;
+            from += n;
+        }
+        return position;
+    }
+
+    private static long get(FileChannel in, long position, char[] values) throws IOException {
+        for (int from = 0; from < values.length; ) {
+            int n = Math.min(values.length - from, MAP_CHUNK / Character.BYTES);
+            map(in, position, (long) n * Character.BYTES).asCharBuffer().get(values, from, n);
+            position += (long) n * Character.BYTES;
+            from += n;
+        }
+        return position;
+    }
+
+    private static long get(FileChannel in, long position, byte[] values, int length) throws IOException {
+        for (int from = 0; from < length; ) {
+            int n = Math.min(length - from, MAP_CHUNK);
+            map(in, position, n).get(values, from, n);
+            position += n;
+            from += n;
+        }
+        return position;
+    }
+
+    /**
+     * @return numero de checkpoints escritos
+     */
+    public long getSequence() {
+        synchronized (io) {
+            return sequence;
+        }
+    }
+
+    /**
+     * @return numero total de bytes escritos en el fichero
+     */
+    public long getBytesWritten() {
+        synchronized (io) {
+            return bytesWritten;
+        }
+    }
+
+    /**
+     * @return numero de checkpoints pedidos con submit que se han sustituido por uno posterior antes de escribirse
+     */
+    public synchronized long getCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * Espera a que se escriban los checkpoints pendientes y cierra el fichero
+     *
+     * @throws IOException si no se puede cerrar el fichero
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            while (scheduled) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        writer.shutdown();
+        synchronized (io) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,653 @@
+package com.rockets.domain;
+
+import com.rockets.domain.event.EventType;
+import com.rockets.domain.metrics.RaceMetrics;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.RandomAccess;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Clase de la capa Domain
+ *
+ * Carrera de cohetes. Contiene el listado de objetos de tipo Rocket que participan en ella
+ * y controla, fase a fase, que cohetes han alcanzado la potencia objetivo
+ *
+ * Cada fase (acelerar o frenar hasta una potencia objetivo) tiene un CompletableFuture por cohete,
+ * que se completa cuando el cohete alcanza la potencia objetivo, y un CompletableFuture que se
+ * completa cuando lo han hecho todos. Quien lanza la fase puede esperar su fin con await() en
+ * lugar de dormir un tiempo fijo. Si un cohete ya no puede alcanzar la potencia objetivo su
+ * CompletableFuture se completa de forma excepcional, de modo que la fase termina igualmente.
+ * Las llegadas y los fallos se anotan antes de completar el CompletableFuture, para que quien
+ * espera el fin de la fase los vea todos
+ *
+ * Una fase puede empezar con la anterior aun en curso (cambio de potencia objetivo o de sentido):
+ * cada fase anota el numero de fase de cada cohete, y las llegadas y fallos de una fase anterior
+ * que aun lleguen se descartan
+ *
+ * Sustituye al contador static de cohetes pendientes: cada carrera lleva su propia cuenta,
+ * de forma que en una misma JVM pueden correr varias carreras a la vez
+ *
+ * Los cohetes se registran por su identificador en un ConcurrentHashMap, que da la busqueda en
+ * tiempo constante sin bloqueos (getRocket), y ocupan una posicion en un array que solo crece,
+ * con el coste amortizado de añadir constante. Al quitar un cohete (removeRocket) su posicion
+ * queda libre hasta la fase siguiente, en la que se compactan si hay mas libres que ocupadas.
+ * getRockets devuelve un listado inmutable, que se puede recorrer mientras otros hilos añaden o
+ * quitan cohetes: sin posiciones libres es una vista de las primeras posiciones del array, que
+ * no se modifican al añadir, y si no una copia. Quitar un cohete o compactar copia el array solo
+ * si hay una vista sobre el
+ *
+ * Las operaciones sobre un cohete (retarget, removeRocket) solo tocan su posicion en la fase en
+ * curso, sin recorrer el resto de cohetes
+ */
+public class Race {
+    private static final long SETTLED = 1L;
+
+    private final Map<String, Rocket> byId = new ConcurrentHashMap<>();
+    private Rocket[] slots = new Rocket[16];
+    private int used;
+    private int live;
+    private boolean shared;
+    private volatile List<Rocket> view = Collections.emptyList();
+    private volatile Phase phase = new Phase(null, 0, new Rocket[0], 0, 0);
+    private volatile long layout = Fleet.nextLayout();
+
+    /**
+     * Fase de la carrera, con su estado, su potencia objetivo y el seguimiento de llegadas
+     *
+     * status guarda, por posicion, el numero de fase del cohete desplazado un bit y en el bit mas
+     * bajo si ya ha llegado o fallado (SETTLED): comprobar la fase y anotar la llegada es un solo
+     * compareAndSet, por lo que una llegada tardia de una fase anterior nunca ocupa el lugar de la
+     * fase nueva. Las posiciones libres empiezan como SETTLED, con la fase 0, que ningun cohete tiene
+     */
+    private static class Phase {
+        private final StateRace state;
+        private final Queue<Rocket> failures = new ConcurrentLinkedQueue<>();
+        private final int goalPower;
+        private final CompletableFuture<?>[] done;
+        private final CompletableFuture<Void> all;
+        private final AtomicInteger pending;
+        private final Queue<Rocket> arrivals = new ConcurrentLinkedQueue<>();
+        private final long startNanos = System.nanoTime();
+        private final long[] startTicks;
+        private final long[] finishTicks;
+        private final AtomicLongArray status;
+        private final Map<Integer, Retarget> retargets = new ConcurrentHashMap<>();
+
+        Phase(StateRace state, int goalPower, Rocket[] slots, int size, int live) {
+            this.state = state;
+            this.goalPower = goalPower;
+            this.startTicks = new long[size];
+            this.finishTicks = new long[size];
+            Arrays.fill(finishTicks, -1);
+            this.done = new CompletableFuture<?>[size];
+            this.status = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                done[i] = new CompletableFuture<Void>();
+                if (slots[i] == null) {
+                    status.set(i, SETTLED);
+                    done[i].complete(null);
+                }
+            }
+            this.all = CompletableFuture.allOf(done);
+            this.pending = new AtomicInteger(live);
+        }
+    }
+
+    /**
+     * Cambio de potencia objetivo de un solo cohete que ya habia llegado o fallado en la fase en
+     * curso, o que no participaba en ella: ya no cuenta en la fase de la carrera y tiene su propio
+     * CompletableFuture
+     */
+    private static class Retarget {
+        private final int epoch;
+        private final long startNanos = System.nanoTime();
+        private final long startTick;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Retarget(int epoch, long startTick) {
+            this.epoch = epoch;
+            this.startTick = startTick;
+        }
+    }
+
+    /**
+     * Añade un cohete a la carrera, participara a partir de la siguiente fase
+     *
+     * @param rocket, objeto de tipo Rocket
+     * @throws IllegalArgumentException si ya hay en la carrera un cohete con el mismo identificador
+     */
+    public synchronized void addRocket(Rocket rocket) {
+        if (byId.putIfAbsent(rocket.getId(), rocket) != null) {
+            throw new IllegalArgumentException("Ya existe un cohete con el identificador " + rocket.getId());
+        }
+        if (used == slots.length) {
+            slots = Arrays.copyOf(slots, slots.length * 2);
+            shared = false;
+        }
+        rocket.setRace(this, used);
+        slots[used++] = rocket;
+        live++;
+        view = null;
+        layout = Fleet.nextLayout();
+    }
+
+    /**
+     * Quita un cohete de la carrera: deja de contar en la fase en curso, cuyo CompletableFuture
+     * se cancela, y el cohete y sus propulsores se detienen (ver Rocket.detach). Su posicion queda
+     * libre, los demas cohetes conservan la suya hasta la fase siguiente
+     *
+     * @param id, String identificador del cohete
+     * @return cohete quitado, vacio si no hay ninguno con ese identificador
+     */
+    public synchronized Optional<Rocket> removeRocket(String id) {
+        Rocket rocket = byId.remove(id);
+        if (rocket == null) {
+            return Optional.empty();
+        }
+        int index = rocket.getRaceIndex();
+        unshare();
+        slots[index] = null;
+        live--;
+        view = null;
+        layout = Fleet.nextLayout();
+        Phase current = this.phase;
+        if (index < current.done.length) {
+            long status = current.status.get(index);
+            if ((status & SETTLED) == 0 && current.status.compareAndSet(index, status, status | SETTLED)) {
+                current.pending.decrementAndGet();
+                current.done[index].cancel(false);
+            }
+        }
+        Retarget retarget = current.retargets.remove(index);
+        if (retarget != null) {
+            retarget.done.cancel(false);
+        }
+        rocket.detach();
+        rocket.setRace(null, -1);
+        return Optional.of(rocket);
+    }
+
+    /**
+     * @param id, String identificador del cohete
+     * @return cohete de la carrera con ese identificador, vacio si no hay ninguno
+     */
+    public Optional<Rocket> getRocket(String id) {
+        return Optional.ofNullable(byId.get(id));
+    }
+
+    /**
+     * @return numero de cohetes que participan en la carrera
+     */
+    public int getRocketCount() {
+        return byId.size();
+    }
+
+    /**
+     * @return listado inmutable de objetos de tipo Rocket que participan en la carrera, por su
+     * posicion. Es una copia: no cambia si despues se añaden o quitan cohetes
+     */
+    public List<Rocket> getRockets() {
+        List<Rocket> rockets = view;
+        if (rockets != null) {
+            return rockets;
+        }
+        synchronized (this) {
+            if (view == null) {
+                if (used == live) {
+                    view = new SlotView(slots, used);
+                    shared = true;
+                } else {
+                    List<Rocket> copy = new ArrayList<>(live);
+                    for (int i = 0; i < used; i++) {
+                        if (slots[i] != null) {
+                            copy.add(slots[i]);
+                        }
+                    }
+                    view = Collections.unmodifiableList(copy);
+                }
+            }
+            return view;
+        }
+    }
+
+    /**
+     * Copia el array de posiciones antes de modificar una posicion ya ocupada si hay una vista sobre el
+     */
+    private void unshare() {
+        if (shared) {
+            slots = slots.clone();
+            shared = false;
+        }
+    }
+
+    /**
+     * Vista inmutable de las primeras posiciones del array, todas ocupadas
+     */
+    private static final class SlotView extends AbstractList<Rocket> implements RandomAccess {
+        private final Rocket[] slots;
+        private final int size;
+
+        SlotView(Rocket[] slots, int size) {
+            this.slots = slots;
+            this.size = size;
+        }
+
+        @Override
+        public Rocket get(int index) {
+            return slots[Objects.checkIndex(index, size)];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Si hay mas posiciones libres que ocupadas, mueve los cohetes a las primeras posiciones,
+     * conservando su orden. Solo al empezar una fase, que descarta las llegadas de la anterior
+     */
+    private void compact() {
+        if (used - live <= live) {
+            return;
+        }
+        unshare();
+        int next = 0;
+        for (int i = 0; i < used; i++) {
+            Rocket rocket = slots[i];
+            if (rocket != null) {
+                slots[i] = null;
+                slots[next] = rocket;
+                rocket.setRace(this, next++);
+            }
+        }
+        used = next;
+        if (slots.length > 16 && used < slots.length / 4) {
+            slots = Arrays.copyOf(slots, Math.max(16, used * 2));
+        }
+        view = null;
+        layout = Fleet.nextLayout();
+    }
+
+    /**
+     * @return sello de la disposicion de la carrera (cohetes, sus posiciones y la potencia maxima de
+     * sus propulsores), cambia al añadir, quitar o recolocar cohetes y al fijar la potencia maxima de
+     * alguno. Fleet.of(Race) lo conserva, de modo que FleetCheckpoint solo vuelve a escribir la
+     * disposicion si ha cambiado
+     */
+    long getLayout() {
+        return layout;
+    }
+
+    /**
+     * Anota que ha cambiado la potencia maxima de los propulsores de un cohete (ver getLayout)
+     */
+    void layoutChanged() {
+        layout = Fleet.nextLayout();
+    }
+
+    /**
+     * Comienza una fase de la carrera: fija la potencia objetivo de cada cohete y el estado de
+     * sus propulsores. Si la fase anterior no habia terminado, sus cohetes pendientes se cancelan
+     *
+     * @param state, FORWARD para acelerar, BACK para frenar
+     * @param goalPower, potencia objetivo que ha de alcanzar cada cohete
+     * @return CompletableFuture que se completa cuando todos los cohetes alcanzan la potencia objetivo
+     */
+    public synchronized CompletableFuture<Void> startPhase(StateRace state, int goalPower) {
+        Phase next = open(state, goalPower);
+        for (int i = 0; i < used; i++) {
+            Rocket rocket = slots[i];
+            if (rocket != null) {
+                next.startTicks[i] = rocket.getClock().now();
+                // solo esta clase empieza fases, con su monitor: la fase del cohete sera la siguiente a la
+                // actual, y se anota antes de empezarla para no descartar una llegada inmediata
+                next.status.set(i, (long) (rocket.getEpoch() + 1) << 1);
+                rocket.startPhase(state, goalPower);
+                rocket.getEventLog().publish(EventType.PHASE_CHANGED, rocket, -1, goalPower, state);
+            }
+        }
+        return next.all;
+    }
+
+    /**
+     * Reanuda la fase en curso de una carrera restaurada de un checkpoint (ver Fleet.applyTo): cada
+     * cohete conserva su potencia objetivo y la potencia y el estado de sus propulsores. Los que
+     * seguian acelerando o frenando continuan desde donde estaban; los que ya habian llegado o
+     * fallado se anotan como tales, en orden de posicion, sin volver a correr
+     *
+     * @param state, estado de la fase en curso, null si no habia comenzado ninguna
+     * @param goalPower, potencia objetivo de la fase en curso
+     * @return CompletableFuture que se completa cuando todos los cohetes alcanzan la potencia objetivo
+     */
+    public CompletableFuture<Void> resume(StateRace state, int goalPower) {
+        return resume(state, goalPower, new int[0], null);
+    }
+
+    /**
+     * Igual que resume(state, goalPower), conservando el orden de llegada y el tick de llegada de
+     * los cohetes que ya habian llegado (ver Fleet.getFinishOrder y Fleet.getFinishTick). Los que
+     * habian llegado y no estan en finishOrder se anotan despues, en orden de posicion
+     *
+     * @param state, estado de la fase en curso, null si no habia comenzado ninguna
+     * @param goalPower, potencia objetivo de la fase en curso
+     * @param finishOrder, posiciones de los cohetes por orden de llegada
+     * @param finishTicks, tick de llegada de cada cohete desde el comienzo de la fase, -1 si no ha
+     *                     llegado; null si no se conoce
+     * @return CompletableFuture que se completa cuando todos los cohetes alcanzan la potencia objetivo
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized CompletableFuture<Void> resume(StateRace state, int goalPower, int[] finishOrder, long[] finishTicks) {
+        Phase next = open(state, goalPower);
+        boolean[] arrived = new boolean[used];
+        for (int i = 0; i < used; i++) {
+            Rocket rocket = slots[i];
+            if (rocket == null) {
+                continue;
+            }
+            List<Booster> boosters = rocket.getBoosters();
+            StateRace own = boosters.isEmpty() ? null : boosters.get(0).getState();
+            if (own == StateRace.FORWARD || own == StateRace.BACK) {
+                next.startTicks[i] = rocket.getClock().now();
+                next.status.set(i, (long) (rocket.getEpoch() + 1) << 1);
+                rocket.startPhase(own, rocket.getGoalPower());
+                continue;
+            }
+            next.status.set(i, SETTLED);
+            next.pending.decrementAndGet();
+            if (own == StateRace.FINISH && rocket.getAcumPower() == rocket.getGoalPower()) {
+                arrived[i] = true;
+                if (finishTicks != null && i < finishTicks.length) {
+                    next.finishTicks[i] = finishTicks[i];
+                }
+            } else if (own == StateRace.FINISH) {
+                next.failures.add(rocket);
+                next.done[i].completeExceptionally(new IllegalStateException("El cohete " + rocket.getId()
+                        + " no puede alcanzar la potencia objetivo " + rocket.getGoalPower()));
+            } else {
+                ((CompletableFuture<Void>) next.done[i]).complete(null);
+            }
+        }
+        // las llegadas se anotan y se completan en orden de llegada, y despues las que no estan en finishOrder
+        for (int i : finishOrder) {
+            if (i >= 0 && i < used && arrived[i]) {
+                arrived[i] = false;
+                next.arrivals.add(slots[i]);
+                ((CompletableFuture<Void>) next.done[i]).complete(null);
+            }
+        }
+        for (int i = 0; i < used; i++) {
+            if (arrived[i]) {
+                next.arrivals.add(slots[i]);
+                ((CompletableFuture<Void>) next.done[i]).complete(null);
+            }
+        }
+        return next.all;
+    }
+
+    /**
+     * Sustituye la fase en curso por una nueva, cancelando lo que quedara pendiente de la anterior
+     */
+    private Phase open(StateRace state, int goalPower) {
+        Phase previous = this.phase;
+        compact();
+        Phase next = new Phase(state, goalPower, slots, used, live);
+        this.phase = next;
+        for (CompletableFuture<?> done : previous.done) {
+            done.cancel(false);
+        }
+        for (Retarget retarget : previous.retargets.values()) {
+            retarget.done.cancel(false);
+        }
+        return next;
+    }
+
+    /**
+     * Cambia la potencia objetivo y el sentido de un solo cohete, sin tocar los demas. Si el cohete
+     * aun no ha llegado ni fallado en la fase en curso, sigue contando en ella con la potencia
+     * objetivo nueva y se devuelve su CompletableFuture de la fase. Si ya habia llegado o fallado,
+     * o se añadio despues de empezar la fase, se devuelve un CompletableFuture propio, que no
+     * cuenta en la fase de la carrera
+     *
+     * @param rocket, objeto de tipo Rocket de la carrera
+     * @param state, FORWARD para acelerar, BACK para frenar
+     * @param goalPower, potencia objetivo nueva del cohete
+     * @return CompletableFuture que se completa cuando el cohete alcanza la potencia objetivo
+     * @throws IllegalArgumentException si el cohete no participa en la carrera
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized CompletableFuture<Void> retarget(Rocket rocket, StateRace state, int goalPower) {
+        int index = rocket.getRaceIndex();
+        if (rocket.getRace() != this || byId.get(rocket.getId()) != rocket) {
+            throw new IllegalArgumentException("El cohete " + rocket.getId() + " no participa en la carrera");
+        }
+        Phase current = this.phase;
+        int epoch = rocket.getEpoch() + 1;
+        CompletableFuture<Void> done;
+        if (index < current.done.length) {
+            long status = current.status.get(index);
+            if ((status & SETTLED) == 0 && current.status.compareAndSet(index, status, (long) epoch << 1)) {
+                current.startTicks[index] = rocket.getClock().now();
+                done = (CompletableFuture<Void>) current.done[index];
+            } else {
+                done = track(current, index, epoch, rocket);
+            }
+        } else {
+            done = track(current, index, epoch, rocket);
+        }
+        rocket.startPhase(state, goalPower);
+        rocket.getEventLog().publish(EventType.PHASE_CHANGED, rocket, -1, goalPower, state);
+        return done;
+    }
+
+    private CompletableFuture<Void> track(Phase current, int index, int epoch, Rocket rocket) {
+        Retarget retarget = new Retarget(epoch, rocket.getClock().now());
+        Retarget previous = current.retargets.put(index, retarget);
+        if (previous != null) {
+            previous.done.cancel(false);
+        }
+        return retarget.done;
+    }
+
+    /**
+     * @param goalPower, potencia objetivo
+     * @return CompletableFuture que se completa cuando todos los cohetes han acelerado hasta la potencia objetivo
+     */
+    public CompletableFuture<Void> forward(int goalPower) {
+        return startPhase(StateRace.FORWARD, goalPower);
+    }
+
+    /**
+     * @param goalPower, potencia objetivo
+     * @return CompletableFuture que se completa cuando todos los cohetes han frenado hasta la potencia objetivo
+     */
+    public CompletableFuture<Void> back(int goalPower) {
+        return startPhase(StateRace.BACK, goalPower);
+    }
+
+    /**
+     * Registra que un cohete ha alcanzado la potencia objetivo de la fase en curso, junto con
+     * el tiempo y los ticks que ha tardado en las metricas de la carrera.
+     * Un cohete solo cuenta una vez por fase
+     *
+     * @param rocket, objeto de tipo Rocket que ha llegado
+     * @param epoch, numero de fase del cohete en la que ha llegado; si no es la de la fase en curso
+     * de la carrera, la llegada es de una fase anterior y no cuenta
+     */
+    @SuppressWarnings("unchecked")
+    void finished(Rocket rocket, int epoch) {
+        Phase current = this.phase;
+        int index = rocket.getRaceIndex();
+        long open = (long) epoch << 1;
+        if (index >= 0 && index < current.done.length && current.status.compareAndSet(index, open, open | SETTLED)) {
+            long ticks = rocket.getClock().now() - current.startTicks[index];
+            current.finishTicks[index] = ticks;
+            current.arrivals.add(rocket);
+            current.pending.decrementAndGet();
+            RaceMetrics.getInstance().goalReached(System.nanoTime() - current.startNanos, ticks);
+            ((CompletableFuture<Void>) current.done[index]).complete(null);
+        } else {
+            Retarget retarget = settle(current, index, epoch);
+            if (retarget != null) {
+                RaceMetrics.getInstance().goalReached(System.nanoTime() - retarget.startNanos,
+                        rocket.getClock().now() - retarget.startTick);
+                retarget.done.complete(null);
+            }
+        }
+    }
+
+    /**
+     * @return cambio de potencia objetivo propio del cohete en la fase indicada, que se da por
+     * terminado, o null si no lo hay
+     */
+    private static Retarget settle(Phase current, int index, int epoch) {
+        Retarget retarget = current.retargets.get(index);
+        if (retarget != null && retarget.epoch == epoch && current.retargets.remove(index, retarget)) {
+            return retarget;
+        }
+        return null;
+    }
+
+    /**
+     * Registra que un cohete ya no puede alcanzar la potencia objetivo de la fase en curso:
+     * su CompletableFuture se completa de forma excepcional y deja de contar como pendiente
+     *
+     * @param rocket, objeto de tipo Rocket que ha fallado
+     * @param epoch, numero de fase del cohete en la que ha fallado; si no es la de la fase en curso
+     * de la carrera, el fallo es de una fase anterior y no cuenta
+     * @param cause, excepcion con la que se completa su CompletableFuture
+     */
+    void failed(Rocket rocket, int epoch, Throwable cause) {
+        Phase current = this.phase;
+        int index = rocket.getRaceIndex();
+        long open = (long) epoch << 1;
+        if (index >= 0 && index < current.done.length && current.status.compareAndSet(index, open, open | SETTLED)) {
+            current.failures.add(rocket);
+            current.pending.decrementAndGet();
+            current.done[index].completeExceptionally(cause);
+        } else {
+            Retarget retarget = settle(current, index, epoch);
+            if (retarget != null) {
+                retarget.done.completeExceptionally(cause);
+            }
+        }
+    }
+
+    /**
+     * Espera a que todos los cohetes alcancen la potencia objetivo de la fase en curso,
+     * o no puedan alcanzarla (ver getFailedRockets)
+     *
+     * @throws InterruptedException si el hilo es interrumpido durante la espera
+     */
+    public void await() throws InterruptedException {
+        try {
+            phase.all.get();
+        } catch (ExecutionException | CancellationException e) {
+            // algun cohete ha fallado, o la fase ha sido sustituida por otra
+        }
+    }
+
+    /**
+     * Espera, como maximo el tiempo indicado, a que todos los cohetes alcancen la potencia objetivo
+     * o no puedan alcanzarla (ver getFailedRockets)
+     *
+     * @param timeout, tiempo maximo de espera
+     * @param unit, unidad del tiempo maximo de espera
+     * @return true si la fase ha terminado, false si se ha agotado el tiempo
+     * @throws InterruptedException si el hilo es interrumpido durante la espera
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            phase.all.get(timeout, unit);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException | CancellationException e) {
+            return true;
+        }
+    }
+
+    /**
+     * @param rocket, objeto de tipo Rocket de la carrera
+     * @return CompletableFuture que se completa cuando el cohete alcanza la potencia objetivo de la
+     * fase en curso; ya completado si el cohete no participa en ella, por haberse añadido despues de
+     * comenzar la fase o haberse quitado de la carrera
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Void> getCompletion(Rocket rocket) {
+        Phase current = this.phase;
+        int index = rocket.getRaceIndex();
+        if (index < 0 || index >= current.done.length) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Retarget retarget = current.retargets.get(index);
+        if (retarget != null) {
+            return retarget.done;
+        }
+        return (CompletableFuture<Void>) current.done[index];
+    }
+
+    /**
+     * @param rocket, objeto de tipo Rocket de la carrera
+     * @return ticks desde el comienzo de la fase en curso hasta que el cohete alcanza la potencia
+     * objetivo, -1 si aun no la ha alcanzado, no puede alcanzarla o ya habia llegado al reanudar la fase
+     */
+    public long getFinishTick(Rocket rocket) {
+        Phase current = this.phase;
+        int index = rocket.getRaceIndex();
+        return index >= 0 && index < current.finishTicks.length ? current.finishTicks[index] : -1;
+    }
+
+    /**
+     * @return CompletableFuture que se completa cuando todos los cohetes alcanzan la potencia objetivo
+     */
+    public CompletableFuture<Void> getCompletion() {
+        return phase.all;
+    }
+
+    /**
+     * @return numero de cohetes que aun no han alcanzado la potencia objetivo de la fase en curso
+     */
+    public int getPendingRockets() {
+        return phase.pending.get();
+    }
+
+    /**
+     * @return cohetes que han alcanzado la potencia objetivo de la fase en curso, por orden de llegada
+     */
+    public List<Rocket> getArrivals() {
+        return new ArrayList<>(phase.arrivals);
+    }
+
+    /**
+     * @return cohetes que no pueden alcanzar la potencia objetivo de la fase en curso, por orden de fallo
+     */
+    public List<Rocket> getFailedRockets() {
+        return new ArrayList<>(phase.failures);
+    }
+
+    /**
+     * @return estado de la fase en curso, null si aun no ha comenzado ninguna
+     */
+    public StateRace getState() {
+        return phase.state;
+    }
+
+    /**
+     * @return potencia objetivo de la fase en curso
+     */
+    public int getGoalPower() {
+        return phase.goalPower;
+    }
+}
@@ -0,0 +1,71 @@
+package com.rockets.domain;
+
+/**
+ * Interfaz de la capa Domain
+ *
+ * Base de tiempo de la carrera. Los objetos Rocket y Booster expresan sus esperas en ticks
+ * y es el reloj quien decide cuanto dura cada tick:
+ *
+ * - tiempo real, con un periodo de tick configurable (por defecto 1000 ms)
+ * - acelerado, el mismo periodo dividido por un factor de aceleracion
+ * - virtual, sin esperas, los ticks avanzan tan rapido como sea posible
+ */
+public interface RaceClock {
+
+    /**
+     * Reloj por defecto, tiempo real con un tick de 1000 ms
+     */
+    RaceClock DEFAULT = realTime(1000);
+
+    /**
+     * @return numero de ticks transcurridos desde la creacion del reloj
+     */
+    long now();
+
+    /**
+     * Espera el numero de ticks indicado
+     *
+     * @param ticks, numero de ticks a esperar
+     * @throws InterruptedException si el hilo es interrumpido durante la espera
+     */
+    void sleep(long ticks) throws InterruptedException;
+
+    /**
+     * @return duracion de un tick en nanosegundos, 0 si el reloj es virtual
+     */
+    long getTickNanos();
+
+    /**
+     * @return true si el reloj es virtual y los ticks no tienen duracion real
+     */
+    default boolean isVirtual() {
+        return getTickNanos() == 0;
+    }
+
+    /**
+     * @param tickMillis, duracion de un tick en milisegundos
+     * @return reloj de tiempo real
+     */
+    static RaceClock realTime(long tickMillis) {
+        return new RealTimeClock(tickMillis * 1_000_000L);
+    }
+
+    /**
+     * @param tickMillis, duracion de un tick en milisegundos a velocidad normal
+     * @param factor, factor de aceleracion, mayor que 1 acorta la duracion de cada tick
+     * @return reloj de tiempo real acelerado
+     */
+    static RaceClock accelerated(long tickMillis, double factor) {
+        if (factor <= 0) {
+            throw new IllegalArgumentException("El factor de aceleracion ha de ser mayor que 0");
+        }
+        return new RealTimeClock(Math.max(1L, (long) (tickMillis * 1_000_000L / factor)));
+    }
+
+    /**
+     * @return reloj virtual, sin esperas
+     */
+    static RaceClock virtual() {
+        return new VirtualClock();
+    }
+}
@@ -0,0 +1,46 @@
+package com.rockets.domain;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clase de la capa Domain
+ *
+ * Implementa la interfaz RaceClock con ticks de duracion real. Un reloj acelerado
+ * es un reloj de tiempo real con un tick mas corto
+ */
+public class RealTimeClock implements RaceClock {
+    private final long tickNanos;
+    private final long origin = System.nanoTime();
+
+    /**
+     * @param tickNanos, duracion de un tick en nanosegundos
+     */
+    public RealTimeClock(long tickNanos) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("La duracion del tick ha de ser mayor que 0");
+        }
+        this.tickNanos = tickNanos;
+    }
+
+    @Override
+    public long now() {
+        return (System.nanoTime() - origin) / tickNanos;
+    }
+
+    @Override
+    public void sleep(long ticks) throws InterruptedException {
+        TimeUnit.NANOSECONDS.sleep(ticks * tickNanos);
+    }
+
+    @Override
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "RealTimeClock{" +
+                "tickNanos=" + tickNanos +
+                '}';
+    }
+}
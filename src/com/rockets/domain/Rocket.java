@@ -1,12 +1,15 @@
 package com.rockets.domain;
 
 import com.rockets.application.factory.FactoryMethod;
+import com.rockets.domain.event.EventType;
+import com.rockets.domain.event.RaceEventLog;
+import com.rockets.domain.metrics.RaceMetrics;
 
 import java.util.*;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Stream;
-
-import static java.util.stream.Collectors.toList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Clase de la capa Domain
@@ -21,21 +24,44 @@ import static java.util.stream.Collectors.toList;
  * Contiene una variable de tipo int que es la potencia acumulada,
  * la suma de las potencias de cada propulsor
  *
- * Contiene una variable static de tipo int que es el numero objetos de tipo Rocket creados
- * y que participaran en la carrera de cohetes, es decir el total de cohetes que han de llegar
- * a una potencia objetivo
+ * Contiene un total de potencia de tipo AtomicLong que cada propulsor actualiza al variar su
+ * potencia, de forma que consultar la potencia acumulada no recorre los propulsores ni bloquea.
+ * Junto al total guarda el numero de fase y si la fase esta cerrada (llegada o fallo), de modo
+ * que un unico compareAndSet suma la variacion de un propulsor y detecta la llegada: ninguna
+ * variacion posterior se suma a una fase ya cerrada
+ *
+ * Pertenece a una carrera, objeto de tipo Race, a la que notifica cuando alcanza la potencia
+ * objetivo. Es la carrera quien lleva la cuenta de los cohetes que aun han de llegar
  *
- * Implementa la interfaz Runnable, cada objeto de tipo Rocket tendra su propio hilo de ejecucion.
- * Actua como Consumer, sumando las potencias que produce cada uno de sus propulsores
+ * Actua como Consumer de las potencias que producen sus propulsores: cada propulsor le empuja su
+ * variacion (offer) y el cohete actualiza el total y comprueba la llegada solo cuando llega una
+ * variacion, en el hilo del propulsor, sin recorrer los propulsores ni esperar turnos. Implementa
+ * la interfaz Runnable por compatibilidad con los modos de ejecucion con un hilo por objeto, pero
+ * su hilo queda en espera sin consumir CPU
  *
  */
 public class Rocket implements Runnable{
+    private static final long TOTAL_MASK = 0xFFFFFFFFL;
+    private static final long CLOSED = 1L << 32;
+    private static final int EPOCH_SHIFT = 33;
+
     private String id;
     private int numberOfBoosters;
     private List<Booster> boosters;
     private Integer goalPower=this.getGoalPower();
     private int acumPower;
-    private static int countRockets;
+    private final AtomicLong power = new AtomicLong();
+    private final AtomicLong stuck = new AtomicLong();
+    private Race race;
+    private int raceIndex;
+    private RaceEventLog eventLog=RaceEventLog.DISCARD;
+    private RaceClock clock=RaceClock.DEFAULT;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition parked = lock.newCondition();
+    private final RaceMetrics metrics = RaceMetrics.getInstance();
+    private volatile boolean failed;
+    private volatile boolean arrived;
+    private volatile boolean detached;
 
     /**
      * Contructor de la clase, identificado por un String, el id del Rocket,
@@ -43,7 +69,8 @@ public class Rocket implements Runnable{
      *
      * Inicializa el listado de boosters, para ello llama al metodo createBooster
      * de la interfaz FactoryMethod y crea tantos objetos de tipo Booster como indique
-     * la variable numero de propulsores, pasada como parametro en el constructor
+     * la variable numero de propulsores, pasada como parametro en el constructor.
+     * Se recorre con un bucle en lugar de un Stream para no reservar objetos intermedios
      *
      * @param id, String identificador del cohete
      * @param numberOfBoosters, numero de propulsores
@@ -51,9 +78,52 @@ public class Rocket implements Runnable{
     public Rocket(String id, int numberOfBoosters) {
         this.id=id;
         this.numberOfBoosters=numberOfBoosters;
-        this.boosters = Stream.generate(FactoryMethod::createBooster)
-                    .limit(this.numberOfBoosters)
-                    .collect(toList());
+        this.boosters = new ArrayList<>(numberOfBoosters);
+        for (int i = 0; i < numberOfBoosters; i++) {
+            Booster booster = FactoryMethod.createBooster();
+            booster.setRocket(this, i);
+            this.boosters.add(booster);
+        }
+    }
+
+    /**
+     * Devuelve el cohete a su estado inicial con un nuevo identificador, para reutilizarlo en otra
+     * carrera sin crear de nuevo sus propulsores: fuera de toda carrera, sin potencia objetivo,
+     * con el registro de eventos y la base de tiempo por defecto, y cada propulsor sin potencia
+     * maxima y a potencia 0. Ni el cohete ni sus propulsores han de estar en ejecucion
+     *
+     * @param id, String identificador del cohete
+     */
+    public void reset(String id) {
+        this.id = id;
+        this.goalPower = 0;
+        this.acumPower = 0;
+        this.power.set(0);
+        this.stuck.set(0);
+        this.race = null;
+        this.raceIndex = 0;
+        this.eventLog = RaceEventLog.DISCARD;
+        this.clock = RaceClock.DEFAULT;
+        this.failed = false;
+        this.arrived = false;
+        this.detached = false;
+        for (int i = 0; i < this.boosters.size(); i++) {
+            this.boosters.get(i).reset();
+        }
+    }
+
+    /**
+     * @return String identificador del cohete
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return numero de propulsores del cohete
+     */
+    public int getNumberOfBoosters() {
+        return numberOfBoosters;
     }
 
     /**
@@ -64,6 +134,39 @@ public class Rocket implements Runnable{
         return this.boosters;
     }
 
+    /**
+     * @return interfaz RaceClock, base de tiempo con la que el cohete espera entre propulsores
+     */
+    public RaceClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Fija la base de tiempo del cohete y de cada uno de sus propulsores
+     *
+     * @param clock, interfaz RaceClock que determina la duracion de cada espera
+     */
+    public void setClock(RaceClock clock) {
+        this.clock = clock;
+        this.getBoosters().stream().forEach(c -> c.setClock(clock));
+    }
+
+    /**
+     * @return registro de eventos en el que el cohete y sus propulsores publican sus cambios
+     */
+    public RaceEventLog getEventLog() {
+        return eventLog;
+    }
+
+    /**
+     * Fija el registro de eventos del cohete y de sus propulsores
+     *
+     * @param eventLog, objeto de tipo RaceEventLog
+     */
+    public void setEventLog(RaceEventLog eventLog) {
+        this.eventLog = eventLog;
+    }
+
     /**
      * Añade la potencia maxima a cada objeto del listado de tipo Booster
      *
@@ -82,6 +185,21 @@ public class Rocket implements Runnable{
         return this.getBoosters();
     }
 
+    /**
+     * Añade la potencia maxima a cada objeto del listado de tipo Booster sin envolver los valores
+     * en Optional. Si se pasa un int[] ya creado no se reserva memoria, de modo que una misma
+     * configuracion puede aplicarse en cada carrera de un lote
+     *
+     * @param maxPower, potencia maxima de cada propulsor, en el orden del listado de propulsores
+     * @return listado de objetos de tipo Booster con la potencia maxima asociada a cada Booster
+     */
+    public List<Booster> addBoosterMaxPower(int... maxPower) {
+        for (int i = 0; i < maxPower.length; i++) {
+            this.boosters.get(i).setMaxPower(maxPower[i]);
+        }
+        return this.boosters;
+    }
+
     /**
      * @return Integer con la potencia objetivo que tiene que alcanzar un cohete tanto al acelerar
      * como al frenar. El valor inicial de la potencia objetivo no permite valores nulos,
@@ -134,14 +252,120 @@ public class Rocket implements Runnable{
      * Suma las potencias de cada propulsor del cohete, cada vez que estas incrementan (acelerar)
      * o decrementan (frenar) su valor en 1
      *
+     * El total se mantiene actualizado por los propulsores, la consulta es de coste constante
+     * y no toma el monitor del cohete
+     *
      * @return la suma de las potencias de cada propulsor, potencia acumulada
      */
-    public synchronized int getAcumPower(){
-        return this.boosters.stream().mapToInt((c) -> c.getCurrentPower()).sum();
+    public int getAcumPower(){
+        return (int) this.power.get();
+    }
+
+    /**
+     * Suma al total del cohete la variacion de potencia de uno de sus propulsores, este o no
+     * cerrada la fase (modo por ticks, o al fijar directamente la potencia de un propulsor)
+     *
+     * @param delta, variacion de potencia, +1 al acelerar y -1 al frenar
+     */
+    void addPower(int delta){
+        this.power.addAndGet(delta);
+    }
+
+    /**
+     * Recibe la variacion de potencia que empuja un propulsor desde su hilo. Con un unico
+     * compareAndSet suma la variacion al total y, si el total llega a la potencia objetivo o la
+     * sobrepasa, cierra la fase, de modo que solo una variacion puede completar la llegada y
+     * ninguna posterior se suma. La llegada o el fallo se notifican en el mismo hilo, despues de
+     * publicar el paso del propulsor, de modo que el registro de eventos recibe el paso antes que
+     * la llegada que provoca
+     *
+     * @param epoch, numero de fase en el que el propulsor ha dado el paso
+     * @param delta, variacion de potencia
+     * @param state, FORWARD o BACK, estado de la fase
+     * @param boosterIndex, posicion del propulsor que da el paso
+     * @param boosterPower, potencia del propulsor tras el paso
+     * @return true si la variacion se ha sumado, false si la fase ha terminado o ha cambiado
+     */
+    boolean offer(int epoch, int delta, StateRace state, int boosterIndex, int boosterPower){
+        int goal = this.getGoalPower();
+        long current;
+        long next;
+        int total;
+        do {
+            current = this.power.get();
+            if ((current & CLOSED) != 0 || (int) (current >>> EPOCH_SHIFT) != epoch) {
+                return false;
+            }
+            total = (int) current + delta;
+            boolean past = state == StateRace.FORWARD ? total > goal : total < goal;
+            next = (current & ~(CLOSED | TOTAL_MASK)) | (total & TOTAL_MASK) | (total == goal || past ? CLOSED : 0);
+        } while (!this.power.compareAndSet(current, next));
+        this.eventLog.publish(EventType.BOOSTER_POWER, this, boosterIndex, boosterPower, state);
+        this.eventLog.publish(EventType.ROCKET_POWER, this, -1, total, state);
+        if (total == goal) {
+            arrive(epoch, true);
+        } else if ((next & CLOSED) != 0) {
+            fail(state, epoch);
+        }
+        return true;
+    }
+
+    /**
+     * Recibe el aviso de un propulsor que ya no puede dar pasos en la fase indicada. Como un
+     * propulsor parado no vuelve a moverse en la misma fase, cuando lo estan todos la potencia
+     * acumulada ya no cambia: si no es la potencia objetivo, el cohete falla
+     *
+     * Los avisos se cuentan junto con el numero de fase, de modo que el aviso tardio de una fase
+     * anterior no cuenta en la fase en curso
+     *
+     * @param epoch, numero de fase
+     * @param state, FORWARD o BACK, estado de la fase
+     */
+    void boosterStuck(int epoch, StateRace state){
+        long count;
+        long next;
+        do {
+            count = this.stuck.get();
+            int counted = (int) (count >>> 32);
+            if (counted - epoch > 0) {
+                return;
+            }
+            next = counted == epoch ? count + 1 : ((long) epoch << 32) | 1;
+        } while (!this.stuck.compareAndSet(count, next));
+        if ((int) next != this.boosters.size()) {
+            return;
+        }
+        long current = this.power.get();
+        if ((current & CLOSED) != 0 || (int) (current >>> EPOCH_SHIFT) != epoch
+                || !this.power.compareAndSet(current, current | CLOSED)) {
+            return;
+        }
+        if ((int) current == this.getGoalPower()) {
+            arrive(epoch, true);
+        } else {
+            fail(state, epoch);
+        }
     }
 
     /**
-     * Imprime la potencia total del cohete, potencia acumulada hasta el momento,
+     * @return numero de la fase en curso del cohete, aumenta en 1 con cada startPhase
+     */
+    int getEpoch(){
+        return (int) (this.power.get() >>> EPOCH_SHIFT);
+    }
+
+    /**
+     * Cierra la fase en curso para que no se sumen mas variaciones empujadas por los propulsores
+     */
+    private void close(){
+        long current;
+        do {
+            current = this.power.get();
+        } while ((current & CLOSED) == 0 && !this.power.compareAndSet(current, current | CLOSED));
+    }
+
+    /**
+     * Publica en el registro de eventos la potencia total del cohete, potencia acumulada hasta el momento,
      * cada vez que varia la potencia de alguno de sus propulsores, indica si
      * la variacion de potencia ha sido al acelerar o al frenar
      *
@@ -150,9 +374,7 @@ public class Rocket implements Runnable{
      */
     public void printAcumPower(StateRace state){
         if(this.acumPower!=0) {
-            System.out.println(state + "\n[Total Power " + this.acumPower + "]\n"
-                    + " " + this.toString()
-                    + "\n" + this.getBoosters().toString() + "\n");
+            this.eventLog.publish(EventType.ROCKET_POWER, this, -1, this.acumPower, state);
         }
     }
 
@@ -175,42 +397,300 @@ public class Rocket implements Runnable{
     }
 
     /**
-     * Muestra por panatalla la potencia acumulada del cohete, ha de ser igual a la potencia objetivo,
-     * junto con los datos del cohete y sus propulsores
+     * Publica en el registro de eventos que el cohete ha alcanzado la potencia objetivo, junto con
+     * su potencia acumulada, que ha de ser igual a la potencia objetivo
      */
     public void printWinner(){
-        System.out.println("--------------------------------------------------");
-        System.out.println("FIN DE LA CARRERA!!! Potencia alcanzada: " + this.getAcumPower());
-        System.out.println("ROCKET .... " + this.toString()
-                + "  \n" + this.getBoosters().toString());
-        System.out.println("--------------------------------------------------");
+        this.eventLog.publish(EventType.GOAL_REACHED, this, -1, this.getAcumPower(), StateRace.FINISH);
     }
 
     /**
      * Cambia el estado de los propulsores del cohete al valor FINISH cuando un cohete alcanza
      * la potencia objetivo.
-     * Disminuye en 1 el numero de cohetes que han de alcanzar el objetivo
+     * Notifica la llegada a la carrera, que disminuye en 1 el numero de cohetes que han de alcanzar el objetivo
      */
     public void checkWinner(){
-        this.getBoosters().stream().forEach(c -> c.setState(StateRace.FINISH));
-        Rocket.countRockets--;
+        arrive(getEpoch(), false);
     }
 
     /**
-     * @return el numero objetos de tipo Rocket creados y que participaran en la carrera de cohetes,
-     * es decir el total de cohetes que han de llegar a una potencia objetivo
+     * Marca la llegada en la fase indicada. Se comprueba con el monitor del cohete, el mismo con
+     * el que empieza una fase, que la fase sigue en curso: la llegada tardia de una fase anterior,
+     * por ejemplo tras cambiar la potencia objetivo en mitad de la fase, no cambia el estado de
+     * los propulsores de la fase nueva
+     *
+     * @param epoch, numero de fase en la que el cohete ha llegado
+     * @param publish, true para publicar el evento GOAL_REACHED
+     * @return true si se ha marcado la llegada
      */
-    public static int getCountRockets() {
-        return countRockets;
+    private boolean arrive(int epoch, boolean publish){
+        synchronized (this) {
+            if (getEpoch() != epoch) {
+                return false;
+            }
+            this.arrived = true;
+            close();
+            this.getBoosters().forEach(c -> c.setState(StateRace.FINISH));
+            if (publish) {
+                printWinner();
+            }
+        }
+        if (this.race != null) {
+            this.race.finished(this, epoch);
+        }
+        return true;
     }
 
     /**
-     * Fija el total de cohetes que participan en la carrera, a partir del valor pasado como parametro
+     * Comprueba si el cohete ya no puede alcanzar la potencia objetivo de la fase en curso:
+     *
+     * - la ha sobrepasado, al acelerar por encima o al frenar por debajo; como cada paso varia
+     *   la potencia en 1 en el mismo sentido, no puede volver a ella
+     * - ninguno de sus propulsores puede dar mas pasos (potencia maxima al acelerar, o la
+     *   condicion potencia actual menor que la maxima al frenar) y no la ha alcanzado
+     *
+     * En ese caso marca el cohete como fallido (ver fail)
      *
-     * @param countRockets, total de cohetes que participan en la carrera
+     * @param state, FORWARD o BACK, estado de la fase en curso
+     * @return true si el cohete ha fallado
      */
-    public static void setCountRockets(int countRockets) {
-        Rocket.countRockets = countRockets;
+    public boolean checkFailure(StateRace state){
+        if (this.failed) {
+            return true;
+        }
+        if (this.isPast(state)) {
+            return this.fail(state, getEpoch());
+        }
+        int total = this.getAcumPower();
+        if (total == this.getGoalPower()) {
+            return false;
+        }
+        for (Booster booster : this.getBoosters()) {
+            int current = booster.getCurrentPower();
+            if (Booster.nextPower(state, current, booster.getMaxPower()) != current) {
+                return false;
+            }
+        }
+        return this.fail(state, getEpoch());
+    }
+
+    /**
+     * @return true si la potencia acumulada ha sobrepasado la potencia objetivo en el sentido de la fase
+     */
+    private boolean isPast(StateRace state){
+        int total = this.getAcumPower();
+        return state == StateRace.FORWARD ? total > this.getGoalPower() : total < this.getGoalPower();
+    }
+
+    /**
+     * Marca el cohete como fallido en la fase en curso: cierra la fase, cambia el estado de sus
+     * propulsores a FINISH, de modo que sus hilos esperan a la fase siguiente, y notifica el
+     * fallo a la carrera, que completa de forma excepcional el CompletableFuture del cohete.
+     * No hace nada si el cohete ya ha alcanzado la potencia objetivo en esta fase (un propulsor
+     * puede dar un paso mas en su propio hilo justo despues de la llegada) o si la fase ya no esta
+     * en curso (ver arrive)
+     *
+     * @param state, FORWARD o BACK, estado de la fase
+     * @param epoch, numero de fase en la que el cohete ha fallado
+     * @return true si el cohete se ha marcado como fallido
+     */
+    private boolean fail(StateRace state, int epoch){
+        synchronized (this) {
+            if (this.arrived || getEpoch() != epoch) {
+                return false;
+            }
+            this.failed = true;
+            close();
+            this.getBoosters().forEach(c -> c.setState(StateRace.FINISH));
+            this.eventLog.publish(EventType.GOAL_UNREACHABLE, this, -1, this.getAcumPower(), StateRace.FINISH);
+        }
+        if (this.race != null) {
+            this.race.failed(this, epoch, new IllegalStateException("El cohete " + this.id
+                    + " no puede alcanzar la potencia objetivo " + this.getGoalPower() + " al "
+                    + (state == StateRace.FORWARD ? "acelerar" : "frenar")
+                    + ", potencia acumulada " + this.getAcumPower()));
+        }
+        return true;
+    }
+
+    /**
+     * @return true si el cohete no puede alcanzar la potencia objetivo de la fase en curso
+     */
+    public boolean isFailed(){
+        return failed;
+    }
+
+    /**
+     * Comienza una fase: fija la potencia objetivo, abre una fase nueva para las variaciones que
+     * empujan los propulsores, quita la marca de fallo y fija el estado de los propulsores,
+     * despertando sus hilos. Se hace con el lock y el monitor del cohete, de forma que tick()
+     * no vea la potencia objetivo de una fase con el estado de la otra
+     *
+     * Puede llamarse con la fase anterior aun en curso: la potencia de los propulsores se conserva
+     * y las variaciones, llegadas y fallos que aun lleguen de la fase anterior se descartan
+     *
+     * @param state, FORWARD para acelerar, BACK para frenar
+     * @param goalPower, potencia objetivo de la fase
+     * @return numero de la fase nueva
+     */
+    int startPhase(StateRace state, int goalPower){
+        long acquired = metrics.lock(lock, RaceMetrics.LockSite.ROCKET);
+        try {
+            synchronized (this) {
+                if (state == StateRace.FORWARD) {
+                    this.forward(Optional.of(goalPower));
+                } else {
+                    this.back(Optional.of(goalPower));
+                }
+                this.setGoalPower(goalPower);
+                this.failed = false;
+                this.arrived = false;
+                long current;
+                long next;
+                do {
+                    current = this.power.get();
+                    next = (((current >>> EPOCH_SHIFT) + 1) << EPOCH_SHIFT) | (current & TOTAL_MASK);
+                } while (!this.power.compareAndSet(current, next));
+                int epoch = (int) (next >>> EPOCH_SHIFT);
+                for (Booster booster : this.getBoosters()) {
+                    booster.startPhase(state, epoch);
+                }
+                return epoch;
+            }
+        } finally {
+            metrics.unlock(lock, RaceMetrics.LockSite.ROCKET, acquired);
+        }
+    }
+
+    /**
+     * Fija la potencia objetivo y la potencia acumulada al restaurar una carrera (ver Fleet.applyTo),
+     * con la fase cerrada hasta que la carrera la reanude (Race.resume). No ha de estar en ejecucion
+     *
+     * @param goalPower, potencia objetivo
+     * @param acumPower, potencia acumulada, suma de la potencia actual de sus propulsores
+     */
+    synchronized void restore(int goalPower, int acumPower){
+        this.setGoalPower(goalPower);
+        this.acumPower = acumPower;
+        this.power.set(CLOSED | (acumPower & TOTAL_MASK));
+        this.stuck.set(0);
+        this.failed = false;
+        this.arrived = false;
+    }
+
+    /**
+     * Detiene el cohete al quitarlo de su carrera: cierra la fase en curso, de modo que no se suman
+     * mas variaciones ni cuenta su llegada, y termina los hilos del cohete y de sus propulsores
+     */
+    void detach(){
+        long acquired = metrics.lock(lock, RaceMetrics.LockSite.ROCKET);
+        try {
+            synchronized (this) {
+                this.detached = true;
+                close();
+                for (Booster booster : this.getBoosters()) {
+                    booster.detach();
+                }
+                parked.signalAll();
+            }
+        } finally {
+            metrics.unlock(lock, RaceMetrics.LockSite.ROCKET, acquired);
+        }
+    }
+
+    /**
+     * @return true si el cohete se ha quitado de su carrera (ver detach)
+     */
+    public boolean isDetached(){
+        return detached;
+    }
+
+    /**
+     * @return objeto de tipo Race en el que participa el cohete, null si no participa en ninguna
+     */
+    public Race getRace() {
+        return race;
+    }
+
+    /**
+     * @return posicion del cohete en el listado de cohetes de su carrera
+     */
+    public int getRaceIndex() {
+        return raceIndex;
+    }
+
+    /**
+     * Asocia el cohete a una carrera
+     *
+     * @param race, objeto de tipo Race
+     * @param raceIndex, posicion del cohete en el listado de cohetes de la carrera
+     */
+    void setRace(Race race, int raceIndex) {
+        this.race = race;
+        this.raceIndex = raceIndex;
+    }
+
+    /**
+     * @return true si alguno de sus propulsores esta acelerando o frenando, es decir,
+     * si el cohete aun no ha alcanzado la potencia objetivo de la fase en curso
+     */
+    public boolean isRacing(){
+        return this.getBoosters().stream()
+                .anyMatch(c -> c.getState() == StateRace.FORWARD || c.getState() == StateRace.BACK);
+    }
+
+    /**
+     * Avanza el cohete una unidad de tiempo discreta (tick), sin hilos ni esperas
+     *
+     * Recorre sus propulsores en orden, cada propulsor aplica un unico paso de potencia
+     * y el cohete suma la potencia acumulada tras cada paso, del mismo modo que lo hace
+     * una iteracion del metodo run(). Al alcanzar la potencia objetivo deja de recorrer
+     * los propulsores restantes. Si el cohete ya no puede alcanzarla se marca como fallido
+     *
+     * @return true si el cohete ha alcanzado la potencia objetivo en este tick, false en caso contrario
+     */
+    public boolean tick(){
+        return tick(null);
+    }
+
+    /**
+     * Igual que tick(), recorriendo los propulsores en el orden indicado. Con el mismo orden en
+     * cada tick el resultado es siempre el mismo, independientemente de los hilos que lo ejecuten
+     *
+     * @param order, posiciones de los propulsores en el orden en que dan su paso, null para
+     * recorrerlos en orden
+     * @return true si el cohete ha alcanzado la potencia objetivo en este tick, false en caso contrario
+     */
+    public synchronized boolean tick(int[] order){
+        StateRace phase = null;
+        List<Booster> boosters = this.getBoosters();
+        for (int i = 0; i < boosters.size(); i++) {
+            Booster booster = boosters.get(order == null ? i : order[i]);
+            StateRace state = booster.getState();
+            if (state == null || state == StateRace.FINISH) {
+                return false;
+            }
+            phase = state;
+            booster.step();
+            if (state == StateRace.FORWARD) {
+                this.acumPower = this.forward(Optional.of(this.getGoalPower()));
+            } else {
+                this.acumPower = this.back(Optional.of(this.getGoalPower()));
+            }
+            printAcumPower(state);
+
+            if (printWinner(this.acumPower)) {
+                checkWinner();
+                return true;
+            }
+            if (isPast(state) && fail(state, getEpoch())) {
+                return false;
+            }
+        }
+        if (phase != null) {
+            checkFailure(phase);
+        }
+        return false;
     }
 
     @Override
@@ -224,63 +704,23 @@ public class Rocket implements Runnable{
     /**
      * Sobreescribe el metodo run por implementar la interfaz Runnable
      *
-     * Cada Rocket actua como Consumer, sumando las potencias que produce cada uno de sus propulsores
-     *
-     * En funcion de los valores que tome el enum StateRace (FORWARD,BACK,FINISH)
-     * el cohete acelera o frena, hasta alcanzar una potencia objetivo o pasa a estado finish
-     * (indicando que ha llegado a la potencia objetivo)
+     * La suma de las potencias y la comprobacion de la llegada las hace offer() en el hilo del
+     * propulsor que empuja cada variacion, por lo que el hilo del cohete no tiene trabajo: queda
+     * en espera, sin consumir CPU, hasta que se interrumpe al detener la carrera o el cohete se
+     * quita de ella
      */
     @Override
     public void run() {
+        lock.lock();
         try{
-            while(!Thread.interrupted()) {
-
-                synchronized (this) {
-                    for (Booster booster : this.getBoosters()) {
-                        synchronized (booster) {
-                            booster.setSuspended(true);
-                            switch (booster.getState()){
-                                case FORWARD:
-                                    TimeUnit.MILLISECONDS.sleep(1000);
-
-                                    this.acumPower = this.forward(Optional.of(this.getGoalPower()));
-                                    printAcumPower(StateRace.FORWARD);
-
-                                    if(printWinner(this.acumPower)) {
-                                        checkWinner();
-                                    }
-
-                                    booster.notifyAll();
-                                    Thread.currentThread().checkAccess();
-                                    TimeUnit.MILLISECONDS.sleep(1000);
-                                    break;
-                                case BACK:
-                                    TimeUnit.MILLISECONDS.sleep(1000);
-
-                                    this.acumPower = this.back(Optional.of(this.getGoalPower()));
-                                    printAcumPower(StateRace.BACK);
-
-                                    if(printWinner(this.acumPower)) {
-                                        checkWinner();
-                                    }
-
-                                    booster.notifyAll();
-                                    Thread.currentThread().checkAccess();
-                                    TimeUnit.MILLISECONDS.sleep(1000);
-                                    break;
-                                case FINISH:
-                                    Thread.currentThread().checkAccess();
-                                    break;
-                            }
-                        }
-                    }
-                }
-                TimeUnit.MILLISECONDS.sleep(1000);
+            while(!Thread.currentThread().isInterrupted() && !detached) {
+                parked.await();
             }
-
         } catch(InterruptedException e) {
             System.out.println("Rocket interrupted: " + Thread.currentThread().getName()
                     + "\n" + this.toString() +this.getBoosters().toString());
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -0,0 +1,41 @@
+package com.rockets.domain;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clase de la capa Domain
+ *
+ * Implementa la interfaz RaceClock con tiempo virtual: dormir no bloquea el hilo,
+ * unicamente avanza el contador de ticks. Con un unico hilo avanzando el reloj
+ * (modo de ejecucion por ticks) la carrera es reproducible y se ejecuta tan rapido
+ * como sea posible; con un hilo por objeto las esperas simplemente desaparecen
+ */
+public class VirtualClock implements RaceClock {
+    private final AtomicLong ticks = new AtomicLong();
+
+    @Override
+    public long now() {
+        return ticks.get();
+    }
+
+    @Override
+    public void sleep(long ticks) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        this.ticks.addAndGet(ticks);
+        Thread.yield();
+    }
+
+    @Override
+    public long getTickNanos() {
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return "VirtualClock{" +
+                "ticks=" + ticks +
+                '}';
+    }
+}
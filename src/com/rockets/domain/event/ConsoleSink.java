@@ -0,0 +1,75 @@
+package com.rockets.domain.event;
+
+import com.rockets.domain.StateRace;
+
+import java.io.PrintStream;
+
+/**
+ * Clase de la capa Domain
+ *
+ * Escribe los eventos de la carrera por consola con el formato de los mensajes originales de
+ * Rocket y Booster. Cada mensaje se forma solo con los valores del evento (potencia, posicion del
+ * propulsor y estado) y el identificador del cohete, no con los propulsores, que cuando se consume
+ * el evento ya pueden haber cambiado. Los mensajes de un lote se acumulan en un StringBuilder y se
+ * escriben de una vez
+ */
+public class ConsoleSink implements EventSink {
+    private final PrintStream out;
+    private final StringBuilder buffer = new StringBuilder();
+
+    /**
+     * @param out, PrintStream en el que se escriben los eventos, normalmente System.out
+     */
+    public ConsoleSink(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void onEvent(RaceEvent event) {
+        switch (event.getType()) {
+            case BOOSTER_WAITING:
+                buffer.append("[wait...] ");
+                appendBooster(event);
+                break;
+            case BOOSTER_POWER:
+                buffer.append(event.getState() == StateRace.BACK ? "[frenando...] " : "[acelerando...] ");
+                appendBooster(event);
+                break;
+            case ROCKET_POWER:
+                buffer.append(event.getState()).append("\n[Total Power ").append(event.getPower()).append("]\n")
+                        .append(' ').append(event.getRocket()).append("\n\n");
+                break;
+            case GOAL_REACHED:
+                buffer.append("--------------------------------------------------\n")
+                        .append("FIN DE LA CARRERA!!! Potencia alcanzada: ").append(event.getPower()).append('\n')
+                        .append("ROCKET .... ").append(event.getRocket()).append('\n')
+                        .append("--------------------------------------------------\n");
+                break;
+            case GOAL_UNREACHABLE:
+                buffer.append("--------------------------------------------------\n")
+                        .append("POTENCIA OBJETIVO INALCANZABLE!!! Potencia acumulada: ").append(event.getPower()).append('\n')
+                        .append("ROCKET .... ").append(event.getRocket()).append('\n')
+                        .append("--------------------------------------------------\n");
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Escribe el propulsor del evento con la potencia que tenia al publicarse
+     */
+    private void appendBooster(RaceEvent event) {
+        buffer.append("Booster{index=").append(event.getBoosterIndex())
+                .append(", currentPower=").append(event.getPower()).append("}\n");
+    }
+
+    @Override
+    public void flush() {
+        if (buffer.length() > 0) {
+            out.print(buffer);
+            out.flush();
+            buffer.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.rockets.domain.event;
+
+/**
+ * Interfaz de la capa Domain
+ *
+ * Destino de los eventos de la carrera. El hilo consumidor de RaceEventLog entrega los eventos
+ * por lotes: llama a onEvent por cada evento del lote y a flush al terminar el lote
+ */
+public interface EventSink {
+
+    /**
+     * @param event, evento de la carrera, solo es valido durante la llamada
+     */
+    void onEvent(RaceEvent event);
+
+    /**
+     * Se llama al terminar cada lote de eventos
+     */
+    default void flush() {
+    }
+
+    /**
+     * Se llama al cerrar el registro de eventos
+     */
+    default void close() {
+        flush();
+    }
+}
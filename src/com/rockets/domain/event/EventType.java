@@ -0,0 +1,17 @@
+package com.rockets.domain.event;
+
+/**
+ * Enum de la capa Domain
+ *
+ * Tipos de evento de la carrera:
+ *
+ * - BOOSTER_WAITING, un propulsor espera el relevo de su cohete
+ * - BOOSTER_POWER, un propulsor ha variado su potencia
+ * - ROCKET_POWER, un cohete ha sumado la potencia de sus propulsores
+ * - GOAL_REACHED, un cohete ha alcanzado la potencia objetivo
+ * - PHASE_CHANGED, un cohete comienza una nueva fase (acelerar o frenar)
+ * - GOAL_UNREACHABLE, un cohete ya no puede alcanzar la potencia objetivo de la fase
+ */
+public enum EventType {
+    BOOSTER_WAITING,BOOSTER_POWER,ROCKET_POWER,GOAL_REACHED,PHASE_CHANGED,GOAL_UNREACHABLE;
+}
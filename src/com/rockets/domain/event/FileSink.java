@@ -0,0 +1,66 @@
+package com.rockets.domain.event;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Clase de la capa Domain
+ *
+ * Escribe los eventos de la carrera en un fichero de texto, una linea por evento con los campos
+ * separados por ';': secuencia, tick, tipo, cohete, propulsor, potencia y estado
+ */
+public class FileSink implements EventSink {
+    private final BufferedWriter writer;
+
+    /**
+     * @param path, ruta del fichero, se crea o se sobreescribe
+     * @throws IOException si no se puede abrir el fichero
+     */
+    public FileSink(Path path) throws IOException {
+        this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void onEvent(RaceEvent event) {
+        try {
+            writer.write(Long.toString(event.getSequence()));
+            writer.write(';');
+            writer.write(Long.toString(event.getTick()));
+            writer.write(';');
+            writer.write(event.getType().name());
+            writer.write(';');
+            writer.write(Integer.toString(event.getRocketIndex()));
+            writer.write(';');
+            writer.write(Integer.toString(event.getBoosterIndex()));
+            writer.write(';');
+            writer.write(Integer.toString(event.getPower()));
+            writer.write(';');
+            writer.write(String.valueOf(event.getState()));
+            writer.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
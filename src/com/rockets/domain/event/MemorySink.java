@@ -0,0 +1,44 @@
+package com.rockets.domain.event;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Clase de la capa Domain
+ *
+ * Guarda en memoria una copia de los ultimos eventos de la carrera, como maximo capacity eventos
+ */
+public class MemorySink implements EventSink {
+    private final int capacity;
+    private final ArrayDeque<RaceEvent> events = new ArrayDeque<>();
+
+    /**
+     * @param capacity, numero maximo de eventos que se conservan
+     */
+    public MemorySink(int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized void onEvent(RaceEvent event) {
+        if (events.size() == capacity) {
+            events.pollFirst();
+        }
+        events.addLast(event.copy());
+    }
+
+    /**
+     * @return copia de los eventos guardados, del mas antiguo al mas reciente
+     */
+    public synchronized List<RaceEvent> getEvents() {
+        return new ArrayList<>(events);
+    }
+
+    /**
+     * Elimina los eventos guardados
+     */
+    public synchronized void clear() {
+        events.clear();
+    }
+}
@@ -0,0 +1,147 @@
+package com.rockets.domain.event;
+
+import com.rockets.domain.StateRace;
+
+import java.util.Arrays;
+
+/**
+ * Clase de la capa Domain
+ *
+ * Instantanea inmutable de las potencias de una carrera que publica PowerSnapshotPublisher: por
+ * cada cohete, por su posicion en la carrera, su identificador, su potencia acumulada, su potencia
+ * objetivo, su estado y la potencia de cada propulsor, segun los ultimos eventos recibidos. La
+ * comparten todos los suscriptores, por lo que no se modifica ni se copia al entregarla
+ *
+ * La potencia acumulada es la que sumo el cohete en su ultimo evento, por lo que los propulsores
+ * pueden ir un tick por delante de ella
+ */
+public class PowerSnapshot {
+    private static final StateRace[] STATES = StateRace.values();
+
+    private final long version;
+    private final long tick;
+    private final long nanoTime;
+    private final String[] ids;
+    private final int[] offsets;
+    private final int[] boosters;
+    private final int[] acumPower;
+    private final int[] goalPower;
+    private final byte[] states;
+    private final int[] powers;
+
+    PowerSnapshot(long version, long tick, String[] ids, int[] offsets, int[] boosters,
+                  int[] acumPower, int[] goalPower, byte[] states, int[] powers) {
+        this.version = version;
+        this.tick = tick;
+        this.nanoTime = System.nanoTime();
+        this.ids = ids;
+        this.offsets = offsets;
+        this.boosters = boosters;
+        this.acumPower = acumPower;
+        this.goalPower = goalPower;
+        this.states = states;
+        this.powers = powers;
+    }
+
+    /**
+     * @return numero de eventos aplicados hasta esta instantanea, crece con cada cambio
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return tick del reloj de la carrera del ultimo evento aplicado
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * @return instante (System.nanoTime) en el que se tomo la instantanea
+     */
+    public long getNanoTime() {
+        return nanoTime;
+    }
+
+    /**
+     * @return numero de posiciones de la carrera, incluidas las que aun no tienen eventos
+     */
+    public int getRocketCount() {
+        return ids.length;
+    }
+
+    /**
+     * @param r, posicion del cohete en la carrera
+     * @return identificador del cohete, null si no hay eventos de esa posicion
+     */
+    public String getId(int r) {
+        return ids[r];
+    }
+
+    /**
+     * @param r, posicion del cohete en la carrera
+     * @return potencia acumulada del cohete
+     */
+    public int getAcumPower(int r) {
+        return acumPower[r];
+    }
+
+    /**
+     * @param r, posicion del cohete en la carrera
+     * @return potencia objetivo de la fase en curso del cohete, 0 si aun no ha comenzado ninguna
+     */
+    public int getGoalPower(int r) {
+        return goalPower[r];
+    }
+
+    /**
+     * @param r, posicion del cohete en la carrera
+     * @return estado del cohete en su ultimo evento, null si aun no lo tiene
+     */
+    public StateRace getState(int r) {
+        return states[r] < 0 ? null : STATES[states[r]];
+    }
+
+    /**
+     * @param r, posicion del cohete en la carrera
+     * @return numero de propulsores del cohete
+     */
+    public int getBoosterCount(int r) {
+        return boosters[r];
+    }
+
+    /**
+     * @param r, posicion del cohete en la carrera
+     * @param b, posicion del propulsor en el cohete
+     * @return potencia del propulsor
+     */
+    public int getPower(int r, int b) {
+        if (b < 0 || b >= boosters[r]) {
+            throw new IndexOutOfBoundsException("Propulsor " + b + " de " + boosters[r]);
+        }
+        return powers[offsets[r] + b];
+    }
+
+    /**
+     * @param r, posicion del cohete en la carrera
+     * @return copia de la potencia de cada propulsor del cohete
+     */
+    public int[] getPowers(int r) {
+        return Arrays.copyOfRange(powers, offsets[r], offsets[r] + boosters[r]);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append("PowerSnapshot{version=").append(version).append(", tick=").append(tick).append('}');
+        for (int r = 0; r < ids.length; r++) {
+            if (ids[r] != null) {
+                text.append("\n ").append(ids[r]).append(' ').append(getState(r))
+                        .append(" acumPower=").append(acumPower[r]).append('/').append(goalPower[r])
+                        .append(' ').append(Arrays.toString(getPowers(r)));
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,392 @@
+package com.rockets.domain.event;
+
+import com.rockets.domain.Rocket;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Clase de la capa Domain
+ *
+ * Publicador (Flow.Publisher) de instantaneas de las potencias de la carrera, para seguir una
+ * carrera rapida desde paneles y muchos consumidores sin leer los cohetes (Rocket.getAcumPower
+ * bloquea el cohete y suma sus propulsores). Como EventSink de un RaceEventLog solo guarda el
+ * ultimo valor de cada cohete y propulsor, de modo que los hilos de la carrera no esperan nunca
+ * por los suscriptores
+ *
+ * Cada periodo, si ha habido cambios, un hilo propio toma una instantanea inmutable (PowerSnapshot)
+ * que comparten todos los suscriptores. Cada suscriptor la recibe a su propio ritmo (intervalo
+ * minimo entre entregas) y segun su demanda (request): guarda como mucho una instantanea pendiente,
+ * que se sustituye por la siguiente si aun no la ha recibido (conflacion), por lo que un suscriptor
+ * lento recibe menos instantaneas pero nunca acumula memoria ni retrasa a los demas. Las entregas
+ * se hacen en el Executor indicado, por defecto ForkJoinPool.commonPool() como SubmissionPublisher
+ *
+ * Al cerrar el registro de eventos cada suscriptor recibe la ultima instantanea, si tiene demanda,
+ * y onComplete
+ *
+ * Es final porque el constructor programa publish en el hilo propio antes de terminar
+ */
+public final class PowerSnapshotPublisher implements EventSink, Flow.Publisher<PowerSnapshot> {
+    /**
+     * Periodo por defecto entre instantaneas, 10 por segundo
+     */
+    public static final long DEFAULT_PERIOD_MILLIS = 100;
+
+    private final long periodNanos;
+    private final Executor executor;
+    private final ScheduledExecutorService scheduler;
+    private final List<PowerSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder conflated = new LongAdder();
+    private volatile boolean closed;
+
+    // ultimo valor de cada cohete y propulsor, protegido por this
+    private String[] ids = new String[16];
+    private int[] offsets = new int[16];
+    private int[] boosters = new int[16];
+    private int[] acumPower = new int[16];
+    private int[] goalPower = new int[16];
+    private byte[] states = new byte[16];
+    private int[] powers = new int[64];
+    private int used;
+    private int rockets;
+    private long tick;
+    private long version;
+    private boolean layoutChanged;
+    private String[] layoutIds = new String[0];
+    private int[] layoutOffsets = new int[0];
+    private int[] layoutBoosters = new int[0];
+    private PowerSnapshot latest;
+
+    public PowerSnapshotPublisher() {
+        this(DEFAULT_PERIOD_MILLIS, TimeUnit.MILLISECONDS, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param period, periodo entre instantaneas, intervalo minimo entre entregas a un suscriptor
+     * @param unit, unidad del periodo
+     * @param executor, Executor en el que se entregan las instantaneas a los suscriptores
+     */
+    public PowerSnapshotPublisher(long period, TimeUnit unit, Executor executor) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period ha de ser mayor que 0");
+        }
+        this.periodNanos = unit.toNanos(period);
+        this.executor = executor;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "power-snapshots");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Arrays.fill(states, (byte) -1);
+        this.scheduler.scheduleAtFixedRate(this::publish, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onEvent(RaceEvent event) {
+        EventType type = event.getType();
+        int r = event.getRocketIndex();
+        if (type == EventType.BOOSTER_WAITING || r < 0) {
+            return;
+        }
+        Rocket rocket = event.getRocket();
+        synchronized (this) {
+            locate(r, rocket.getId(), rocket.getNumberOfBoosters());
+            int b = event.getBoosterIndex();
+            if (b >= 0) {
+                if (b < boosters[r]) {
+                    powers[offsets[r] + b] = event.getPower();
+                }
+            } else {
+                if (type == EventType.PHASE_CHANGED) {
+                    goalPower[r] = event.getPower();
+                } else {
+                    acumPower[r] = event.getPower();
+                }
+                if (event.getState() != null) {
+                    states[r] = (byte) event.getState().ordinal();
+                }
+            }
+            tick = Math.max(tick, event.getTick());
+            version++;
+        }
+    }
+
+    /**
+     * Reserva el hueco de la posicion r si es la primera vez que aparece o si ahora la ocupa
+     * otro cohete (p.ej. tras quitar cohetes de la carrera)
+     */
+    private void locate(int r, String id, int count) {
+        if (r < rockets && id.equals(ids[r]) && count == boosters[r]) {
+            return;
+        }
+        if (r >= ids.length) {
+            int size = Math.max(r + 1, ids.length * 2);
+            ids = Arrays.copyOf(ids, size);
+            offsets = Arrays.copyOf(offsets, size);
+            boosters = Arrays.copyOf(boosters, size);
+            acumPower = Arrays.copyOf(acumPower, size);
+            goalPower = Arrays.copyOf(goalPower, size);
+            int from = states.length;
+            states = Arrays.copyOf(states, size);
+            Arrays.fill(states, from, size, (byte) -1);
+        }
+        if (ids[r] == null || count > boosters[r]) {
+            if (used + count > powers.length) {
+                compact();
+            }
+            if (used + count > powers.length) {
+                powers = Arrays.copyOf(powers, Math.max(used + count, powers.length * 2));
+            }
+            offsets[r] = used;
+            used += count;
+        }
+        Arrays.fill(powers, offsets[r], offsets[r] + count, 0);
+        ids[r] = id;
+        boosters[r] = count;
+        acumPower[r] = 0;
+        goalPower[r] = 0;
+        states[r] = -1;
+        rockets = Math.max(rockets, r + 1);
+        layoutChanged = true;
+    }
+
+    /**
+     * Recoloca de forma contigua las potencias de los propulsores, descartando los huecos de los
+     * cohetes sustituidos por otros con mas propulsores
+     */
+    private void compact() {
+        int[] packed = new int[powers.length];
+        int next = 0;
+        for (int r = 0; r < rockets; r++) {
+            if (ids[r] != null) {
+                System.arraycopy(powers, offsets[r], packed, next, boosters[r]);
+                offsets[r] = next;
+                next += boosters[r];
+            }
+        }
+        powers = packed;
+        used = next;
+        layoutChanged = true;
+    }
+
+    /**
+     * @return instantanea con el ultimo valor de cada cohete y propulsor. Si no ha habido cambios
+     * desde la anterior se devuelve la misma, y los identificadores y la disposicion de los
+     * propulsores solo se copian si han cambiado
+     */
+    public synchronized PowerSnapshot getSnapshot() {
+        if (latest != null && latest.getVersion() == version) {
+            return latest;
+        }
+        if (layoutChanged) {
+            layoutIds = Arrays.copyOf(ids, rockets);
+            layoutOffsets = Arrays.copyOf(offsets, rockets);
+            layoutBoosters = Arrays.copyOf(boosters, rockets);
+            layoutChanged = false;
+        }
+        latest = new PowerSnapshot(version, tick, layoutIds, layoutOffsets, layoutBoosters,
+                Arrays.copyOf(acumPower, rockets), Arrays.copyOf(goalPower, rockets),
+                Arrays.copyOf(states, rockets), Arrays.copyOf(powers, used));
+        return latest;
+    }
+
+    /**
+     * Suscribe con el periodo del publicador como intervalo minimo entre entregas
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super PowerSnapshot> subscriber) {
+        subscribe(subscriber, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param subscriber, suscriptor
+     * @param interval, intervalo minimo entre entregas al suscriptor; si es menor que el periodo
+     *                  del publicador se entrega una instantanea por periodo
+     * @param unit, unidad del intervalo
+     */
+    public void subscribe(Flow.Subscriber<? super PowerSnapshot> subscriber, long interval, TimeUnit unit) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        PowerSubscription subscription = new PowerSubscription(subscriber, unit.toNanos(interval));
+        subscriber.onSubscribe(subscription);
+        subscriptions.add(subscription);
+        if (closed) {
+            subscription.complete(getSnapshot());
+        }
+    }
+
+    /**
+     * Toma la instantanea del periodo, si ha habido cambios, y la ofrece a los suscriptores. Lo
+     * llama el hilo propio cada periodo (visible en el paquete para las pruebas)
+     */
+    void publish() {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        PowerSnapshot snapshot = getSnapshot();
+        long now = System.nanoTime();
+        for (PowerSubscription subscription : subscriptions) {
+            subscription.offer(snapshot, now);
+        }
+    }
+
+    /**
+     * Entrega la ultima instantanea y termina a los suscriptores
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        scheduler.shutdownNow();
+        PowerSnapshot snapshot = getSnapshot();
+        for (PowerSubscription subscription : subscriptions) {
+            subscription.complete(snapshot);
+        }
+    }
+
+    /**
+     * @return numero de suscriptores
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * @return numero de instantaneas entregadas, sumando todos los suscriptores
+     */
+    public long getDelivered() {
+        return delivered.sum();
+    }
+
+    /**
+     * @return numero de instantaneas sustituidas por otra mas reciente antes de entregarse
+     */
+    public long getConflated() {
+        return conflated.sum();
+    }
+
+    /**
+     * Suscripcion con una sola instantanea pendiente. Las entregas se serializan con un contador
+     * de trabajo pendiente (wip): solo una tarea del Executor entrega a la vez
+     */
+    private class PowerSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super PowerSnapshot> subscriber;
+        private final long intervalNanos;
+        private final AtomicReference<PowerSnapshot> pending = new AtomicReference<>();
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile boolean done;
+        private volatile Throwable error;
+        private long lastVersion = -1;
+        private long lastOffer;
+
+        PowerSubscription(Flow.Subscriber<? super PowerSnapshot> subscriber, long intervalNanos) {
+            this.subscriber = subscriber;
+            this.intervalNanos = intervalNanos;
+            this.lastOffer = System.nanoTime() - intervalNanos;
+        }
+
+        /**
+         * Llamado desde el hilo del publicador
+         */
+        void offer(PowerSnapshot snapshot, long now) {
+            if (cancelled || done || snapshot.getVersion() == lastVersion || now - lastOffer < intervalNanos) {
+                return;
+            }
+            lastVersion = snapshot.getVersion();
+            lastOffer = now;
+            if (pending.getAndSet(snapshot) != null) {
+                conflated.increment();
+            }
+            drain();
+        }
+
+        void complete(PowerSnapshot snapshot) {
+            if (snapshot.getVersion() != lastVersion && pending.getAndSet(snapshot) != null) {
+                conflated.increment();
+            }
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("request ha de ser mayor que 0: " + n);
+            } else {
+                demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            pending.set(null);
+            subscriptions.remove(this);
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this::deliver);
+                } catch (RejectedExecutionException e) {
+                    cancel();
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        private void deliver() {
+            int missed = 1;
+            while (true) {
+                if (!cancelled && error != null) {
+                    cancel();
+                    subscriber.onError(error);
+                }
+                while (!cancelled && demand.get() > 0) {
+                    PowerSnapshot snapshot = pending.getAndSet(null);
+                    if (snapshot == null) {
+                        break;
+                    }
+                    if (demand.get() != Long.MAX_VALUE) {
+                        demand.decrementAndGet();
+                    }
+                    delivered.increment();
+                    try {
+                        subscriber.onNext(snapshot);
+                    } catch (RuntimeException e) {
+                        cancel();
+                        subscriber.onError(e);
+                    }
+                }
+                if (!cancelled && done && (pending.get() == null || demand.get() == 0)) {
+                    // sin demanda la ultima instantanea se descarta, no se retiene el cierre
+                    cancel();
+                    subscriber.onComplete();
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+    }
+}
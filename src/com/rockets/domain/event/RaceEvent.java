@@ -0,0 +1,132 @@
+package com.rockets.domain.event;
+
+import com.rockets.domain.Rocket;
+import com.rockets.domain.StateRace;
+
+import java.time.Instant;
+
+/**
+ * Clase de la capa Domain
+ *
+ * Evento de la carrera. Los eventos son huecos reutilizables del buffer circular de RaceEventLog,
+ * se rellenan con valores primitivos al publicarse y se sobreescriben una vez consumidos, por lo que
+ * publicar un evento no reserva memoria. Un EventSink no debe guardar la referencia al evento
+ * recibido, si necesita conservarlo ha de hacer una copia con copy()
+ */
+public class RaceEvent {
+    private long sequence;
+    private EventType type;
+    private long tick;
+    private long epochMicros;
+    private Rocket rocket;
+    private int rocketIndex;
+    private int boosterIndex;
+    private int power;
+    private StateRace state;
+
+    void set(long sequence, EventType type, long tick, long epochMicros, Rocket rocket, int boosterIndex,
+             int power, StateRace state) {
+        this.sequence = sequence;
+        this.type = type;
+        this.tick = tick;
+        this.epochMicros = epochMicros;
+        this.rocket = rocket;
+        this.rocketIndex = rocket.getRaceIndex();
+        this.boosterIndex = boosterIndex;
+        this.power = power;
+        this.state = state;
+    }
+
+    /**
+     * @return copia del evento que puede conservarse despues de consumirlo
+     */
+    public RaceEvent copy() {
+        RaceEvent copy = new RaceEvent();
+        copy.sequence = sequence;
+        copy.type = type;
+        copy.tick = tick;
+        copy.epochMicros = epochMicros;
+        copy.rocket = rocket;
+        copy.rocketIndex = rocketIndex;
+        copy.boosterIndex = boosterIndex;
+        copy.power = power;
+        copy.state = state;
+        return copy;
+    }
+
+    /**
+     * @return numero de secuencia del evento en el registro
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public EventType getType() {
+        return type;
+    }
+
+    /**
+     * @return tick del reloj de la carrera en el que se publico el evento
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * @return instante de publicacion del evento en microsegundos desde epoch, tomado por el hilo
+     * que lo publica (ver epochMicros)
+     */
+    public long getEpochMicros() {
+        return epochMicros;
+    }
+
+    /**
+     * @return instante actual en microsegundos desde epoch, comparable entre procesos de la misma maquina
+     */
+    public static long epochMicros() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000L + now.getNano() / 1_000;
+    }
+
+    public Rocket getRocket() {
+        return rocket;
+    }
+
+    /**
+     * @return posicion del cohete en su carrera
+     */
+    public int getRocketIndex() {
+        return rocketIndex;
+    }
+
+    /**
+     * @return posicion del propulsor en su cohete, -1 si el evento es del cohete
+     */
+    public int getBoosterIndex() {
+        return boosterIndex;
+    }
+
+    /**
+     * @return potencia del propulsor, o potencia acumulada del cohete si el evento es del cohete
+     */
+    public int getPower() {
+        return power;
+    }
+
+    public StateRace getState() {
+        return state;
+    }
+
+    @Override
+    public String toString() {
+        return "RaceEvent{" +
+                "sequence=" + sequence +
+                ", type=" + type +
+                ", tick=" + tick +
+                ", rocketIndex=" + rocketIndex +
+                ", boosterIndex=" + boosterIndex +
+                ", power=" + power +
+                ", state=" + state +
+                '}';
+    }
+}
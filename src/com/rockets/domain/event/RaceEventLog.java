@@ -0,0 +1,217 @@
+package com.rockets.domain.event;
+
+import com.rockets.domain.Rocket;
+import com.rockets.domain.StateRace;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Clase de la capa Domain
+ *
+ * Registro asincrono de eventos de la carrera. Los hilos de la carrera publican eventos en un
+ * buffer circular acotado de huecos RaceEvent reservados de antemano, sin bloqueos ni reserva de
+ * memoria: cada productor reserva un numero de secuencia con compareAndSet, rellena su hueco y lo
+ * marca como publicado. Si el buffer esta lleno el evento se descarta y se cuenta en getDropped(),
+ * de forma que la carrera nunca espera por la entrada/salida. Un registro sin perdidas (lossless),
+ * necesario por ejemplo para grabar la carrera, hace esperar al productor hasta que haya hueco
+ *
+ * Un unico hilo consumidor recorre el buffer en orden de secuencia y entrega los eventos por lotes
+ * a los EventSink configurados (consola, fichero, memoria...)
+ *
+ * DISCARD es un registro que descarta todos los eventos, sin hilo consumidor
+ */
+public class RaceEventLog implements AutoCloseable {
+    /**
+     * Registro que descarta todos los eventos
+     */
+    public static final RaceEventLog DISCARD = new RaceEventLog();
+
+    private static final int DEFAULT_BATCH = 256;
+
+    private final RaceEvent[] slots;
+    private final int mask;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+    private final LongAdder dropped = new LongAdder();
+    private final EventSink[] sinks;
+    private final Thread consumer;
+    private volatile boolean running;
+    private volatile boolean sleeping;
+    private final boolean lossless;
+
+    private RaceEventLog() {
+        this.slots = new RaceEvent[0];
+        this.mask = 0;
+        this.published = new AtomicLongArray(0);
+        this.sinks = new EventSink[0];
+        this.consumer = null;
+        this.lossless = false;
+    }
+
+    /**
+     * Crea el registro y arranca su hilo consumidor
+     *
+     * @param capacity, numero de huecos del buffer, se redondea a la siguiente potencia de 2
+     * @param sinks, destinos de los eventos
+     */
+    public RaceEventLog(int capacity, EventSink... sinks) {
+        this(capacity, false, sinks);
+    }
+
+    /**
+     * Crea el registro y arranca su hilo consumidor
+     *
+     * @param capacity, numero de huecos del buffer, se redondea a la siguiente potencia de 2
+     * @param lossless, true para que el productor espere a que haya hueco en lugar de descartar el evento
+     * @param sinks, destinos de los eventos
+     */
+    public RaceEventLog(int capacity, boolean lossless, EventSink... sinks) {
+        this.lossless = lossless;
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new RaceEvent[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new RaceEvent();
+        }
+        this.mask = size - 1;
+        this.published = new AtomicLongArray(size);
+        this.sinks = sinks.clone();
+        this.running = true;
+        this.consumer = new Thread(this::consume, "race-event-log");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    /**
+     * Publica un evento sin bloquear. Si el buffer esta lleno el evento se descarta
+     *
+     * @param type, tipo de evento
+     * @param rocket, cohete que publica el evento o al que pertenece el propulsor
+     * @param boosterIndex, posicion del propulsor en el cohete, -1 si el evento es del cohete
+     * @param power, potencia del propulsor o potencia acumulada del cohete
+     * @param state, estado de la carrera
+     * @return true si el evento se ha publicado, false si se ha descartado
+     */
+    public boolean publish(EventType type, Rocket rocket, int boosterIndex, int power, StateRace state) {
+        if (consumer == null) {
+            return false;
+        }
+        // el tick se lee antes de reservar la secuencia, no tras esperar hueco en un registro sin perdidas
+        long tick = rocket.getClock().now();
+        long seq;
+        for (;;) {
+            seq = claimed.get();
+            if (seq - consumed >= slots.length) {
+                if (!lossless || !running) {
+                    dropped.increment();
+                    return false;
+                }
+                LockSupport.unpark(consumer);
+                Thread.onSpinWait();
+            } else if (claimed.compareAndSet(seq, seq + 1)) {
+                break;
+            }
+        }
+        int index = (int) seq & mask;
+        slots[index].set(seq, type, tick, RaceEvent.epochMicros(), rocket, boosterIndex, power, state);
+        published.set(index, seq + 1);
+        if (sleeping) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    private void consume() {
+        long next = 0;
+        while (running || next < claimed.get()) {
+            int batch = 0;
+            while (batch < DEFAULT_BATCH && published.get((int) next & mask) == next + 1) {
+                RaceEvent event = slots[(int) next & mask];
+                for (EventSink sink : sinks) {
+                    try {
+                        sink.onEvent(event);
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                }
+                next++;
+                batch++;
+            }
+            if (batch > 0) {
+                consumed = next;
+                for (EventSink sink : sinks) {
+                    try {
+                        sink.flush();
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                }
+            } else if (running) {
+                sleeping = true;
+                if (published.get((int) next & mask) != next + 1) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+                }
+                sleeping = false;
+            }
+        }
+    }
+
+    /**
+     * Espera a que el hilo consumidor haya entregado todos los eventos publicados hasta el momento
+     *
+     * @param timeout, tiempo maximo de espera
+     * @param unit, unidad del tiempo maximo de espera
+     * @return true si se han entregado todos, false si se ha agotado el tiempo
+     * @throws InterruptedException si el hilo es interrumpido durante la espera
+     */
+    public boolean drain(long timeout, TimeUnit unit) throws InterruptedException {
+        long target = claimed.get();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (consumer != null && consumed < target) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            LockSupport.unpark(consumer);
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        return true;
+    }
+
+    /**
+     * @return numero de eventos descartados por encontrarse el buffer lleno
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return numero de eventos publicados
+     */
+    public long getPublished() {
+        return claimed.get();
+    }
+
+    /**
+     * Detiene el hilo consumidor tras entregar los eventos pendientes y cierra los EventSink
+     */
+    @Override
+    public void close() {
+        if (consumer == null || !running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (EventSink sink : sinks) {
+            sink.close();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.rockets.domain.event;
+
+import java.util.Arrays;
+
+/**
+ * Clase de la capa Domain
+ *
+ * Huella (hash de 64 bits) de los eventos de una carrera, para comprobar que dos ejecuciones son
+ * identicas sin guardar ni comparar sus registros. Cada cohete acumula su propia huella con los
+ * eventos que publica, en el orden en que los publica; la huella de la carrera combina las de los
+ * cohetes por su posicion en la carrera. Asi no depende de como se intercalan los eventos de
+ * cohetes distintos, que con varios hilos cambia de una ejecucion a otra
+ *
+ * No incluye el numero de secuencia de los eventos ni los eventos BOOSTER_WAITING, que dependen
+ * de los hilos. Ha de usarse con un RaceEventLog sin perdidas (lossless)
+ */
+public class TraceDigest implements EventSink {
+    private static final long OFFSET = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private long[] hashes = new long[16];
+    private long[] counts = new long[16];
+    private int rockets;
+
+    @Override
+    public synchronized void onEvent(RaceEvent event) {
+        if (event.getType() == EventType.BOOSTER_WAITING) {
+            return;
+        }
+        int r = event.getRocketIndex();
+        if (r < 0) {
+            return;
+        }
+        if (r >= hashes.length) {
+            int size = Math.max(r + 1, hashes.length * 2);
+            hashes = Arrays.copyOf(hashes, size);
+            counts = Arrays.copyOf(counts, size);
+        }
+        long h = counts[r] == 0 ? OFFSET : hashes[r];
+        h = mix(h, event.getType().ordinal());
+        h = mix(h, event.getTick());
+        h = mix(h, event.getBoosterIndex());
+        h = mix(h, event.getPower());
+        h = mix(h, event.getState() == null ? -1 : event.getState().ordinal());
+        hashes[r] = h;
+        counts[r]++;
+        rockets = Math.max(rockets, r + 1);
+    }
+
+    /**
+     * @return huella de la carrera, combinando la de cada cohete en el orden de su posicion
+     */
+    public synchronized long getDigest() {
+        long h = OFFSET;
+        for (int r = 0; r < rockets; r++) {
+            h = mix(h, r);
+            h = mix(h, counts[r]);
+            h = mix(h, hashes[r]);
+        }
+        return h;
+    }
+
+    /**
+     * @param rocketIndex, posicion del cohete en la carrera
+     * @return huella de los eventos del cohete
+     */
+    public synchronized long getDigest(int rocketIndex) {
+        return rocketIndex < rockets && counts[rocketIndex] > 0 ? hashes[rocketIndex] : OFFSET;
+    }
+
+    /**
+     * @return numero de eventos incluidos en la huella
+     */
+    public synchronized long getCount() {
+        long count = 0;
+        for (int r = 0; r < rockets; r++) {
+            count += counts[r];
+        }
+        return count;
+    }
+
+    /**
+     * Vacia la huella
+     */
+    public synchronized void clear() {
+        Arrays.fill(hashes, 0);
+        Arrays.fill(counts, 0);
+        rockets = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%016x", getDigest());
+    }
+
+    /**
+     * FNV-1a sobre los 8 bytes del valor
+     */
+    private static long mix(long h, long value) {
+        for (int i = 0; i < 8; i++) {
+            h ^= (value >>> (i * 8)) & 0xff;
+            h *= PRIME;
+        }
+        return h;
+    }
+}
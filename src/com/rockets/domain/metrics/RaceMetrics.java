@@ -0,0 +1,323 @@
+package com.rockets.domain.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Clase de la capa Domain
+ *
+ * Metricas de la carrera, siempre activas y pensadas para poder quedarse en produccion: contadores
+ * repartidos (LongAdder) e histogramas sin bloqueos, que Booster, Rocket y Race actualizan en sus
+ * caminos criticos sin reservar memoria
+ *
+ * - pasos de potencia aplicados, y pasos por segundo
+ * - tiempo (ms) y ticks hasta alcanzar la potencia objetivo, por cohete y fase
+ * - tiempo de espera y de retencion de los locks de propulsores y cohetes
+ * - profundidad de cola e hilos activos de los ExecutorService registrados
+ *
+ * Se exponen por JMX (RaceMetricsMXBean) y como texto plano con snapshot()
+ */
+public class RaceMetrics implements RaceMetricsMXBean {
+    public static final String OBJECT_NAME = "com.rockets:type=RaceMetrics";
+
+    private static final long RATE_WINDOW_NANOS = 1_000_000_000L;
+    private static final RaceMetrics instance = new RaceMetrics();
+
+    private final LongAdder steps = new LongAdder();
+    private final Histogram timeToGoal = new Histogram();
+    private final Histogram ticksToGoal = new Histogram();
+    private final Histogram boosterLockWait = new Histogram();
+    private final Histogram boosterLockHold = new Histogram();
+    private final Histogram rocketLockWait = new Histogram();
+    private final Histogram rocketLockHold = new Histogram();
+    private final Histogram phaseTransition = new Histogram();
+    private final Map<String, ExecutorService> executors = new ConcurrentHashMap<>();
+    private final AtomicReference<long[]> rate = new AtomicReference<>(new long[]{System.nanoTime(), 0, 0});
+
+    /**
+     * Sitio de un lock instrumentado: BOOSTER, el lock con el que el cohete despierta a cada
+     * propulsor al comenzar una fase (los pasos leen la fase sin lock); ROCKET, el lock con el que
+     * el cohete comienza una fase o se quita de la carrera.
+     * Las esperas a la fase siguiente no cuentan como retencion
+     */
+    public enum LockSite {
+        BOOSTER, ROCKET
+    }
+
+    private RaceMetrics() {
+    }
+
+    /**
+     * @return instancia unica de las metricas de la carrera
+     */
+    public static RaceMetrics getInstance() {
+        return instance;
+    }
+
+    /**
+     * Registra las metricas en el MBeanServer de la plataforma, si no lo estaban ya
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (InstanceAlreadyExistsException e) {
+            // registrado por otro hilo a la vez
+        } catch (JMException e) {
+            throw new IllegalStateException("No se pueden registrar las metricas en JMX", e);
+        }
+    }
+
+    /**
+     * Cuenta un paso de potencia aplicado por un propulsor
+     */
+    public void stepApplied() {
+        steps.increment();
+    }
+
+    /**
+     * Registra que un cohete ha alcanzado la potencia objetivo de su fase
+     *
+     * @param nanos, tiempo desde el comienzo de la fase, en nanosegundos
+     * @param ticks, ticks del reloj de la carrera desde el comienzo de la fase
+     */
+    public void goalReached(long nanos, long ticks) {
+        timeToGoal.record(nanos / 1_000_000);
+        ticksToGoal.record(ticks);
+    }
+
+    /**
+     * Registra un cambio de fase de la carrera
+     *
+     * @param nanos, tiempo desde que se pide el cambio hasta que todos los cohetes estan en la
+     * fase nueva, en nanosegundos
+     */
+    public void phaseTransition(long nanos) {
+        phaseTransition.record(nanos);
+    }
+
+    /**
+     * Adquiere un lock registrando el tiempo de espera
+     *
+     * @param lock, lock a adquirir
+     * @param site, sitio del lock
+     * @return instante (System.nanoTime) en que se adquiere el lock, para pasarlo a unlock
+     */
+    public long lock(Lock lock, LockSite site) {
+        long start = System.nanoTime();
+        lock.lock();
+        long acquired = System.nanoTime();
+        (site == LockSite.BOOSTER ? boosterLockWait : rocketLockWait).record(acquired - start);
+        return acquired;
+    }
+
+    /**
+     * Libera un lock registrando el tiempo de retencion
+     *
+     * @param lock, lock a liberar
+     * @param site, sitio del lock
+     * @param acquired, instante devuelto por lock
+     */
+    public void unlock(Lock lock, LockSite site, long acquired) {
+        (site == LockSite.BOOSTER ? boosterLockHold : rocketLockHold).record(System.nanoTime() - acquired);
+        lock.unlock();
+    }
+
+    /**
+     * @param name, nombre del ExecutorService en las metricas
+     * @param executor, ExecutorService del que se leen la cola y los hilos activos
+     */
+    public void registerExecutor(String name, ExecutorService executor) {
+        executors.put(name, executor);
+    }
+
+    /**
+     * @param name, nombre del ExecutorService en las metricas
+     */
+    public void unregisterExecutor(String name) {
+        executors.remove(name);
+    }
+
+    @Override
+    public long getStepsApplied() {
+        return steps.sum();
+    }
+
+    /**
+     * La tasa se recalcula, como mucho, una vez por segundo: cada ventana compara el contador
+     * de pasos con el de la ventana anterior. Mientras no se ha completado la primera ventana
+     * se devuelve la tasa de la ventana en curso
+     */
+    @Override
+    public double getStepsPerSecond() {
+        long now = System.nanoTime();
+        long[] last = rate.get();
+        long elapsed = now - last[0];
+        if (elapsed >= RATE_WINDOW_NANOS) {
+            long count = steps.sum();
+            long perSecond = (count - last[1]) * 1_000_000_000L / elapsed;
+            rate.compareAndSet(last, new long[]{now, count, perSecond});
+            return perSecond;
+        }
+        if (last[2] == 0 && elapsed > 0) {
+            return (steps.sum() - last[1]) * 1e9 / elapsed;
+        }
+        return last[2];
+    }
+
+    @Override
+    public long getGoalsReached() {
+        return ticksToGoal.getCount();
+    }
+
+    @Override
+    public double getTimeToGoalMillisMean() {
+        return timeToGoal.getMean();
+    }
+
+    @Override
+    public long getTimeToGoalMillisP99() {
+        return timeToGoal.getPercentile(99);
+    }
+
+    @Override
+    public double getTicksToGoalMean() {
+        return ticksToGoal.getMean();
+    }
+
+    @Override
+    public double getBoosterLockWaitNanosMean() {
+        return boosterLockWait.getMean();
+    }
+
+    @Override
+    public long getBoosterLockWaitNanosMax() {
+        return boosterLockWait.getMax();
+    }
+
+    @Override
+    public double getBoosterLockHoldNanosMean() {
+        return boosterLockHold.getMean();
+    }
+
+    @Override
+    public double getRocketLockWaitNanosMean() {
+        return rocketLockWait.getMean();
+    }
+
+    @Override
+    public long getRocketLockWaitNanosMax() {
+        return rocketLockWait.getMax();
+    }
+
+    @Override
+    public double getRocketLockHoldNanosMean() {
+        return rocketLockHold.getMean();
+    }
+
+    @Override
+    public long getPhaseTransitions() {
+        return phaseTransition.getCount();
+    }
+
+    @Override
+    public double getPhaseTransitionNanosMean() {
+        return phaseTransition.getMean();
+    }
+
+    @Override
+    public long getPhaseTransitionNanosP99() {
+        return phaseTransition.getPercentile(99);
+    }
+
+    @Override
+    public long getExecutorQueueDepth() {
+        long depth = 0;
+        for (ExecutorService executor : executors.values()) {
+            depth += Math.max(0, queueDepth(executor));
+        }
+        return depth;
+    }
+
+    @Override
+    public long getExecutorActiveThreads() {
+        long active = 0;
+        for (ExecutorService executor : executors.values()) {
+            active += Math.max(0, activeThreads(executor));
+        }
+        return active;
+    }
+
+    private static long queueDepth(ExecutorService executor) {
+        if (executor instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) executor).getQueue().size();
+        }
+        if (executor instanceof ForkJoinPool) {
+            ForkJoinPool pool = (ForkJoinPool) executor;
+            return pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount();
+        }
+        return -1;
+    }
+
+    private static long activeThreads(ExecutorService executor) {
+        if (executor instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) executor).getActiveCount();
+        }
+        if (executor instanceof ForkJoinPool) {
+            return ((ForkJoinPool) executor).getActiveThreadCount();
+        }
+        return -1;
+    }
+
+    /**
+     * @return todas las metricas en texto plano, una por linea
+     */
+    public String snapshot() {
+        StringBuilder text = new StringBuilder();
+        text.append("steps.applied ").append(getStepsApplied()).append('\n');
+        text.append("steps.perSecond ").append(getStepsPerSecond()).append('\n');
+        text.append("goal.timeMillis ").append(timeToGoal).append('\n');
+        text.append("goal.ticks ").append(ticksToGoal).append('\n');
+        text.append("lock.booster.waitNanos ").append(boosterLockWait).append('\n');
+        text.append("lock.booster.holdNanos ").append(boosterLockHold).append('\n');
+        text.append("lock.rocket.waitNanos ").append(rocketLockWait).append('\n');
+        text.append("lock.rocket.holdNanos ").append(rocketLockHold).append('\n');
+        text.append("phase.transitionNanos ").append(phaseTransition).append('\n');
+        executors.forEach((name, executor) -> text.append("executor.").append(name)
+                .append(" queue=").append(queueDepth(executor))
+                .append(" active=").append(activeThreads(executor)).append('\n'));
+        return text.toString();
+    }
+
+    @Override
+    public String getSnapshot() {
+        return snapshot();
+    }
+
+    @Override
+    public void reset() {
+        steps.reset();
+        timeToGoal.reset();
+        ticksToGoal.reset();
+        boosterLockWait.reset();
+        boosterLockHold.reset();
+        rocketLockWait.reset();
+        rocketLockHold.reset();
+        phaseTransition.reset();
+        rate.set(new long[]{System.nanoTime(), 0, 0});
+    }
+}
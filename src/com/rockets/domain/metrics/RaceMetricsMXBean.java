@@ -0,0 +1,71 @@
+package com.rockets.domain.metrics;
+
+/**
+ * Interfaz de la capa Domain
+ *
+ * Vista JMX de las metricas de la carrera, registrada como com.rockets:type=RaceMetrics
+ */
+public interface RaceMetricsMXBean {
+
+    /**
+     * @return numero total de pasos de potencia aplicados por los propulsores
+     */
+    long getStepsApplied();
+
+    /**
+     * @return pasos de potencia por segundo en la ultima ventana de medida
+     */
+    double getStepsPerSecond();
+
+    /**
+     * @return numero de cohetes que han alcanzado la potencia objetivo de su fase
+     */
+    long getGoalsReached();
+
+    double getTimeToGoalMillisMean();
+
+    long getTimeToGoalMillisP99();
+
+    double getTicksToGoalMean();
+
+    double getBoosterLockWaitNanosMean();
+
+    long getBoosterLockWaitNanosMax();
+
+    double getBoosterLockHoldNanosMean();
+
+    double getRocketLockWaitNanosMean();
+
+    long getRocketLockWaitNanosMax();
+
+    double getRocketLockHoldNanosMean();
+
+    /**
+     * @return numero de cambios de fase registrados
+     */
+    long getPhaseTransitions();
+
+    double getPhaseTransitionNanosMean();
+
+    long getPhaseTransitionNanosP99();
+
+    /**
+     * @return tareas en cola en los ExecutorService registrados
+     */
+    long getExecutorQueueDepth();
+
+    /**
+     * @return hilos activos en los ExecutorService registrados
+     */
+    long getExecutorActiveThreads();
+
+    /**
+     * @return todas las metricas en texto plano
+     */
+    String getSnapshot();
+
+    /**
+     * Pone a 0 contadores e histogramas
+     */
+    void reset();
+}
@@ -0,0 +1,212 @@
+package com.rockets.server;
+
+import com.rockets.application.RaceSessionManager;
+import com.rockets.domain.metrics.Histogram;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Clase de la capa Server
+ *
+ * Cliente de carga local para RaceServer. Si no se indica la URL de un servidor arranca uno
+ * embebido en un puerto libre, y a continuacion:
+ *
+ * 1. crea las carreras, cada una con los dos cohetes de la aplicacion de consola
+ * 2. abre los suscriptores SSE, repartidos entre las carreras, con HttpClient asincrono
+ *    (sin un hilo por suscriptor)
+ * 3. lanza las peticiones forward/back alternas con un numero maximo de peticiones en vuelo
+ *    y mide las peticiones por segundo
+ * 4. mide la latencia de entrega de cada evento a cada suscriptor, con el instante de
+ *    publicacion (ts) que incluye el mensaje
+ *
+ * Argumentos: carreras suscriptores peticiones [url], por defecto 100 2000 20000
+ */
+public class LoadGenerator {
+    private static final int IN_FLIGHT = 256;
+
+    private final HttpClient client;
+    private final String base;
+    private final Histogram latency = new Histogram();
+    private final LongAdder events = new LongAdder();
+    private final LongAdder drops = new LongAdder();
+
+    /**
+     * @param base, URL del servidor, por ejemplo http://localhost:8080
+     */
+    public LoadGenerator(String base) {
+        this.base = base;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int races = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int subscribers = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 20000;
+        RaceServer server = null;
+        String base;
+        if (args.length > 3) {
+            base = args[3];
+        } else {
+            server = new RaceServer(0, new RaceSessionManager(), RaceServer.DEFAULT_SUBSCRIBER_QUEUE);
+            server.start();
+            base = "http://localhost:" + server.getPort();
+        }
+        try {
+            new LoadGenerator(base).run(races, subscribers, requests);
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    /**
+     * @param races, numero de carreras
+     * @param subscribers, numero de suscriptores SSE
+     * @param requests, numero de peticiones forward/back
+     */
+    public void run(int races, int subscribers, int requests) throws IOException, InterruptedException {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < races; i++) {
+            String body = post("/races").body();
+            String id = body.substring(body.indexOf(":\"") + 2, body.lastIndexOf('"'));
+            post("/races/" + id + "/rockets?id=LDSFJA32&boosters=3");
+            post("/races/" + id + "/rockets/LDSFJA32/max-power?values=10,30,80");
+            post("/races/" + id + "/rockets?id=32WESSDS&boosters=6");
+            post("/races/" + id + "/rockets/32WESSDS/max-power?values=30,40,50,50,30,10");
+            ids.add(id);
+        }
+
+        CountDownLatch connected = new CountDownLatch(subscribers);
+        List<CompletableFuture<HttpResponse<Void>>> streams = new ArrayList<>();
+        for (int i = 0; i < subscribers; i++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/races/" + ids.get(i % races) + "/events")).build();
+            streams.add(client.sendAsync(request, HttpResponse.BodyHandlers.fromLineSubscriber(new EventSubscriber(connected))));
+        }
+        if (!connected.await(60, TimeUnit.SECONDS)) {
+            System.out.println("Suscriptores sin conectar: " + connected.getCount());
+        }
+
+        Semaphore inFlight = new Semaphore(IN_FLIGHT);
+        LongAdder ok = new LongAdder();
+        LongAdder rejected = new LongAdder();
+        LongAdder failed = new LongAdder();
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            String id = ids.get(i % races);
+            // cada carrera alterna acelerar hasta 12 y frenar hasta 7
+            String phase = (i / races) % 2 == 0 ? "/forward?goal=12" : "/back?goal=7";
+            inFlight.acquire();
+            client.sendAsync(HttpRequest.newBuilder(URI.create(base + "/races/" + id + phase))
+                            .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (error == null && response.statusCode() < 300) {
+                            ok.increment();
+                        } else if (error == null && response.statusCode() < 500) {
+                            // p.ej. potencia objetivo inalcanzable porque la fase anterior aun no habia terminado
+                            rejected.increment();
+                        } else {
+                            failed.increment();
+                        }
+                        inFlight.release();
+                    });
+        }
+        inFlight.acquire(IN_FLIGHT);
+        long elapsed = System.nanoTime() - start;
+        inFlight.release(IN_FLIGHT);
+        // deja tiempo a que se entreguen los ultimos eventos
+        TimeUnit.SECONDS.sleep(1);
+
+        System.out.println("carreras=" + races + " suscriptores=" + subscribers + " peticiones=" + requests);
+        System.out.printf("peticiones/s=%.0f correctas=%d rechazadas=%d con error=%d%n",
+                requests * 1e9 / elapsed, ok.sum(), rejected.sum(), failed.sum());
+        System.out.println("eventos recibidos=" + events.sum() + " avisos de descarte=" + drops.sum());
+        System.out.printf("latencia de entrega (us): media=%.0f p50=%d p99=%d max=%d%n",
+                latency.getMean(), latency.getPercentile(50), latency.getPercentile(99), latency.getMax());
+        System.out.println("servidor: " + get("/stats").body());
+
+        for (String id : ids) {
+            client.send(HttpRequest.newBuilder(URI.create(base + "/races/" + id)).DELETE().build(),
+                    HttpResponse.BodyHandlers.discarding());
+        }
+        for (CompletableFuture<HttpResponse<Void>> stream : streams) {
+            stream.cancel(true);
+        }
+    }
+
+    private HttpResponse<String> post(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(base + path))
+                .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            throw new IOException(path + " -> " + response.statusCode() + " " + response.body());
+        }
+        return response;
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(URI.create(base + path)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Lee las lineas del flujo SSE de un suscriptor y registra la latencia de cada evento
+     */
+    private class EventSubscriber implements Flow.Subscriber<String> {
+        private final CountDownLatch connected;
+        private boolean first = true;
+
+        EventSubscriber(CountDownLatch connected) {
+            this.connected = connected;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (first) {
+                first = false;
+                connected.countDown();
+            }
+            if (line.startsWith("data:")) {
+                int ts = line.lastIndexOf("\"ts\":");
+                if (ts >= 0) {
+                    long sent = Long.parseLong(line.substring(ts + 5, line.length() - 1));
+                    latency.record(SseBroadcaster.epochMicros() - sent);
+                    events.increment();
+                }
+            } else if (line.startsWith(": dropped")) {
+                drops.increment();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (first) {
+                first = false;
+                connected.countDown();
+            }
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
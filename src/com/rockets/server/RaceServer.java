@@ -0,0 +1,352 @@
+package com.rockets.server;
+
+import com.rockets.application.Controller;
+import com.rockets.application.RaceSessionManager;
+import com.rockets.application.engine.ThreadPoolEngine;
+import com.rockets.domain.Rocket;
+import com.rockets.domain.StateRace;
+import com.rockets.domain.event.RaceEventLog;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clase de la capa Server
+ *
+ * Servidor HTTP embebido (com.sun.net.httpserver del JDK, sin dependencias externas) sobre un
+ * RaceSessionManager: cada carrera es una sesion con su propio Controller
+ *
+ * - POST   /races                                      crea una carrera, devuelve su id
+ * - GET    /races/{race}                               estado de la carrera y de sus cohetes
+ * - DELETE /races/{race}                               cierra la carrera
+ * - POST   /races/{race}/rockets?id=X&boosters=N       crea un cohete
+ * - POST   /races/{race}/rockets/{rocket}/max-power?values=10,30,80   fija la potencia maxima de sus propulsores
+ * - DELETE /races/{race}/rockets/{rocket}              quita el cohete de la carrera
+ * - POST   /races/{race}/forward?goal=G                acelera hasta la potencia objetivo, aunque
+ *                                                     la fase anterior siga en curso
+ * - POST   /races/{race}/back?goal=G                   frena hasta la potencia objetivo, aunque
+ *                                                     la fase anterior siga en curso
+ * - GET    /races/{race}/events                        cambios de potencia en directo (Server-Sent Events)
+ * - GET    /stats                                      carreras, suscriptores y mensajes descartados
+ *
+ * Las respuestas son JSON. Los errores de validacion se devuelven con 400, las carreras o cohetes
+ * inexistentes con 404 y el limite de carreras con 409
+ *
+ * Los eventos de una carrera se publican solo a partir de su primer suscriptor: entonces se le
+ * asigna un RaceEventLog cuyo destino es un SseBroadcaster. Cada suscriptor tiene una cola
+ * acotada (ver SseBroadcaster), por lo que un suscriptor lento pierde eventos en lugar de frenar
+ * la carrera. Las peticiones se atienden en hilos virtuales si la version de Java los ofrece
+ */
+public class RaceServer implements AutoCloseable {
+    /**
+     * Numero de mensajes por defecto que pueden estar pendientes de enviar a cada suscriptor
+     */
+    public static final int DEFAULT_SUBSCRIBER_QUEUE = 256;
+
+    private static final long KEEPALIVE_SECONDS = 15;
+
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final RaceSessionManager sessions;
+    private final Map<String, SseBroadcaster> broadcasters = new ConcurrentHashMap<>();
+    private final Set<String> started = ConcurrentHashMap.newKeySet();
+    private final int subscriberQueue;
+
+    /**
+     * @param port, puerto en el que escucha el servidor, 0 para uno libre
+     * @param sessions, gestor de las carreras
+     * @param subscriberQueue, numero de mensajes que pueden estar pendientes de enviar a cada suscriptor
+     * @throws IOException si no se puede abrir el puerto
+     */
+    public RaceServer(int port, RaceSessionManager sessions, int subscriberQueue) throws IOException {
+        this.sessions = sessions;
+        this.subscriberQueue = subscriberQueue;
+        this.server = HttpServer.create(new InetSocketAddress(port), 4096);
+        this.handlers = ThreadPoolEngine.isVirtualThreadsAvailable()
+                ? ThreadPoolEngine.virtualThreads().getExec() : Executors.newCachedThreadPool();
+        this.server.setExecutor(handlers);
+        this.server.createContext("/races", this::handleRaces);
+        this.server.createContext("/stats", this::handleStats);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * @return puerto en el que escucha el servidor
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handleRaces(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            String method = exchange.getRequestMethod();
+            // path[0] es vacio y path[1] es "races"; el contexto tambien recibe rutas como /racesX
+            if (path.length < 2 || !path[1].equals("races")) {
+                throw new NoSuchElementException("Ruta no encontrada");
+            }
+            if (path.length == 2) {
+                requireMethod(method, "POST");
+                String id = sessions.createSession();
+                send(exchange, 201, "{\"id\":\"" + id + "\"}");
+                return;
+            }
+            String raceId = path[2];
+            Controller controller = sessions.getSession(raceId)
+                    .orElseThrow(() -> new NoSuchElementException("Carrera no encontrada: " + raceId));
+            Map<String, String> query = query(exchange.getRequestURI());
+            if (path.length == 3) {
+                if (method.equals("DELETE")) {
+                    sessions.closeSession(raceId);
+                    broadcasters.remove(raceId);
+                    started.remove(raceId);
+                    send(exchange, 204, null);
+                } else {
+                    requireMethod(method, "GET");
+                    send(exchange, 200, describe(raceId, controller));
+                }
+                return;
+            }
+            switch (path[3]) {
+                case "rockets":
+                    if (path.length == 5 && method.equals("DELETE")) {
+                        controller.removeRocket(path[4])
+                                .orElseThrow(() -> new NoSuchElementException("Cohete no encontrado: " + path[4]));
+                        send(exchange, 204, null);
+                        break;
+                    }
+                    requireMethod(method, "POST");
+                    if (path.length == 4) {
+                        String rocketId = required(query, "id");
+                        int boosters = Integer.parseInt(required(query, "boosters"));
+                        if (boosters < 0) {
+                            throw new IllegalArgumentException("El numero de propulsores no puede ser negativo");
+                        }
+                        Rocket created;
+                        try {
+                            created = controller.createRocket(rocketId, boosters);
+                        } catch (IllegalArgumentException e) {
+                            // la carrera ya tiene un cohete con ese identificador
+                            throw new IllegalStateException(e.getMessage(), e);
+                        }
+                        send(exchange, 201, describe(created));
+                    } else if (path.length == 6 && path[5].equals("max-power")) {
+                        Rocket rocket = controller.findRocket(path[4])
+                                .orElseThrow(() -> new NoSuchElementException("Cohete no encontrado: " + path[4]));
+                        rocket.addBoosterMaxPower(parseInts(required(query, "values"), rocket.getNumberOfBoosters()));
+                        send(exchange, 200, describe(rocket));
+                    } else {
+                        throw new NoSuchElementException("Ruta no encontrada");
+                    }
+                    break;
+                case "forward":
+                case "back":
+                    requireMethod(method, "POST");
+                    int goal = Integer.parseInt(required(query, "goal"));
+                    StateRace state = path[3].equals("forward") ? StateRace.FORWARD : StateRace.BACK;
+                    // cambia de fase aunque la anterior siga en curso, sin esperar a que termine
+                    long start = System.nanoTime();
+                    controller.retarget(state, goal);
+                    long transition = System.nanoTime() - start;
+                    if (started.add(raceId)) {
+                        controller.execute();
+                    }
+                    send(exchange, 202, "{\"state\":\"" + state + "\",\"goal\":" + goal
+                            + ",\"transitionNanos\":" + transition + "}");
+                    break;
+                case "events":
+                    requireMethod(method, "GET");
+                    stream(exchange, raceId, controller);
+                    break;
+                default:
+                    throw new NoSuchElementException("Ruta no encontrada");
+            }
+        } catch (NoSuchElementException e) {
+            send(exchange, 404, error(e));
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, error(e));
+        } catch (IllegalStateException e) {
+            send(exchange, 409, error(e));
+        } catch (UnsupportedOperationException e) {
+            send(exchange, 405, error(e));
+        } catch (RuntimeException e) {
+            send(exchange, 500, error(e));
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        int subscribers = 0;
+        long dropped = 0;
+        for (SseBroadcaster broadcaster : broadcasters.values()) {
+            subscribers += broadcaster.getSubscriberCount();
+            dropped += broadcaster.getDropped();
+        }
+        send(exchange, 200, "{\"races\":" + sessions.getSessionCount()
+                + ",\"subscribers\":" + subscribers + ",\"dropped\":" + dropped + "}");
+    }
+
+    /**
+     * Envia los eventos de la carrera como Server-Sent Events hasta que el cliente se desconecta
+     * o la carrera se cierra. Cada envio agrupa todos los mensajes en cola
+     */
+    private void stream(HttpExchange exchange, String raceId, Controller controller) throws IOException {
+        SseBroadcaster broadcaster = broadcasters.computeIfAbsent(raceId, id -> {
+            SseBroadcaster created = new SseBroadcaster();
+            RaceEventLog previous = controller.getEventLog();
+            controller.setEventLog(new RaceEventLog(8192, created));
+            previous.close();
+            return created;
+        });
+        SseBroadcaster.Subscriber subscriber = broadcaster.subscribe(subscriberQueue);
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        List<String> messages = new ArrayList<>();
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(": connected\n\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            boolean open = true;
+            while (open) {
+                messages.clear();
+                open = subscriber.poll(messages, KEEPALIVE_SECONDS, TimeUnit.SECONDS);
+                if (messages.isEmpty() && open) {
+                    messages.add(": keepalive\n\n");
+                }
+                for (String message : messages) {
+                    out.write(message.getBytes(StandardCharsets.UTF_8));
+                }
+                out.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // el cliente se ha desconectado
+        } finally {
+            broadcaster.unsubscribe(subscriber);
+            exchange.close();
+        }
+    }
+
+    private static String describe(String raceId, Controller controller) {
+        StringBuilder json = new StringBuilder("{\"id\":\"").append(raceId)
+                .append("\",\"state\":\"").append(controller.getRace().getState())
+                .append("\",\"goal\":").append(controller.getRace().getGoalPower())
+                .append(",\"pending\":").append(controller.getRace().getPendingRockets())
+                .append(",\"rockets\":[");
+        List<Rocket> rockets = controller.getRockets();
+        for (int i = 0; i < rockets.size(); i++) {
+            json.append(i == 0 ? "" : ",").append(describe(rockets.get(i)));
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String describe(Rocket rocket) {
+        StringBuilder json = new StringBuilder("{\"id\":\"").append(rocket.getId())
+                .append("\",\"power\":").append(rocket.getAcumPower())
+                .append(",\"boosters\":[");
+        for (int i = 0; i < rocket.getBoosters().size(); i++) {
+            json.append(i == 0 ? "" : ",").append("{\"max\":").append(rocket.getBoosters().get(i).getMaxPower())
+                    .append(",\"power\":").append(rocket.getBoosters().get(i).getCurrentPower()).append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    private static void requireMethod(String method, String expected) {
+        if (!method.equals(expected)) {
+            throw new UnsupportedOperationException("Metodo no permitido: " + method);
+        }
+    }
+
+    private static String required(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Falta el parametro " + name);
+        }
+        return value;
+    }
+
+    private static int[] parseInts(String values, int expected) {
+        String[] parts = values.split(",");
+        if (parts.length != expected) {
+            throw new IllegalArgumentException("Se esperaban " + expected + " potencias maximas");
+        }
+        int[] result = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = Integer.parseInt(parts[i].trim());
+        }
+        return result;
+    }
+
+    private static Map<String, String> query(URI uri) {
+        Map<String, String> params = new HashMap<>();
+        String raw = uri.getQuery();
+        if (raw != null) {
+            for (String pair : raw.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    params.put(pair.substring(0, eq), pair.substring(eq + 1));
+                }
+            }
+        }
+        return params;
+    }
+
+    private static String error(RuntimeException e) {
+        return "{\"error\":\"" + String.valueOf(e.getMessage()).replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Detiene el servidor y cierra todas las carreras
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        sessions.close();
+        handlers.shutdownNow();
+    }
+
+    /**
+     * Arranca el servidor con el puerto indicado en el primer argumento, 8080 por defecto
+     *
+     * @param args, argumentos de la linea de comandos
+     * @throws IOException si no se puede abrir el puerto
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        RaceServer server = new RaceServer(port, new RaceSessionManager(), DEFAULT_SUBSCRIBER_QUEUE);
+        server.start();
+        System.out.println("Servidor de carreras escuchando en el puerto " + server.getPort());
+    }
+}
@@ -0,0 +1,112 @@
+package com.rockets.server;
+
+import com.rockets.application.solve.RaceSolution;
+import com.rockets.application.solve.RaceSolver;
+import com.rockets.domain.StateRace;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Clase de la capa Server
+ *
+ * Mide como escala una carrera repartida entre procesos (ShardCoordinator) con 1, 2, ... workers
+ * en la misma maquina. Genera los cohetes con una semilla fija y, con cada numero de workers:
+ *
+ * 1. arranca los workers y les reparte los cohetes
+ * 2. ejecuta las fases, alternando acelerar y frenar
+ * 3. comprueba la clasificacion global, los ticks de llegada y las potencias acumuladas con la
+ *    solucion analitica de RaceSolver sobre todos los cohetes
+ *
+ * Argumentos: cohetes [workers maximos] [fases] [propulsores] [paralelismo], por defecto 200000 8 4 4 1
+ */
+public class ShardBenchmark {
+    private static final long SEED = 42;
+
+    public static void main(String[] args) throws IOException {
+        int rockets = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int maxWorkers = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int phases = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int boosters = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        int parallelism = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+
+        Random random = new Random(SEED);
+        String[] ids = new String[rockets];
+        int[][] maxPower = new int[rockets][boosters];
+        int[][] zero = new int[rockets][boosters];
+        for (int r = 0; r < rockets; r++) {
+            ids[r] = "R" + r;
+            for (int b = 0; b < boosters; b++) {
+                maxPower[r][b] = 50 + random.nextInt(150);
+            }
+        }
+        // acelera hasta la potencia minima de un cohete y frena hasta una cuarta parte, o hasta la
+        // potencia alcanzable por todos mas cercana
+        StateRace[] states = new StateRace[phases];
+        int[] goals = new int[phases];
+        List<RaceSolution> expected = new ArrayList<>();
+        for (int p = 0; p < phases; p++) {
+            states[p] = p % 2 == 0 ? StateRace.FORWARD : StateRace.BACK;
+            int step = states[p] == StateRace.FORWARD ? -1 : 1;
+            RaceSolution solution = null;
+            for (int goal = states[p] == StateRace.FORWARD ? 50 * boosters : 50 * boosters / 4; solution == null; goal += step) {
+                RaceSolution candidate = p == 0 ? RaceSolver.solve(ids, maxPower, zero, states[p], goal)
+                        : expected.get(p - 1).next(states[p], goal);
+                if (candidate.getRanking().size() == rockets) {
+                    goals[p] = goal;
+                    solution = candidate;
+                }
+            }
+            expected.add(solution);
+        }
+
+        System.out.println("cohetes=" + rockets + " propulsores=" + boosters + " fases=" + phases
+                + " paralelismo por worker=" + parallelism + " cpus=" + Runtime.getRuntime().availableProcessors());
+        System.out.println("potencias objetivo=" + Arrays.toString(goals));
+        System.out.println("workers  arranque(ms)  reparto(ms)  fases(ms)  worker mas lento(ms)  cohete-ticks/s  aceleracion  correcto");
+        double base = 0;
+        for (int workers = 1; workers <= maxWorkers; workers++) {
+            long start = System.nanoTime();
+            try (ShardCoordinator coordinator = new ShardCoordinator(workers, parallelism)) {
+                long started = System.nanoTime();
+                coordinator.addRockets(ids, maxPower);
+                long loaded = System.nanoTime();
+                long rocketTicks = 0;
+                long workerNanos = 0;
+                boolean correct = true;
+                for (int p = 0; p < phases; p++) {
+                    ShardResult result = coordinator.phase(states[p], goals[p]);
+                    rocketTicks += result.getRocketTicks();
+                    workerNanos += result.getWorkerNanos();
+                    correct &= matches(result, expected.get(p));
+                }
+                long elapsed = System.nanoTime() - loaded;
+                double rate = rocketTicks * 1e9 / elapsed;
+                if (workers == 1) {
+                    base = rate;
+                }
+                System.out.printf("%7d  %12.0f  %11.0f  %9.0f  %20.0f  %14.0f  %10.2fx  %s%n", workers,
+                        (started - start) / 1e6, (loaded - started) / 1e6, elapsed / 1e6, workerNanos / 1e6,
+                        rate, rate / base, correct);
+            }
+        }
+    }
+
+    /**
+     * @return true si la fase repartida coincide con la solucion analitica sobre todos los cohetes
+     */
+    static boolean matches(ShardResult result, RaceSolution solution) {
+        if (!result.getRanking().equals(solution.getRanking())) {
+            return false;
+        }
+        for (int r = 0; r < solution.getRocketCount(); r++) {
+            if (result.getFinishTick(r) != solution.getFinishTick(r) || result.getAcumPower(r) != solution.getAcumPower(r)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
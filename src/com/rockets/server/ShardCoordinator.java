@@ -0,0 +1,307 @@
+package com.rockets.server;
+
+import com.rockets.domain.StateRace;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.rockets.server.ShardProtocol.*;
+
+/**
+ * Clase de la capa Server
+ *
+ * Coordinador de una carrera repartida entre varios procesos worker locales (ShardWorker), para
+ * carreras mas grandes de las que caben en un solo Controller. Arranca los workers con la misma
+ * JVM y classpath, reparte los cohetes en bloques contiguos y ordena las fases por un socket
+ * local con el protocolo binario de ShardProtocol
+ *
+ * Cada fase se hace en dos pasos: primero todos los workers comprueban que sus cohetes pueden
+ * alcanzar la potencia objetivo y, solo si todos la aceptan, la comienzan; asi una fase
+ * inalcanzable se rechaza en todos los workers o en ninguno, como Controller.retarget. Al terminar,
+ * cada worker devuelve el tick de llegada de sus cohetes contado desde el comienzo de la fase,
+ * que no depende de su reloj, y el coordinador forma la clasificacion global por tick de llegada
+ * y, en el mismo tick, por posicion global, la misma que daria un solo proceso
+ *
+ * Las fases son sincronas y no se admiten llamadas concurrentes (metodos synchronized)
+ */
+public class ShardCoordinator implements Closeable {
+    private static final int ACCEPT_TIMEOUT_MILLIS = 60_000;
+    private static final long STOP_TIMEOUT_SECONDS = 10;
+
+    private final Process[] processes;
+    private final Socket[] sockets;
+    private final DataInputStream[] in;
+    private final DataOutputStream[] out;
+    private final int[][] globalIndex;
+    private final int[] counts;
+    private final Set<String> ids = new HashSet<>();
+    private int rocketCount;
+    private int seq;
+
+    /**
+     * @param workers, numero de procesos worker
+     * @param parallelism, numero de hilos del modo tick en cada worker
+     * @throws IOException si algun worker no arranca o no se conecta
+     */
+    public ShardCoordinator(int workers, int parallelism) throws IOException {
+        if (workers <= 0) {
+            throw new IllegalArgumentException("workers ha de ser mayor que 0");
+        }
+        this.processes = new Process[workers];
+        this.sockets = new Socket[workers];
+        this.in = new DataInputStream[workers];
+        this.out = new DataOutputStream[workers];
+        this.globalIndex = new int[workers][16];
+        this.counts = new int[workers];
+        try (ServerSocket server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout(ACCEPT_TIMEOUT_MILLIS);
+            String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+            for (int w = 0; w < workers; w++) {
+                processes[w] = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        ShardWorker.class.getName(), server.getInetAddress().getHostAddress(),
+                        Integer.toString(server.getLocalPort()), Integer.toString(w), Integer.toString(parallelism))
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start();
+            }
+            for (int i = 0; i < workers; i++) {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+                expect(input, HELLO);
+                if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                    socket.close();
+                    throw new IOException("Worker con otro protocolo");
+                }
+                int w = input.readInt();
+                if (w < 0 || w >= workers || sockets[w] != null) {
+                    socket.close();
+                    throw new IOException("Numero de worker no valido: " + w);
+                }
+                sockets[w] = socket;
+                in[w] = input;
+                out[w] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+            }
+        } catch (IOException | RuntimeException e) {
+            stop();
+            throw e;
+        }
+    }
+
+    /**
+     * Anade cohetes a la carrera, repartidos en bloques contiguos entre los workers. Su posicion
+     * global sigue a la de los ya anadidos
+     *
+     * @param ids, identificadores de los cohetes
+     * @param maxPower, potencia maxima de cada propulsor de cada cohete
+     * @throws IllegalArgumentException si algun identificador se repite
+     * @throws IOException si falla la comunicacion con algun worker
+     */
+    public synchronized void addRockets(String[] ids, int[][] maxPower) throws IOException {
+        if (ids.length != maxPower.length) {
+            throw new IllegalArgumentException("Hay " + ids.length + " identificadores y " + maxPower.length + " cohetes");
+        }
+        Set<String> added = new HashSet<>();
+        for (String id : ids) {
+            if (this.ids.contains(id) || !added.add(id)) {
+                throw new IllegalArgumentException("Ya hay un cohete con el identificador " + id);
+            }
+        }
+        int workers = processes.length;
+        for (int w = 0; w < workers; w++) {
+            int from = (int) ((long) ids.length * w / workers);
+            int to = (int) ((long) ids.length * (w + 1) / workers);
+            DataOutputStream output = out[w];
+            output.writeByte(ROCKETS);
+            output.writeInt(to - from);
+            for (int r = from; r < to; r++) {
+                int global = rocketCount + r;
+                output.writeInt(global);
+                output.writeUTF(ids[r]);
+                output.writeInt(maxPower[r].length);
+                for (int power : maxPower[r]) {
+                    output.writeInt(power);
+                }
+                if (counts[w] == globalIndex[w].length) {
+                    globalIndex[w] = Arrays.copyOf(globalIndex[w], counts[w] * 2);
+                }
+                globalIndex[w][counts[w]++] = global;
+            }
+            output.flush();
+        }
+        for (int w = 0; w < workers; w++) {
+            expect(in[w], READY);
+            int count = in[w].readInt();
+            if (count != counts[w]) {
+                throw new IOException("El worker " + w + " tiene " + count + " cohetes, se esperaban " + counts[w]);
+            }
+        }
+        // los identificadores solo quedan ocupados si todos los workers han anadido sus cohetes
+        this.ids.addAll(added);
+        rocketCount += ids.length;
+    }
+
+    /**
+     * @param goalPower, potencia objetivo que han de alcanzar todos los cohetes
+     * @return resultado de la fase
+     */
+    public ShardResult forward(int goalPower) throws IOException {
+        return phase(StateRace.FORWARD, goalPower);
+    }
+
+    /**
+     * @param goalPower, potencia objetivo que han de alcanzar todos los cohetes
+     * @return resultado de la fase
+     */
+    public ShardResult back(int goalPower) throws IOException {
+        return phase(StateRace.BACK, goalPower);
+    }
+
+    /**
+     * Ejecuta una fase en todos los workers y espera a que termine
+     *
+     * @param state, FORWARD para acelerar, BACK para frenar
+     * @param goalPower, potencia objetivo que han de alcanzar todos los cohetes
+     * @return resultado de la fase, con la clasificacion global
+     * @throws IllegalArgumentException si el estado no es FORWARD o BACK, o si algun cohete no
+     * puede llegar a la potencia objetivo; en ese caso ningun worker comienza la fase
+     * @throws IOException si falla la comunicacion con algun worker
+     */
+    public synchronized ShardResult phase(StateRace state, int goalPower) throws IOException {
+        if (state != StateRace.FORWARD && state != StateRace.BACK) {
+            throw new IllegalArgumentException("Estado de fase no valido: " + state);
+        }
+        int workers = processes.length;
+        int phase = ++seq;
+        long start = System.nanoTime();
+        for (DataOutputStream output : out) {
+            output.writeByte(PREPARE);
+            output.writeInt(phase);
+            output.writeByte(encode(state));
+            output.writeInt(goalPower);
+            output.flush();
+        }
+        List<String> rejected = new ArrayList<>();
+        for (int w = 0; w < workers; w++) {
+            expect(in[w], PREPARED);
+            checkPhase(w, phase);
+            boolean accepted = in[w].readBoolean();
+            String message = in[w].readUTF();
+            if (!accepted) {
+                rejected.add(message);
+            }
+        }
+        byte command = rejected.isEmpty() ? START : ABORT;
+        for (DataOutputStream output : out) {
+            output.writeByte(command);
+            output.writeInt(phase);
+            output.flush();
+        }
+        if (!rejected.isEmpty()) {
+            throw new IllegalArgumentException(String.join("; ", rejected));
+        }
+
+        int[] finishTicks = new int[rocketCount];
+        int[] acumPower = new int[rocketCount];
+        long[] arrivals = new long[rocketCount];
+        int arrived = 0;
+        long ticks = 0;
+        long workerNanos = 0;
+        for (int w = 0; w < workers; w++) {
+            DataInputStream input = in[w];
+            expect(input, DONE);
+            checkPhase(w, phase);
+            workerNanos = Math.max(workerNanos, input.readLong());
+            int count = input.readInt();
+            if (count != counts[w]) {
+                throw new IOException("El worker " + w + " devuelve " + count + " cohetes, se esperaban " + counts[w]);
+            }
+            for (int i = 0; i < count; i++) {
+                int global = globalIndex[w][i];
+                acumPower[global] = input.readInt();
+                int tick = input.readInt();
+                finishTicks[global] = tick;
+                if (tick != NOT_FINISHED) {
+                    // tick en los 32 bits altos y posicion global en los bajos: ordenar las claves
+                    // da la clasificacion global
+                    arrivals[arrived++] = ((long) tick << 32) | global;
+                    ticks = Math.max(ticks, tick);
+                }
+            }
+        }
+        Arrays.sort(arrivals, 0, arrived);
+        int[] ranking = new int[arrived];
+        for (int i = 0; i < arrived; i++) {
+            ranking[i] = (int) arrivals[i];
+        }
+        return new ShardResult(state, goalPower, finishTicks, acumPower, ranking, ticks,
+                System.nanoTime() - start, workerNanos);
+    }
+
+    private void checkPhase(int worker, int phase) throws IOException {
+        int read = in[worker].readInt();
+        if (read != phase) {
+            throw new IOException("El worker " + worker + " responde a la fase " + read + ", se esperaba " + phase);
+        }
+    }
+
+    public int getWorkerCount() {
+        return processes.length;
+    }
+
+    public synchronized int getRocketCount() {
+        return rocketCount;
+    }
+
+    /**
+     * Detiene los workers y espera a que terminen sus procesos
+     */
+    @Override
+    public synchronized void close() {
+        stop();
+    }
+
+    /**
+     * Detiene los workers ya arrancados, tambien si el constructor no termina
+     */
+    private void stop() {
+        for (int w = 0; w < processes.length; w++) {
+            if (out[w] != null) {
+                try {
+                    out[w].writeByte(STOP);
+                    out[w].flush();
+                } catch (IOException e) {
+                    // el worker ya ha terminado
+                }
+            }
+        }
+        for (int w = 0; w < processes.length; w++) {
+            try {
+                if (sockets[w] != null) {
+                    sockets[w].close();
+                }
+            } catch (IOException e) {
+                // se cierra igualmente
+            }
+            if (processes[w] != null) {
+                try {
+                    if (!processes[w].waitFor(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                        processes[w].destroyForcibly();
+                    }
+                } catch (InterruptedException e) {
+                    processes[w].destroyForcibly();
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
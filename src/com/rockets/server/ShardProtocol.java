@@ -0,0 +1,85 @@
+package com.rockets.server;
+
+import com.rockets.domain.StateRace;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/**
+ * Clase de la capa Server
+ *
+ * Constantes del protocolo binario entre ShardCoordinator y ShardWorker, sobre un socket local.
+ * Cada mensaje empieza por un byte con su tipo; los enteros van en big-endian (DataOutputStream)
+ *
+ * Del coordinador al worker:
+ * - ROCKETS: numero de cohetes y, por cohete, su posicion global, su identificador, su numero de
+ *   propulsores y la potencia maxima de cada uno
+ * - PREPARE: numero de fase, ordinal del estado y potencia objetivo. El worker comprueba que todos
+ *   sus cohetes pueden alcanzarla, sin comenzar la fase
+ * - START: numero de fase, comienza la fase preparada
+ * - ABORT: numero de fase, descarta la fase preparada porque algun worker la ha rechazado
+ * - STOP: el worker termina
+ *
+ * Del worker al coordinador:
+ * - HELLO: magic, version y numero de worker, al conectar
+ * - READY: numero total de cohetes del worker, tras recibir ROCKETS
+ * - PREPARED: numero de fase, si la acepta y, si no, el motivo
+ * - DONE: numero de fase, nanosegundos de la fase en el worker, numero de cohetes y, por cohete
+ *   en el orden en que los recibio, su potencia acumulada y su tick de llegada desde el comienzo
+ *   de la fase (NOT_FINISHED si no ha llegado)
+ */
+final class ShardProtocol {
+    static final int MAGIC = 0x53485244;
+    static final int VERSION = 1;
+    static final int BUFFER_SIZE = 1 << 16;
+
+    static final byte ROCKETS = 1;
+    static final byte PREPARE = 2;
+    static final byte START = 3;
+    static final byte ABORT = 4;
+    static final byte STOP = 5;
+
+    static final byte HELLO = 10;
+    static final byte READY = 11;
+    static final byte PREPARED = 12;
+    static final byte DONE = 13;
+
+    static final int NOT_FINISHED = -1;
+
+    /**
+     * Longitud maxima del motivo de rechazo de una fase, writeUTF no admite mas de 65535 bytes
+     */
+    static final int MAX_MESSAGE = 4096;
+
+    private static final StateRace[] STATES = StateRace.values();
+
+    private ShardProtocol() {
+    }
+
+    static byte encode(StateRace state) {
+        return (byte) state.ordinal();
+    }
+
+    static StateRace decode(byte state) throws IOException {
+        if (state < 0 || state >= STATES.length) {
+            throw new IOException("Estado no valido: " + state);
+        }
+        return STATES[state];
+    }
+
+    /**
+     * Lee el tipo del siguiente mensaje y comprueba que es el esperado
+     *
+     * @throws IOException si el mensaje es de otro tipo o se cierra la conexion
+     */
+    static void expect(DataInputStream in, byte type) throws IOException {
+        byte read = in.readByte();
+        if (read != type) {
+            throw new IOException("Mensaje " + read + " recibido, se esperaba " + type);
+        }
+    }
+
+    static String truncate(String message) {
+        return message.length() <= MAX_MESSAGE ? message : message.substring(0, MAX_MESSAGE) + "...";
+    }
+}
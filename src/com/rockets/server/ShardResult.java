@@ -0,0 +1,131 @@
+package com.rockets.server;
+
+import com.rockets.domain.StateRace;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Clase de la capa Server
+ *
+ * Resultado de una fase de una carrera repartida entre varios procesos (ver ShardCoordinator):
+ * tick de llegada y potencia acumulada de cada cohete, por su posicion global, y clasificacion
+ * global. La clasificacion ordena los cohetes que alcanzan la potencia objetivo por tick de
+ * llegada y, en el mismo tick, por su posicion global, igual que RaceSolution
+ */
+public class ShardResult {
+    /**
+     * Tick de llegada de un cohete que no alcanza la potencia objetivo
+     */
+    public static final long UNREACHABLE = -1;
+
+    private final StateRace state;
+    private final int goalPower;
+    private final int[] finishTicks;
+    private final int[] acumPower;
+    private final int[] ranking;
+    private final long ticks;
+    private final long elapsedNanos;
+    private final long workerNanos;
+
+    ShardResult(StateRace state, int goalPower, int[] finishTicks, int[] acumPower, int[] ranking,
+                long ticks, long elapsedNanos, long workerNanos) {
+        this.state = state;
+        this.goalPower = goalPower;
+        this.finishTicks = finishTicks;
+        this.acumPower = acumPower;
+        this.ranking = ranking;
+        this.ticks = ticks;
+        this.elapsedNanos = elapsedNanos;
+        this.workerNanos = workerNanos;
+    }
+
+    public StateRace getState() {
+        return state;
+    }
+
+    public int getGoalPower() {
+        return goalPower;
+    }
+
+    public int getRocketCount() {
+        return finishTicks.length;
+    }
+
+    /**
+     * @param r, posicion global del cohete
+     * @return tick de la fase (desde 1) en el que alcanza la potencia objetivo, UNREACHABLE si no la alcanza
+     */
+    public long getFinishTick(int r) {
+        return finishTicks[r] == ShardProtocol.NOT_FINISHED ? UNREACHABLE : finishTicks[r];
+    }
+
+    /**
+     * @param r, posicion global del cohete
+     * @return potencia acumulada del cohete al terminar la fase
+     */
+    public int getAcumPower(int r) {
+        return acumPower[r];
+    }
+
+    /**
+     * @return posiciones globales de los cohetes que alcanzan la potencia objetivo, por orden de llegada
+     */
+    public List<Integer> getRanking() {
+        return new Ranking();
+    }
+
+    /**
+     * @return numero de ticks de la fase, el de la ultima llegada
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * @return suma de los ticks de llegada de los cohetes, ticks que ha ejecutado algun cohete
+     */
+    public long getRocketTicks() {
+        long total = 0;
+        for (int tick : finishTicks) {
+            if (tick != ShardProtocol.NOT_FINISHED) {
+                total += tick;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return nanosegundos de la fase en el coordinador, desde que la prepara hasta que recibe el
+     * resultado del ultimo worker
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return nanosegundos de la fase en el worker mas lento
+     */
+    public long getWorkerNanos() {
+        return workerNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "ShardResult{state=" + state + ", goalPower=" + goalPower + ", rockets=" + finishTicks.length
+                + ", arrivals=" + ranking.length + ", ticks=" + ticks + '}';
+    }
+
+    private class Ranking extends AbstractList<Integer> implements RandomAccess {
+        @Override
+        public Integer get(int index) {
+            return ranking[index];
+        }
+
+        @Override
+        public int size() {
+            return ranking.length;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.rockets.server;
+
+import com.rockets.application.Controller;
+import com.rockets.application.engine.TickEngine;
+import com.rockets.application.factory.RocketFactory;
+import com.rockets.application.solve.RaceSolver;
+import com.rockets.domain.Race;
+import com.rockets.domain.RaceClock;
+import com.rockets.domain.Rocket;
+import com.rockets.domain.StateRace;
+import com.rockets.domain.event.RaceEventLog;
+
+import java.io.*;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.rockets.server.ShardProtocol.*;
+
+/**
+ * Clase de la capa Server
+ *
+ * Proceso worker de una carrera repartida entre varios procesos (ver ShardCoordinator). Ejecuta
+ * su parte de los cohetes con su propio Controller, en modo tick con reloj virtual, y atiende por
+ * un socket local las ordenes del coordinador (ver ShardProtocol): recibe sus cohetes, comprueba
+ * y comienza las fases, y al terminar cada una devuelve la potencia acumulada y el tick de llegada
+ * de cada cohete, contado desde el comienzo de la fase, con el que el coordinador forma la
+ * clasificacion global
+ *
+ * Argumentos: host puerto worker [paralelismo], por defecto paralelismo 1
+ */
+public class ShardWorker {
+    private final int worker;
+    private final Controller controller;
+    private final List<Rocket> rockets = new ArrayList<>();
+    private boolean started;
+
+    /**
+     * @param worker, numero del worker, con el que se presenta al coordinador
+     * @param parallelism, numero de hilos del modo tick
+     */
+    public ShardWorker(int worker, int parallelism) {
+        RaceClock clock = RaceClock.virtual();
+        this.worker = worker;
+        this.controller = new Controller(new RocketFactory(), new TickEngine(clock, parallelism), RaceEventLog.DISCARD);
+        this.controller.setClock(clock);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        int worker = Integer.parseInt(args[2]);
+        int parallelism = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        ShardWorker shard = new ShardWorker(worker, parallelism);
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            shard.serve(new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE)),
+                    new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE)));
+        } finally {
+            shard.controller.shutdown();
+        }
+    }
+
+    /**
+     * Atiende las ordenes del coordinador hasta recibir STOP
+     *
+     * @throws IOException si se cierra la conexion o llega un mensaje no valido
+     * @throws InterruptedException si el hilo es interrumpido mientras espera el final de una fase
+     */
+    public void serve(DataInputStream in, DataOutputStream out) throws IOException, InterruptedException {
+        out.writeByte(HELLO);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(worker);
+        out.flush();
+        StateRace state = null;
+        int goalPower = 0;
+        int prepared = -1;
+        while (true) {
+            byte type = in.readByte();
+            switch (type) {
+                case ROCKETS:
+                    readRockets(in);
+                    out.writeByte(READY);
+                    out.writeInt(rockets.size());
+                    out.flush();
+                    break;
+                case PREPARE: {
+                    int seq = in.readInt();
+                    state = decode(in.readByte());
+                    goalPower = in.readInt();
+                    String error = null;
+                    try {
+                        RaceSolver.checkReachable(rockets, state, goalPower);
+                        prepared = seq;
+                    } catch (IllegalArgumentException e) {
+                        error = e.getMessage();
+                        prepared = -1;
+                    }
+                    out.writeByte(PREPARED);
+                    out.writeInt(seq);
+                    out.writeBoolean(error == null);
+                    out.writeUTF(error == null ? "" : truncate(error));
+                    out.flush();
+                    break;
+                }
+                case START: {
+                    int seq = in.readInt();
+                    if (seq != prepared) {
+                        throw new IOException("Fase " + seq + " no preparada");
+                    }
+                    prepared = -1;
+                    runPhase(seq, state, goalPower, out);
+                    break;
+                }
+                case ABORT:
+                    in.readInt();
+                    prepared = -1;
+                    break;
+                case STOP:
+                    return;
+                default:
+                    throw new IOException("Mensaje no valido: " + type);
+            }
+        }
+    }
+
+    private void readRockets(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            // la posicion global solo la usa el coordinador, el worker responde en el orden recibido
+            in.readInt();
+            String id = in.readUTF();
+            int[] maxPower = new int[in.readInt()];
+            for (int b = 0; b < maxPower.length; b++) {
+                maxPower[b] = in.readInt();
+            }
+            rockets.add(controller.addRocket(id, maxPower));
+        }
+    }
+
+    private void runPhase(int seq, StateRace state, int goalPower, DataOutputStream out)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        controller.retarget(state, goalPower);
+        if (!started) {
+            controller.execute();
+            started = true;
+        }
+        controller.awaitPhase(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        long elapsed = System.nanoTime() - start;
+        Race race = controller.getRace();
+        out.writeByte(DONE);
+        out.writeInt(seq);
+        out.writeLong(elapsed);
+        out.writeInt(rockets.size());
+        for (Rocket rocket : rockets) {
+            long tick = race.getFinishTick(rocket);
+            out.writeInt(rocket.getAcumPower());
+            out.writeInt(tick < 0 ? NOT_FINISHED : (int) tick);
+        }
+        out.flush();
+    }
+}
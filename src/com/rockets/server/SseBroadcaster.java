@@ -0,0 +1,160 @@
+package com.rockets.server;
+
+import com.rockets.domain.event.EventSink;
+import com.rockets.domain.event.EventType;
+import com.rockets.domain.event.RaceEvent;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Clase de la capa Server
+ *
+ * Destino de eventos (EventSink) que reparte los cambios de potencia de una carrera entre sus
+ * suscriptores Server-Sent Events. Cada evento se formatea una sola vez como mensaje SSE, con el
+ * instante en que lo publico el hilo de la carrera en microsegundos (ts, RaceEvent.getEpochMicros)
+ * para medir la latencia de entrega incluida la espera en RaceEventLog, y se deja en la cola
+ * acotada de cada suscriptor
+ *
+ * La cola acotada es la contrapresion: si un suscriptor lento la llena, sus eventos nuevos se
+ * descartan y se cuentan, y al vaciarse se le avisa con un comentario SSE de cuantos ha perdido.
+ * Un suscriptor lento nunca frena la carrera ni a los demas suscriptores
+ */
+public class SseBroadcaster implements EventSink {
+    private static final String END = "";
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * Suscriptor de la carrera, con su cola acotada de mensajes SSE pendientes de enviar
+     */
+    public class Subscriber {
+        private final BlockingQueue<String> queue;
+        private final LongAdder lost = new LongAdder();
+
+        Subscriber(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        private void offer(String message) {
+            if (!queue.offer(message)) {
+                lost.increment();
+                dropped.increment();
+            }
+        }
+
+        /**
+         * Espera el siguiente mensaje y añade a messages todos los que ya esten en cola
+         *
+         * @param messages, listado en el que se dejan los mensajes
+         * @param timeout, tiempo maximo de espera
+         * @param unit, unidad del tiempo maximo de espera
+         * @return false si la carrera se ha cerrado y no habra mas mensajes
+         * @throws InterruptedException si el hilo es interrumpido durante la espera
+         */
+        public boolean poll(List<String> messages, long timeout, TimeUnit unit) throws InterruptedException {
+            String first = queue.poll(timeout, unit);
+            if (first == null) {
+                return !closed;
+            }
+            messages.add(first);
+            queue.drainTo(messages);
+            boolean open = true;
+            for (int i = messages.size() - 1; i >= 0; i--) {
+                if (messages.get(i) == END) {
+                    messages.remove(i);
+                    open = false;
+                }
+            }
+            long missed = lost.sumThenReset();
+            if (missed > 0) {
+                messages.add(": dropped " + missed + "\n\n");
+            }
+            return open;
+        }
+    }
+
+    /**
+     * @param capacity, numero maximo de mensajes pendientes de enviar al suscriptor
+     * @return suscriptor nuevo
+     */
+    public Subscriber subscribe(int capacity) {
+        Subscriber subscriber = new Subscriber(capacity);
+        subscribers.add(subscriber);
+        if (closed) {
+            subscriber.queue.offer(END);
+        }
+        return subscriber;
+    }
+
+    /**
+     * @param subscriber, suscriptor que deja de recibir eventos
+     */
+    public void unsubscribe(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    @Override
+    public void onEvent(RaceEvent event) {
+        if (subscribers.isEmpty() || event.getType() == EventType.BOOSTER_WAITING) {
+            return;
+        }
+        String message = format(event);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(message);
+        }
+    }
+
+    /**
+     * Avisa a los suscriptores de que la carrera se ha cerrado
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Subscriber subscriber : subscribers) {
+            while (!subscriber.queue.offer(END)) {
+                subscriber.queue.poll();
+            }
+        }
+    }
+
+    /**
+     * @return numero de suscriptores
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * @return numero total de mensajes descartados por tener la cola del suscriptor llena
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    private static String format(RaceEvent event) {
+        return new StringBuilder(160)
+                .append("event: ").append(event.getType().name().toLowerCase())
+                .append("\ndata: {\"seq\":").append(event.getSequence())
+                .append(",\"tick\":").append(event.getTick())
+                .append(",\"rocket\":\"").append(event.getRocket().getId())
+                .append("\",\"booster\":").append(event.getBoosterIndex())
+                .append(",\"power\":").append(event.getPower())
+                .append(",\"state\":\"").append(event.getState())
+                .append("\",\"ts\":").append(event.getEpochMicros())
+                .append("}\n\n").toString();
+    }
+
+    /**
+     * @return instante actual en microsegundos desde epoch, comparable entre procesos de la misma maquina
+     */
+    public static long epochMicros() {
+        return RaceEvent.epochMicros();
+    }
+}
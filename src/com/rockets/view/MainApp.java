@@ -1,6 +1,12 @@
 package com.rockets.view;
 
 import com.rockets.application.Controller;
+import com.rockets.application.engine.ThreadPoolEngine;
+import com.rockets.application.engine.TickEngine;
+import com.rockets.domain.RaceClock;
+import com.rockets.domain.event.ConsoleSink;
+import com.rockets.domain.event.RaceEventLog;
+import com.rockets.domain.event.TraceDigest;
 
 import java.util.concurrent.TimeUnit;
 
@@ -10,23 +16,61 @@ public class MainApp {
 
     public static void main(String[] args) {
 
+        TraceDigest digest = null;
+        if (args.length > 0 && args[0].equals("seed")) {
+            // seed [semilla] [hilos]: ejecucion determinista con reloj virtual
+            long seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+            int parallelism = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+            digest = new TraceDigest();
+            controller.setClock(RaceClock.virtual());
+            controller.setEngine(new TickEngine(controller.getClock(), parallelism, seed));
+            controller.getEventLog().close();
+            controller.setEventLog(new RaceEventLog(8192, true, new ConsoleSink(System.out), digest));
+        } else if (args.length > 1) {
+            controller.setClock(RaceClock.accelerated(1000, Double.parseDouble(args[1])));
+        }
+        if (args.length > 0 && args[0].equals("tick")) {
+            controller.setEngine(new TickEngine(controller.getClock(), 1));
+        } else if (args.length > 0 && args[0].equals("virtual")) {
+            controller.setEngine(ThreadPoolEngine.virtualThreads());
+        }
+
         new RocketsRice().show();
 
         try {
             new RiceForward(12).show();
             controller.execute();
-            TimeUnit.MILLISECONDS.sleep(30000);
+            awaitPhase();
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
 
         try {
             new RiceBack(7).show();
-            TimeUnit.MILLISECONDS.sleep(20000);
+            awaitPhase();
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
-        controller.getExec().shutdownNow();
+        controller.shutdown();
+        if (digest != null) {
+            System.out.println("Huella de la carrera: " + digest);
+        }
+    }
+
+    /**
+     * Espera a que todos los cohetes alcancen la potencia objetivo de la fase en curso,
+     * como maximo 30 ticks del reloj de la carrera (30 segundos con un reloj virtual)
+     */
+    private static void awaitPhase() throws InterruptedException {
+        long timeout = controller.getClock().isVirtual()
+                ? TimeUnit.SECONDS.toNanos(30) : controller.getClock().getTickNanos() * 30;
+        if (!controller.awaitPhase(timeout, TimeUnit.NANOSECONDS)) {
+            System.out.println("Tiempo agotado, cohetes pendientes: " + controller.getRace().getPendingRockets());
+        }
+        if (!controller.getRace().getFailedRockets().isEmpty()) {
+            System.out.println("Cohetes que no pueden alcanzar la potencia objetivo: "
+                    + controller.getRace().getFailedRockets());
+        }
     }
 
 
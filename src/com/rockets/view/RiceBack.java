@@ -11,10 +11,19 @@ import com.rockets.application.Controller;
  */
 public class RiceBack {
 
-    private static Controller controller=Controller.getInstance();
+    private Controller controller;
     int powerBack;
 
     public RiceBack(int powerBack) {
+        this(Controller.getInstance(), powerBack);
+    }
+
+    /**
+     * @param controller, Controller de la carrera
+     * @param powerBack, potencia objetivo
+     */
+    public RiceBack(Controller controller, int powerBack) {
+        this.controller = controller;
         this.powerBack = powerBack;
         controller.back(powerBack);
     }
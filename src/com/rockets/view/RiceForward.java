@@ -12,10 +12,19 @@ import com.rockets.application.Controller;
 
 public class RiceForward {
 
-    private static Controller controller=Controller.getInstance();
+    private Controller controller;
     int powerForward;
 
     public RiceForward(int powerForward) {
+        this(Controller.getInstance(), powerForward);
+    }
+
+    /**
+     * @param controller, Controller de la carrera
+     * @param powerForward, potencia objetivo
+     */
+    public RiceForward(Controller controller, int powerForward) {
+        this.controller = controller;
         this.powerForward = powerForward;
         controller.forward(powerForward);
     }
@@ -18,7 +18,7 @@ import java.util.Optional;
  */
 public class RocketsRice {
 
-    private static Controller controller=Controller.getInstance();
+    private Controller controller;
     String idRocket1="LDSFJA32";
     String idRocket2="32WESSDS";
     Rocket rocket1;
@@ -27,6 +27,14 @@ public class RocketsRice {
     List<Booster> boostersRocket2;
 
     public RocketsRice() {
+        this(Controller.getInstance());
+    }
+
+    /**
+     * @param controller, Controller de la carrera en la que se crean los cohetes
+     */
+    public RocketsRice(Controller controller) {
+        this.controller = controller;
         rocket1 = controller.createRocket(idRocket1,3);
         boostersRocket1 = controller.addBoosterMaxPower(Optional.of(10),Optional.of(30),Optional.of(80));
         rocket2 = controller.createRocket(idRocket2,6);
@@ -0,0 +1,149 @@
+package com.rockets.application.batch;
+
+import com.rockets.domain.StateRace;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comprueba que ResultCache descarta el resultado usado hace mas tiempo y cuenta aciertos, fallos y
+ * descartes, y que save y load recuperan los resultados y su orden LRU sin dejar ficheros
+ * temporales, tampoco cuando save falla
+ */
+class ResultCacheTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void evictsTheLeastRecentlyUsedResult() {
+        ResultCache cache = new ResultCache(2);
+        cache.put(result(spec(10), 1));
+        cache.put(result(spec(20), 2));
+        assertTrue(cache.get(spec(10)).isPresent());
+
+        // la consulta deja el de 20 como el usado hace mas tiempo
+        cache.put(result(spec(30), 3));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertFalse(cache.get(spec(20)).isPresent());
+        assertEquals(1, cache.get(spec(10)).get().getPhaseTicks(0));
+        assertEquals(3, cache.get(spec(30)).get().getPhaseTicks(0));
+
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.75, cache.getHitRatio());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHits() + cache.getMisses() + cache.getEvictions());
+        assertEquals(0, cache.getHitRatio());
+    }
+
+    @Test
+    void computeIfAbsentRunsTheRaceOnlyOnMiss() {
+        ResultCache cache = new ResultCache(4);
+        AtomicInteger runs = new AtomicInteger();
+        RaceSpec other = new RaceSpec(2, new String[]{"X", "Y"}, new int[][]{{10, 20}, {5}},
+                new StateRace[]{StateRace.FORWARD}, new int[]{40});
+
+        RaceResult first = cache.computeIfAbsent(spec(40), spec -> result(spec, runs.incrementAndGet()));
+        RaceResult second = cache.computeIfAbsent(other, spec -> result(spec, runs.incrementAndGet()));
+
+        assertEquals(1, runs.get());
+        assertSame(other, second.getSpec());
+        assertSameResult(first, second);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void saveThenLoadKeepsResultsAndLruOrder() throws IOException {
+        ResultCache cache = new ResultCache(3);
+        for (int goal = 10; goal <= 30; goal += 10) {
+            cache.put(result(spec(goal), goal));
+        }
+        cache.get(spec(10));
+        Path path = dir.resolve("results.cache");
+        cache.save(path);
+        // sustituye al fichero anterior
+        cache.save(path);
+        assertNoTempFiles();
+
+        ResultCache loaded = ResultCache.load(path, 3);
+        assertEquals(3, loaded.size());
+        assertEquals(0, loaded.getHits() + loaded.getMisses() + loaded.getEvictions());
+        for (int goal = 10; goal <= 30; goal += 10) {
+            RaceResult result = loaded.get(spec(goal)).get();
+            assertEquals("A", result.getSpec().getRocketId(0));
+            assertSameResult(result(spec(goal), goal), result);
+        }
+
+        // con menos sitio se conservan los mas recientes: el de 10 se uso despues de guardar el de 30
+        ResultCache smaller = ResultCache.load(path, 2);
+        assertEquals(2, smaller.size());
+        assertEquals(0, smaller.getEvictions());
+        assertFalse(smaller.get(spec(20)).isPresent());
+        assertTrue(smaller.get(spec(30)).isPresent());
+        assertTrue(smaller.get(spec(10)).isPresent());
+    }
+
+    @Test
+    void loadOfAMissingFileIsEmpty() throws IOException {
+        ResultCache cache = ResultCache.load(dir.resolve("missing.cache"), 5);
+        assertEquals(0, cache.size());
+        assertEquals(5, cache.getMaxEntries());
+    }
+
+    @Test
+    void failedSaveDeletesTheTempFile() throws IOException {
+        ResultCache cache = new ResultCache(2);
+        cache.put(result(spec(10), 1));
+        // un directorio con contenido no se puede sustituir por un fichero
+        Path path = Files.createDirectory(dir.resolve("results.cache"));
+        Files.createFile(path.resolve("keep"));
+
+        assertThrows(IOException.class, () -> cache.save(path));
+        assertNoTempFiles();
+        assertTrue(Files.isDirectory(path));
+    }
+
+    private void assertNoTempFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            assertTrue(files.noneMatch(file -> file.getFileName().toString().endsWith(".tmp")));
+        }
+    }
+
+    private static RaceSpec spec(int goal) {
+        return new RaceSpec(1, new String[]{"A", "B"}, new int[][]{{10, 20}, {5}},
+                new StateRace[]{StateRace.FORWARD}, new int[]{goal});
+    }
+
+    private static RaceResult result(RaceSpec spec, long ticks) {
+        int goal = spec.getGoal(0);
+        return new RaceResult(spec, new long[]{ticks}, new long[][]{{ticks, RaceResult.UNREACHED}},
+                new int[][]{{0}}, new int[]{goal, 5}, new int[][]{{goal / 2, goal - goal / 2}, {5}});
+    }
+
+    private static void assertSameResult(RaceResult expected, RaceResult actual) {
+        RaceSpec spec = expected.getSpec();
+        for (int p = 0; p < spec.getPhaseCount(); p++) {
+            assertEquals(expected.getPhaseTicks(p), actual.getPhaseTicks(p));
+            assertArrayEquals(expected.getFinishOrder(p), actual.getFinishOrder(p));
+            for (int r = 0; r < spec.getRocketCount(); r++) {
+                assertEquals(expected.getFinishTick(p, r), actual.getFinishTick(p, r));
+            }
+        }
+        for (int r = 0; r < spec.getRocketCount(); r++) {
+            assertEquals(expected.getAcumPower(r), actual.getAcumPower(r));
+            assertArrayEquals(expected.getBoosterPower(r), actual.getBoosterPower(r));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.rockets.application.engine;
+
+import com.rockets.application.Controller;
+import com.rockets.application.factory.RocketFactory;
+import com.rockets.domain.Booster;
+import com.rockets.domain.RaceClock;
+import com.rockets.domain.Rocket;
+import com.rockets.domain.event.RaceEventLog;
+import com.rockets.domain.event.TraceDigest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comprueba que con semilla y reloj virtual la carrera no depende del numero de hilos, tambien al
+ * quitar y añadir cohetes entre fases, y que cada cohete conserva su generador aunque cambie de
+ * posicion al quitar otro
+ */
+class TickEngineTest {
+    private static final long SEED = 7;
+    private static final int ROCKETS = 12;
+
+    @Test
+    @Timeout(30)
+    void traceDigestDoesNotDependOnParallelism() throws InterruptedException {
+        Result sequential = race(1, true);
+        for (int parallelism : new int[]{2, 4}) {
+            Result parallel = race(parallelism, true);
+            assertEquals(sequential.digest, parallel.digest, "paralelismo " + parallelism);
+            assertEquals(sequential.powers, parallel.powers, "paralelismo " + parallelism);
+        }
+    }
+
+    @Test
+    @Timeout(30)
+    void removingARocketKeepsTheOtherRocketsPermutations() throws InterruptedException {
+        Result removed = race(2, true);
+        Result kept = race(2, false);
+        kept.powers.remove("R0");
+        kept.powers.remove("N0");
+        removed.powers.remove("N0");
+        assertEquals(kept.powers, removed.powers);
+    }
+
+    /**
+     * Acelera todos los cohetes a 25 y despues a 28, quitando opcionalmente el primero entre las dos
+     * fases. Antes de la segunda fase se añade un cohete nuevo, que sale de 0
+     */
+    private static Result race(int parallelism, boolean removeFirst) throws InterruptedException {
+        RaceClock clock = RaceClock.virtual();
+        TraceDigest digest = new TraceDigest();
+        RaceEventLog log = new RaceEventLog(8192, true, digest);
+        Controller controller = new Controller(new RocketFactory(), new TickEngine(clock, parallelism, SEED), log);
+        controller.setClock(clock);
+        try {
+            SplittableRandom random = new SplittableRandom(3);
+            for (int r = 0; r < ROCKETS; r++) {
+                controller.addRocket("R" + r, maxPowers(random));
+            }
+            controller.forward(25);
+            controller.execute();
+            assertTrue(controller.awaitPhase(10, TimeUnit.SECONDS));
+
+            if (removeFirst) {
+                assertTrue(controller.removeRocket("R0").isPresent());
+            }
+            controller.addRocket("N0", maxPowers(random));
+            controller.forward(28);
+            assertTrue(controller.awaitPhase(10, TimeUnit.SECONDS));
+            assertTrue(log.drain(10, TimeUnit.SECONDS));
+
+            Map<String, List<Integer>> powers = new LinkedHashMap<>();
+            for (Rocket rocket : controller.getRockets()) {
+                List<Integer> boosters = new ArrayList<>();
+                for (Booster booster : rocket.getBoosters()) {
+                    boosters.add(booster.getCurrentPower());
+                }
+                powers.put(rocket.getId(), boosters);
+            }
+            return new Result(digest.toString(), powers);
+        } finally {
+            controller.shutdown();
+            log.close();
+        }
+    }
+
+    private static int[] maxPowers(SplittableRandom random) {
+        int[] maxPower = new int[3 + random.nextInt(4)];
+        for (int b = 0; b < maxPower.length; b++) {
+            maxPower[b] = 10 + random.nextInt(31);
+        }
+        return maxPower;
+    }
+
+    private static final class Result {
+        private final String digest;
+        private final Map<String, List<Integer>> powers;
+
+        Result(String digest, Map<String, List<Integer>> powers) {
+            this.digest = digest;
+            this.powers = powers;
+        }
+    }
+}
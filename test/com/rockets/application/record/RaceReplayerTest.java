@@ -0,0 +1,141 @@
+package com.rockets.application.record;
+
+import com.rockets.application.Controller;
+import com.rockets.application.engine.TickEngine;
+import com.rockets.application.factory.RocketFactory;
+import com.rockets.domain.Booster;
+import com.rockets.domain.RaceClock;
+import com.rockets.domain.Rocket;
+import com.rockets.domain.StateRace;
+import com.rockets.domain.event.EventType;
+import com.rockets.domain.event.RaceEventLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comprueba que RaceReplayer reconstruye el mismo estado que tiene la carrera en vivo, en modo tick
+ * y con un hilo por propulsor, y que los registros publicados con ticks desordenados se graban con
+ * ticks que no decrecen
+ */
+class RaceReplayerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @Timeout(30)
+    void replayEqualsLiveTickRace() throws Exception {
+        RaceClock clock = RaceClock.virtual();
+        Controller controller = new Controller(new RocketFactory(), new TickEngine(clock, 2), RaceEventLog.DISCARD);
+        controller.setClock(clock);
+        replayEqualsLive(controller);
+    }
+
+    @Test
+    @Timeout(30)
+    void replayEqualsLiveThreadRace() throws Exception {
+        Controller controller = new Controller(new RocketFactory());
+        controller.setClock(RaceClock.accelerated(1000, 2000));
+        replayEqualsLive(controller);
+    }
+
+    private void replayEqualsLive(Controller controller) throws Exception {
+        Path path = dir.resolve("race.trace");
+        try {
+            controller.addRocket("A", 10, 30, 80);
+            controller.addRocket("B", 30, 40, 50, 50, 30, 10);
+            controller.addRocket("C", 15, 25, 35);
+            RaceEventLog log = new RaceEventLog(1 << 12, true,
+                    new RaceRecorder(path, controller.getRockets(), 8));
+            controller.setEventLog(log);
+
+            controller.forward(60);
+            controller.execute();
+            assertTrue(controller.awaitPhase(10, TimeUnit.SECONDS));
+            controller.back(20);
+            assertTrue(controller.awaitPhase(10, TimeUnit.SECONDS));
+            assertTrue(log.drain(10, TimeUnit.SECONDS));
+            log.close();
+
+            try (RaceReplayer replayer = new RaceReplayer(path)) {
+                assertSameState(controller.getRockets(), replayer.stateAt(replayer.getLastTick()));
+                assertSameState(controller.getRockets(), replayer.stateAt(Long.MAX_VALUE));
+            }
+        } finally {
+            controller.shutdown();
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void outOfOrderTicksAreRecordedNonDecreasing() throws Exception {
+        Rocket rocket = new RocketFactory().create("A", 1);
+        rocket.addBoosterMaxPower(10);
+        ScriptedClock clock = new ScriptedClock(1, 3, 2);
+        rocket.setClock(clock);
+        Path path = dir.resolve("race.trace");
+        RaceEventLog log = new RaceEventLog(16, true, new RaceRecorder(path, List.of(rocket), 1));
+        for (int power = 1; power <= 3; power++) {
+            log.publish(EventType.BOOSTER_POWER, rocket, 0, power, StateRace.FORWARD);
+        }
+        log.close();
+
+        try (RaceReplayer replayer = new RaceReplayer(path)) {
+            assertEquals(3, replayer.getRecords());
+            // el tercer evento, leido en el tick 2, se publica despues del leido en el tick 3
+            assertEquals(3, replayer.getLastTick());
+            assertEquals(1, replayer.stateAt(2).get(0).getBoosters().get(0).getCurrentPower());
+            assertEquals(3, replayer.stateAt(replayer.getLastTick()).get(0).getBoosters().get(0).getCurrentPower());
+        }
+    }
+
+    private static void assertSameState(List<Rocket> live, List<Rocket> replayed) {
+        assertEquals(live.size(), replayed.size());
+        for (int r = 0; r < live.size(); r++) {
+            Rocket expected = live.get(r);
+            Rocket actual = replayed.get(r);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getGoalPower(), actual.getGoalPower(), expected.getId());
+            List<Booster> boosters = expected.getBoosters();
+            for (int b = 0; b < boosters.size(); b++) {
+                Booster booster = actual.getBoosters().get(b);
+                assertEquals(boosters.get(b).getCurrentPower(), booster.getCurrentPower(), expected.getId() + " " + b);
+                assertEquals(boosters.get(b).getState(), booster.getState(), expected.getId() + " " + b);
+            }
+            assertEquals(expected.getAcumPower(), actual.getAcumPower(), expected.getId());
+        }
+    }
+
+    /**
+     * Reloj que devuelve una secuencia fija de ticks, uno por llamada a now
+     */
+    private static class ScriptedClock implements RaceClock {
+        private final long[] ticks;
+        private int next;
+
+        ScriptedClock(long... ticks) {
+            this.ticks = ticks;
+        }
+
+        @Override
+        public synchronized long now() {
+            return ticks[Math.min(next++, ticks.length - 1)];
+        }
+
+        @Override
+        public void sleep(long ticks) {
+        }
+
+        @Override
+        public long getTickNanos() {
+            return 0;
+        }
+    }
+}
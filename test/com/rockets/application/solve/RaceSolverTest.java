@@ -0,0 +1,120 @@
+package com.rockets.application.solve;
+
+import com.rockets.application.Controller;
+import com.rockets.application.engine.TickEngine;
+import com.rockets.application.factory.RocketFactory;
+import com.rockets.domain.RaceClock;
+import com.rockets.domain.Rocket;
+import com.rockets.domain.StateRace;
+import com.rockets.domain.event.RaceEventLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comprueba que RaceSolver.checkReachable acepta una fase solo si solveRocket la resuelve, en
+ * particular al repetir la potencia objetivo en la que ya estan los cohetes
+ */
+class RaceSolverTest {
+    private Controller controller;
+
+    @BeforeEach
+    void setUp() {
+        RaceClock clock = RaceClock.virtual();
+        controller = new Controller(new RocketFactory(), new TickEngine(clock, 1), RaceEventLog.DISCARD);
+        controller.setClock(clock);
+        controller.addRocket("A", 10, 30, 80);
+        controller.addRocket("B", 30, 40, 50, 50, 30, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        controller.shutdown();
+    }
+
+    @Test
+    void repeatingTheSameGoalIsRejected() throws InterruptedException {
+        controller.forward(12);
+        controller.execute();
+        assertTrue(controller.awaitPhase(10, TimeUnit.SECONDS));
+        assertEquals(2, controller.getRace().getArrivals().size());
+
+        assertThrows(IllegalArgumentException.class, () -> controller.forward(12));
+
+        // la fase anterior sigue siendo la de la carrera y la siguiente se alcanza sin fallos
+        controller.forward(20);
+        assertTrue(controller.awaitPhase(10, TimeUnit.SECONDS));
+        assertEquals(2, controller.getRace().getArrivals().size());
+        assertTrue(controller.getRace().getFailedRockets().isEmpty());
+    }
+
+    @Test
+    void currentGoalIsRejectedWhenAnyBoosterCanMove() {
+        // el primer propulsor esta fijo en su maximo, pero el segundo aun puede acelerar
+        Rocket rocket = rocket("C", new int[]{1, 5}, new int[]{1, 1});
+
+        assertThrows(IllegalArgumentException.class,
+                () -> RaceSolver.checkReachable(List.of(rocket), StateRace.FORWARD, 2));
+        assertFalse(RaceSolver.solve(List.of(rocket), StateRace.FORWARD, 2).isReachable(0));
+
+        // con todos los propulsores fijos llega en el primer tick
+        Rocket saturated = rocket("D", new int[]{1, 5}, new int[]{1, 5});
+        RaceSolver.checkReachable(List.of(saturated), StateRace.FORWARD, 6);
+        assertEquals(1, RaceSolver.solve(List.of(saturated), StateRace.FORWARD, 6).getFinishTick(0));
+    }
+
+    @Test
+    void rocketWithoutBoostersIsRejected() {
+        Rocket rocket = rocket("Z", new int[0], new int[0]);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> RaceSolver.checkReachable(List.of(rocket), StateRace.FORWARD, 0));
+        assertFalse(RaceSolver.solve(List.of(rocket), StateRace.FORWARD, 0).isReachable(0));
+
+        controller.addRocket("Z");
+        assertThrows(IllegalArgumentException.class, () -> controller.forward(12));
+    }
+
+    @Test
+    void checkReachableAgreesWithSolve() throws InterruptedException {
+        controller.forward(12);
+        controller.execute();
+        assertTrue(controller.awaitPhase(10, TimeUnit.SECONDS));
+
+        List<Rocket> rockets = new ArrayList<>(controller.getRockets());
+        rockets.add(rocket("C", new int[]{1, 5}, new int[]{1, 1}));
+        rockets.add(rocket("D", new int[]{1, 5}, new int[]{1, 5}));
+        rockets.add(rocket("E", new int[]{4, 6, 2}, new int[]{4, 0, 1}));
+        rockets.add(rocket("Z", new int[0], new int[0]));
+        for (Rocket rocket : rockets) {
+            for (StateRace state : new StateRace[]{StateRace.FORWARD, StateRace.BACK}) {
+                for (int goal = 0; goal <= 300; goal++) {
+                    boolean solved = RaceSolver.solve(List.of(rocket), state, goal).isReachable(0);
+                    boolean accepted;
+                    try {
+                        RaceSolver.checkReachable(List.of(rocket), state, goal);
+                        accepted = true;
+                    } catch (IllegalArgumentException e) {
+                        accepted = false;
+                    }
+                    assertEquals(solved, accepted, rocket.getId() + " " + state + " " + goal);
+                }
+            }
+        }
+    }
+
+    private static Rocket rocket(String id, int[] maxPower, int[] currentPower) {
+        Rocket rocket = new RocketFactory().create(id, maxPower.length);
+        rocket.addBoosterMaxPower(maxPower);
+        for (int b = 0; b < currentPower.length; b++) {
+            rocket.getBoosters().get(b).setCurrentPower(currentPower[b]);
+        }
+        return rocket;
+    }
+}
@@ -0,0 +1,149 @@
+package com.rockets.domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comprueba que read devuelve la flota del ultimo checkpoint confirmado: tras submit, tras
+ * escrituras incrementales y cambios de disposicion, ignorando un hueco escrito pero no confirmado
+ * y recuperando el otro hueco si la confirmacion en la cabecera quedo a medias
+ */
+class FleetCheckpointTest {
+    /** Posicion en la cabecera del hueco confirmado y su secuencia */
+    private static final long COMMITTED_OFFSET = 40;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void submitThenReadReturnsTheSameFleet() throws Exception {
+        Fleet fleet = fleet();
+        fleet.startPhase(StateRace.FORWARD, 40);
+        advance(fleet, 7);
+        Path path = dir.resolve("fleet.ckpt");
+        try (FleetCheckpoint checkpoint = new FleetCheckpoint(path)) {
+            assertEquals(1L, checkpoint.submit(fleet).get());
+        }
+        assertSameFleet(fleet, FleetCheckpoint.read(path));
+    }
+
+    @Test
+    void incrementalWriteThenLayoutChangeReadsBack() throws IOException {
+        Fleet fleet = fleet();
+        fleet.startPhase(StateRace.FORWARD, 40);
+        Path path = dir.resolve("fleet.ckpt");
+        try (FleetCheckpoint checkpoint = new FleetCheckpoint(path)) {
+            checkpoint.write(fleet);
+            advance(fleet, 5);
+            checkpoint.write(fleet);
+            assertSameFleet(fleet, FleetCheckpoint.read(path));
+
+            fleet.addRocket("D", 4, 4, 4);
+            fleet.startPhase(3, StateRace.FORWARD, 40);
+            checkpoint.write(fleet);
+            assertSameFleet(fleet, FleetCheckpoint.read(path));
+
+            advance(fleet, 5);
+            assertEquals(4, checkpoint.write(fleet));
+        }
+        assertSameFleet(fleet, FleetCheckpoint.read(path));
+    }
+
+    @Test
+    void uncommittedSlotIsIgnored() throws IOException {
+        Fleet fleet = fleet();
+        fleet.startPhase(StateRace.FORWARD, 40);
+        Fleet first = new Fleet(1, 1);
+        Path path = dir.resolve("fleet.ckpt");
+        try (FleetCheckpoint checkpoint = new FleetCheckpoint(path)) {
+            checkpoint.write(fleet);
+            fleet.copyTo(first);
+            advance(fleet, 5);
+            checkpoint.write(fleet);
+        }
+
+        // el proceso se detiene tras escribir el hueco 1 y antes de confirmarlo
+        commit(path, 0, 1);
+        assertSameFleet(first, FleetCheckpoint.read(path));
+    }
+
+    @Test
+    void tornCommitFallsBackToTheOtherSlot() throws IOException {
+        Fleet fleet = fleet();
+        fleet.startPhase(StateRace.FORWARD, 40);
+        Fleet first = new Fleet(1, 1);
+        Path path = dir.resolve("fleet.ckpt");
+        try (FleetCheckpoint checkpoint = new FleetCheckpoint(path)) {
+            checkpoint.write(fleet);
+            fleet.copyTo(first);
+            advance(fleet, 5);
+            checkpoint.write(fleet);
+        }
+
+        // hueco nuevo con la secuencia anterior: el ultimo completo sigue siendo el hueco 0
+        commit(path, 1, 1);
+        assertSameFleet(first, FleetCheckpoint.read(path));
+
+        // hueco anterior con la secuencia nueva: el ultimo completo es el hueco 1
+        commit(path, 0, 2);
+        assertSameFleet(fleet, FleetCheckpoint.read(path));
+
+        commit(path, 0, 3);
+        assertThrows(IOException.class, () -> FleetCheckpoint.read(path));
+    }
+
+    private static Fleet fleet() {
+        Fleet fleet = new Fleet(4, 16);
+        fleet.addRocket("A", 10, 30, 80);
+        fleet.addRocket("B", 5, 5);
+        fleet.addRocket("cohete-C", 20, 20, 20, 20);
+        return fleet;
+    }
+
+    private static void advance(Fleet fleet, int ticks) {
+        for (int i = 0; i < ticks && fleet.step(); i++) {
+            // avanza la fase tick a tick
+        }
+    }
+
+    private static void commit(Path path, int slot, long seq) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(slot).putInt(0).putLong(seq).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, COMMITTED_OFFSET + header.position());
+            }
+        }
+    }
+
+    private static void assertSameFleet(Fleet expected, Fleet actual) {
+        int rockets = expected.getRocketCount();
+        int boosters = expected.getBoosterCount();
+        assertEquals(rockets, actual.getRocketCount());
+        assertEquals(boosters, actual.getBoosterCount());
+        assertEquals(expected.getTick(), actual.getTick());
+        assertEquals(expected.getPhase(), actual.getPhase());
+        assertEquals(expected.getPhaseGoal(), actual.getPhaseGoal());
+        assertEquals(expected.getFinishedCount(), actual.getFinishedCount());
+        assertArrayEquals(Arrays.copyOf(expected.ids(), rockets), Arrays.copyOf(actual.ids(), rockets));
+        assertArrayEquals(Arrays.copyOf(expected.offsets(), rockets + 1), Arrays.copyOf(actual.offsets(), rockets + 1));
+        assertArrayEquals(Arrays.copyOf(expected.maxPowers(), boosters), Arrays.copyOf(actual.maxPowers(), boosters));
+        assertArrayEquals(Arrays.copyOf(expected.goals(), rockets), Arrays.copyOf(actual.goals(), rockets));
+        assertArrayEquals(Arrays.copyOf(expected.acumPowers(), rockets), Arrays.copyOf(actual.acumPowers(), rockets));
+        assertArrayEquals(Arrays.copyOf(expected.finishTicks(), rockets), Arrays.copyOf(actual.finishTicks(), rockets));
+        int finished = expected.getFinishedCount();
+        assertArrayEquals(Arrays.copyOf(expected.finishOrder(), finished), Arrays.copyOf(actual.finishOrder(), finished));
+        assertArrayEquals(Arrays.copyOf(expected.currentPowers(), boosters), Arrays.copyOf(actual.currentPowers(), boosters));
+        assertArrayEquals(Arrays.copyOf(expected.states(), boosters), Arrays.copyOf(actual.states(), boosters));
+    }
+}
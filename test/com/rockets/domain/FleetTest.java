@@ -0,0 +1,113 @@
+package com.rockets.domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comprueba que runPhase termina aunque algun cohete no pueda alcanzar la potencia objetivo, en
+ * secuencia y en paralelo, y que esos cohetes quedan como fallidos, y que en paralelo (fork-join)
+ * da el mismo resultado que en secuencia con cualquier tamaño de bloque
+ */
+class FleetTest {
+
+    @Test
+    @Timeout(10)
+    void unreachableGoalFailsInsteadOfLooping() {
+        Fleet fleet = new Fleet(2, 5);
+        fleet.addRocket("A", 10, 30, 80);
+        fleet.addRocket("B", 5, 5);
+
+        long ticks = fleet.runPhase(StateRace.FORWARD, 60, Long.MAX_VALUE);
+
+        assertTrue(ticks > 0);
+        assertFalse(fleet.isFailed(0));
+        assertEquals(60, fleet.rocket(0).getAcumPower());
+        assertTrue(fleet.isFailed(1));
+        assertEquals(-1, fleet.getFinishTick(1));
+        assertEquals(10, fleet.rocket(1).getAcumPower());
+        assertEquals(1, fleet.getFinishedCount());
+    }
+
+    @Test
+    @Timeout(10)
+    void overshootFailsInParallelToo() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            Fleet sequential = new Fleet(1, 8);
+            Fleet parallel = new Fleet(1, 8);
+            parallel.setGrain(2);
+            for (Fleet fleet : new Fleet[]{sequential, parallel}) {
+                fleet.addRocket("A", 3, 3, 3, 3, 3, 3, 3, 3);
+            }
+            sequential.runPhase(StateRace.FORWARD, 16, Long.MAX_VALUE);
+            parallel.runPhase(StateRace.FORWARD, 16, Long.MAX_VALUE, pool);
+
+            // ya en 16, el primer propulsor que avanza la sobrepasa al comenzar la fase
+            long ticks = sequential.runPhase(StateRace.FORWARD, 16, Long.MAX_VALUE);
+            assertEquals(ticks, parallel.runPhase(StateRace.FORWARD, 16, Long.MAX_VALUE, pool));
+            assertTrue(sequential.isFailed(0));
+            assertTrue(parallel.isFailed(0));
+            assertEquals(sequential.rocket(0).getAcumPower(), parallel.rocket(0).getAcumPower());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @Timeout(60)
+    void forkJoinMatchesSequentialOnRandomFleets() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            SplittableRandom random = new SplittableRandom(5);
+            for (int grain : new int[]{1, 3, 64, Fleet.DEFAULT_GRAIN}) {
+                for (int fleet = 0; fleet < 30; fleet++) {
+                    int rockets = 1 + random.nextInt(30);
+                    Fleet sequential = new Fleet(rockets, 1);
+                    Fleet parallel = new Fleet(rockets, 1);
+                    parallel.setGrain(grain);
+                    for (int r = 0; r < rockets; r++) {
+                        int[] maxPower = new int[1 + random.nextInt(40)];
+                        for (int b = 0; b < maxPower.length; b++) {
+                            maxPower[b] = 1 + random.nextInt(20);
+                        }
+                        sequential.addRocket("R" + r, maxPower);
+                        parallel.addRocket("R" + r, maxPower);
+                    }
+                    for (int phase = 0; phase < 4; phase++) {
+                        StateRace state = phase % 2 == 0 ? StateRace.FORWARD : StateRace.BACK;
+                        int goal = random.nextInt(300);
+                        String where = "bloque " + grain + ", flota " + fleet + ", fase " + phase;
+                        assertEquals(sequential.runPhase(state, goal, Long.MAX_VALUE),
+                                parallel.runPhase(state, goal, Long.MAX_VALUE, pool), where);
+                        assertSameFleet(sequential, parallel, where);
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void assertSameFleet(Fleet expected, Fleet actual, String where) {
+        assertEquals(expected.getTick(), actual.getTick(), where);
+        assertEquals(expected.getFinishedCount(), actual.getFinishedCount(), where);
+        for (int i = 0; i < expected.getFinishedCount(); i++) {
+            assertEquals(expected.getFinishOrder(i), actual.getFinishOrder(i), where + ", llegada " + i);
+        }
+        for (int r = 0; r < expected.getRocketCount(); r++) {
+            assertEquals(expected.getFinishTick(r), actual.getFinishTick(r), where + ", cohete " + r);
+            assertEquals(expected.isFailed(r), actual.isFailed(r), where + ", cohete " + r);
+            Fleet.RocketView rocket = expected.rocket(r);
+            assertEquals(rocket.getAcumPower(), actual.rocket(r).getAcumPower(), where + ", cohete " + r);
+            for (int b = 0; b < rocket.getNumberOfBoosters(); b++) {
+                assertEquals(rocket.getBooster(b).getCurrentPower(), actual.rocket(r).getBooster(b).getCurrentPower(),
+                        where + ", cohete " + r + ", propulsor " + b);
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.rockets.domain.event;
+
+import com.rockets.application.factory.RocketFactory;
+import com.rockets.domain.Rocket;
+import com.rockets.domain.StateRace;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comprueba la conflacion y la demanda de PowerSnapshotPublisher: un suscriptor sin demanda guarda
+ * solo la ultima instantanea, recibe tantas como pide y las entregas pedidas desde onNext se hacen
+ * en el mismo bucle de entrega, sin anidar llamadas. Las entregas se hacen en el hilo que llama y
+ * las instantaneas se toman llamando a publish, con un periodo que no llega a cumplirse
+ */
+class PowerSnapshotPublisherTest {
+    private PowerSnapshotPublisher publisher;
+    private Rocket rocket;
+
+    @BeforeEach
+    void setUp() {
+        publisher = new PowerSnapshotPublisher(1, TimeUnit.HOURS, Runnable::run);
+        rocket = new RocketFactory().create("A", 2);
+        rocket.addBoosterMaxPower(10, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        publisher.close();
+    }
+
+    @Test
+    void slowSubscriberKeepsOnlyTheLatestSnapshot() {
+        Recorder recorder = subscribe();
+        for (int power = 1; power <= 3; power++) {
+            rocketPower(power);
+            publisher.publish();
+        }
+        assertTrue(recorder.received.isEmpty());
+        assertEquals(2, publisher.getConflated());
+
+        recorder.subscription.request(5);
+        assertEquals(1, recorder.received.size());
+        assertEquals(3, recorder.received.get(0).getAcumPower(0));
+
+        // sin cambios no hay instantanea nueva aunque quede demanda
+        publisher.publish();
+        assertEquals(1, recorder.received.size());
+        rocketPower(4);
+        publisher.publish();
+        assertEquals(2, recorder.received.size());
+        assertEquals(4, recorder.received.get(1).getAcumPower(0));
+        assertEquals(2, publisher.getDelivered());
+    }
+
+    @Test
+    void deliversNoMoreThanRequested() {
+        Recorder recorder = subscribe();
+        recorder.subscription.request(2);
+        for (int power = 1; power <= 3; power++) {
+            boosterPower(power);
+            publisher.publish();
+        }
+        assertEquals(2, recorder.received.size());
+        assertEquals(1, recorder.received.get(0).getPower(0, 1));
+        assertEquals(2, recorder.received.get(1).getPower(0, 1));
+
+        // sin demanda la instantanea pendiente se descarta al cerrar
+        publisher.close();
+        assertEquals(2, recorder.received.size());
+        assertTrue(recorder.completed);
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    @Test
+    void requestFromOnNextIsServedByTheSameDrainLoop() {
+        List<Long> versions = new ArrayList<>();
+        Recorder recorder = new Recorder() {
+            @Override
+            void onReceived(PowerSnapshot item) {
+                versions.add(item.getVersion());
+                if (received.size() < 3) {
+                    // nueva instantanea y mas demanda mientras se entrega la anterior
+                    rocketPower(received.size() + 10);
+                    publisher.publish();
+                    subscription.request(1);
+                }
+            }
+        };
+        publisher.subscribe(recorder, 0, TimeUnit.NANOSECONDS);
+        rocketPower(10);
+        publisher.publish();
+        recorder.subscription.request(1);
+
+        assertEquals(3, recorder.received.size());
+        assertEquals(1, recorder.maxDepth);
+        assertTrue(versions.get(0) < versions.get(1) && versions.get(1) < versions.get(2));
+        assertEquals(12, recorder.received.get(2).getAcumPower(0));
+    }
+
+    @Test
+    void unboundedDemandReceivesEverySnapshotThenCompletes() {
+        Recorder recorder = subscribe();
+        recorder.subscription.request(Long.MAX_VALUE);
+        recorder.subscription.request(Long.MAX_VALUE);
+        for (int power = 1; power <= 5; power++) {
+            rocketPower(power);
+            publisher.publish();
+        }
+        rocketPower(6);
+        publisher.close();
+
+        assertEquals(6, recorder.received.size());
+        assertEquals(6, recorder.received.get(5).getAcumPower(0));
+        assertEquals(0, publisher.getConflated());
+        assertTrue(recorder.completed);
+    }
+
+    @Test
+    void nonPositiveRequestSignalsError() {
+        Recorder recorder = subscribe();
+        recorder.subscription.request(0);
+        assertInstanceOf(IllegalArgumentException.class, recorder.error);
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    private Recorder subscribe() {
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder, 0, TimeUnit.NANOSECONDS);
+        return recorder;
+    }
+
+    private void rocketPower(int power) {
+        RaceEvent event = new RaceEvent();
+        event.set(0, EventType.ROCKET_POWER, power, 0, rocket, -1, power, StateRace.FORWARD);
+        publisher.onEvent(event);
+    }
+
+    private void boosterPower(int power) {
+        RaceEvent event = new RaceEvent();
+        event.set(0, EventType.BOOSTER_POWER, power, 0, rocket, 1, power, StateRace.FORWARD);
+        publisher.onEvent(event);
+    }
+
+    private static class Recorder implements Flow.Subscriber<PowerSnapshot> {
+        final List<PowerSnapshot> received = new ArrayList<>();
+        Flow.Subscription subscription;
+        Throwable error;
+        boolean completed;
+        int depth;
+        int maxDepth;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(PowerSnapshot item) {
+            depth++;
+            maxDepth = Math.max(maxDepth, depth);
+            received.add(item);
+            onReceived(item);
+            depth--;
+        }
+
+        void onReceived(PowerSnapshot item) {
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}